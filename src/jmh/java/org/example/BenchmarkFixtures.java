@@ -0,0 +1,83 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * Payloads and objects shared by the benchmarks, shaped like {@code metadata.xml}.
+ */
+final class BenchmarkFixtures {
+    private static final ObjectReader REQUEST_READER = xmlRequestReader();
+    private static final EntryType[] ENTRY_TYPES = EntryType.values();
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Creates the XML reader for metadata requests, configured like the one Spring MVC uses.
+     *
+     * @return the reader
+     */
+    static ObjectReader xmlRequestReader() {
+        return Jackson2ObjectMapperBuilder.xml().build().readerFor(MetadataRequest.class);
+    }
+
+    /**
+     * Builds a metadata XML document.
+     *
+     * @param id the metadata ID
+     * @param entries the number of entries
+     * @return the XML document
+     */
+    static String metadataXml(String id, int entries) {
+        StringBuilder xml = new StringBuilder(256 + entries * 96)
+            .append("<metadata id=\"").append(id).append("\">")
+            .append("<name>Spring XML Example</name>")
+            .append("<description>This is a test description</description>")
+            .append("<info>")
+            .append("<state>active</state>")
+            .append("<created-date>11/13/2025</created-date>")
+            .append("<created-time>12:00:00</created-time>")
+            .append("<created-datetime>11/13/2025 12:00:00</created-datetime>")
+            .append("</info>")
+            .append("<entries>");
+        for (int i = 0; i < entries; i++) {
+            xml.append("<entry>")
+                .append("<name>Entry ").append(i + 1).append("</name>")
+                .append("<count>").append(i).append("</count>")
+                .append("<type>").append(ENTRY_TYPES[i % ENTRY_TYPES.length].name().toLowerCase()).append("</type>")
+                .append("</entry>");
+        }
+        return xml.append("</entries></metadata>").toString();
+    }
+
+    /**
+     * Builds a metadata request by parsing {@link #metadataXml(String, int)}.
+     *
+     * @param id the metadata ID
+     * @param entries the number of entries
+     * @return the request
+     */
+    static MetadataRequest request(String id, int entries) {
+        try {
+            return REQUEST_READER.readValue(metadataXml(id, entries));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Builds a metadata entity from {@link #request(String, int)}.
+     *
+     * @param id the metadata ID
+     * @param entries the number of entries
+     * @return the entity
+     */
+    static MetadataEntity entity(String id, int entries) {
+        return new MetadataRequestMapperImpl().toEntity(request(id, entries));
+    }
+}
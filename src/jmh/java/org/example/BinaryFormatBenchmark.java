@@ -0,0 +1,71 @@
+package org.example;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+/**
+ * Writing and reading a page of {@link MetadataResponse}s as JSON, CBOR and Smile, with the mappers configured by
+ * {@link ObjectMapperConfig}. The encoded size of the page is printed during setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BinaryFormatBenchmark {
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    @Param({"2", "200"})
+    public int entries;
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private List<MetadataResponse> page;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = switch (format) {
+            case "json" -> new ObjectMapperConfig().objectMapper();
+            case "cbor" -> ObjectMapperConfig.configure(new CBORMapper());
+            case "smile" -> ObjectMapperConfig.configure(new SmileMapper());
+            default -> throw new IllegalArgumentException(format);
+        };
+        TypeReference<List<MetadataResponse>> type = new TypeReference<>() {
+        };
+        writer = objectMapper.writerFor(type);
+        reader = objectMapper.readerFor(type);
+        page = new ArrayList<>();
+        MetadataResponseMapper mapper = new MetadataResponseMapperImpl();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            page.add(mapper.toResponse(BenchmarkFixtures.entity("record-" + i, entries)));
+        }
+        encoded = writer.writeValueAsBytes(page);
+        System.out.printf("%n%s page of %d with %d entries each: %,d bytes%n", format, PAGE_SIZE, entries, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        return writer.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public List<MetadataResponse> read() throws IOException {
+        return reader.readValue(encoded);
+    }
+}
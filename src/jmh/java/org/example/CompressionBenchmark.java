@@ -0,0 +1,66 @@
+package org.example;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Compressing a listing page of 100 {@link MetadataResponse}s, the default page size, as written by the application
+ * {@code ObjectMapper}, with the compression of {@link MetadataCompressionFilter}. IDs, names, counts and creation
+ * times differ between entries, as they would in a real listing. The compressed size is printed during setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompressionBenchmark {
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"gzip", "deflate"})
+    public String encoding;
+
+    @Param({"1", "6", "9"})
+    public int level;
+
+    private MetadataCompressionFilter filter;
+    private byte[] page;
+
+    @Setup
+    public void setUp() throws IOException {
+        MetadataProperties properties = new MetadataProperties();
+        properties.getCompression().setLevel(level);
+        filter = new MetadataCompressionFilter(properties, new SimpleMeterRegistry());
+        List<MetadataResponse> responses = new ArrayList<>();
+        MetadataResponseMapper mapper = new MetadataResponseMapperImpl();
+        Random random = new Random(42);
+        LocalDateTime created = LocalDateTime.of(2025, 11, 13, 12, 0);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            MetadataEntity entity = BenchmarkFixtures.entity(new UUID(random.nextLong(), random.nextLong()).toString(), 2);
+            entity.setName("Metadata " + random.nextInt(100_000));
+            created = created.plusSeconds(random.nextInt(86_400));
+            entity.getInfo().setCreatedDate(created.toLocalDate());
+            entity.getInfo().setCreatedTime(created.toLocalTime());
+            entity.getInfo().setCreatedDatetime(created);
+            entity.getEntries().forEach(entry -> entry.setCount(random.nextInt(1000)));
+            responses.add(mapper.toResponse(entity));
+        }
+        page = new ObjectMapperConfig().objectMapper().writeValueAsBytes(responses);
+        System.out.printf("%n%s level %d: %,d bytes to %,d bytes%n", encoding, level, page.length,
+            filter.compress(page, encoding).length);
+    }
+
+    @Benchmark
+    public byte[] compress() {
+        return filter.compress(page, encoding);
+    }
+}
@@ -0,0 +1,78 @@
+package org.example;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parsing and writing the three date and time fields of an info section: with the {@code DateTimeFormatter}s of the
+ * former {@code @JsonFormat} patterns, against the fixed-format code of {@link MetadataDateTimeFormat}. The values
+ * cycle through the days of one year.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DateTimeFormatBenchmark {
+    private static final int DAYS = 365;
+
+    private final String[] dates = new String[DAYS];
+    private final String[] times = new String[DAYS];
+    private final String[] dateTimes = new String[DAYS];
+    private final LocalDateTime[] values = new LocalDateTime[DAYS];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < DAYS; i++) {
+            values[i] = LocalDateTime.of(LocalDate.of(2025, 1, 1).plusDays(i), LocalTime.ofSecondOfDay(i * 233L));
+            dates[i] = MetadataDateTimeFormat.DATE_FORMAT.format(values[i]);
+            times[i] = MetadataDateTimeFormat.TIME_FORMAT.format(values[i]);
+            dateTimes[i] = MetadataDateTimeFormat.DATETIME_FORMAT.format(values[i]);
+        }
+    }
+
+    @Benchmark
+    public void parseFormatter(Blackhole blackhole) {
+        int i = next();
+        blackhole.consume(LocalDate.parse(dates[i], MetadataDateTimeFormat.DATE_FORMAT));
+        blackhole.consume(LocalTime.parse(times[i], MetadataDateTimeFormat.TIME_FORMAT));
+        blackhole.consume(LocalDateTime.parse(dateTimes[i], MetadataDateTimeFormat.DATETIME_FORMAT));
+    }
+
+    @Benchmark
+    public void parseFixed(Blackhole blackhole) {
+        int i = next();
+        blackhole.consume(MetadataDateTimeFormat.parseDate(dates[i]));
+        blackhole.consume(MetadataDateTimeFormat.parseTime(times[i]));
+        blackhole.consume(MetadataDateTimeFormat.parseDateTime(dateTimes[i]));
+    }
+
+    @Benchmark
+    public void formatFormatter(Blackhole blackhole) {
+        LocalDateTime value = values[next()];
+        blackhole.consume(MetadataDateTimeFormat.DATE_FORMAT.format(value));
+        blackhole.consume(MetadataDateTimeFormat.TIME_FORMAT.format(value));
+        blackhole.consume(MetadataDateTimeFormat.DATETIME_FORMAT.format(value));
+    }
+
+    @Benchmark
+    public void formatFixed(Blackhole blackhole) {
+        LocalDateTime value = values[next()];
+        blackhole.consume(MetadataDateTimeFormat.formatDate(value.toLocalDate()));
+        blackhole.consume(MetadataDateTimeFormat.formatTime(value.toLocalTime()));
+        blackhole.consume(MetadataDateTimeFormat.formatDateTime(value));
+    }
+
+    private int next() {
+        int i = next;
+        next = i + 1 == DAYS ? 0 : i + 1;
+        return i;
+    }
+}
@@ -0,0 +1,101 @@
+package org.example;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Filling a store with {@code records} entities of two entries each. The heap the filled store retains per entity
+ * is measured with full collections in the forked JVM and printed during setup, next to the heap the same entities
+ * retain as parsed objects; the memory store holds them compactly and the mapped store only keeps its index on the
+ * heap.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class FootprintBenchmark {
+    @Param({"100000"})
+    public int records;
+
+    @Param({"memory", "mapped"})
+    public String storage;
+
+    private Path directory;
+    private MetadataProperties metadataProperties;
+    private MetadataEntity[] entities;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("metadata-footprint");
+        metadataProperties = new MetadataProperties();
+        metadataProperties.getStorage().getMapped().setDirectory(directory);
+        // Each entity is parsed right before it is stored, so the measurement covers everything the store keeps
+        long before = usedHeapAfterGc();
+        MetadataRepository measured = newStore();
+        for (int i = 0; i < records; i++) {
+            measured.save(BenchmarkFixtures.entity("footprint-" + i, 2));
+        }
+        long stored = usedHeapAfterGc() - before;
+        Reference.reachabilityFence(measured);
+        close(measured);
+        before = usedHeapAfterGc();
+        entities = new MetadataEntity[records];
+        for (int i = 0; i < records; i++) {
+            entities[i] = BenchmarkFixtures.entity("footprint-" + i, 2);
+        }
+        long objects = usedHeapAfterGc() - before;
+        System.out.printf("%n%s store of %,d entities: %,d bytes/entity on the heap, %,d bytes/entity as objects%n",
+            storage, records, stored / records, objects / records);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public long fill() {
+        MetadataRepository store = newStore();
+        try {
+            for (MetadataEntity entity : entities) {
+                store.save(entity);
+            }
+            return store.count();
+        } finally {
+            close(store);
+        }
+    }
+
+    private MetadataRepository newStore() {
+        return switch (StorageMode.valueOf(storage.toUpperCase())) {
+            case MEMORY -> new MetadataRepositoryImpl();
+            case MAPPED -> new MappedMetadataRepository(metadataProperties);
+            case WAL -> throw new IllegalArgumentException(storage);
+        };
+    }
+
+    private static void close(MetadataRepository store) {
+        if (store instanceof MappedMetadataRepository mapped) {
+            mapped.close();
+        }
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,38 @@
+package org.example;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Generating IDs for metadata created without one: random version 4 UUIDs from the shared {@code SecureRandom},
+ * as before {@link TimeOrderedIdGenerator}, against time-ordered version 7 UUIDs, on one thread and on all cores.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdGeneratorBenchmark {
+    @Param({"random", "timeOrdered"})
+    public String strategy;
+
+    private IdGenerator idGenerator;
+
+    @Setup
+    public void setUp() {
+        idGenerator = strategy.equals("random") ? new RandomIdGenerator() : new TimeOrderedIdGenerator();
+    }
+
+    @Benchmark
+    public String singleThread() {
+        return idGenerator.nextId();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public String allThreads() {
+        return idGenerator.nextId();
+    }
+}
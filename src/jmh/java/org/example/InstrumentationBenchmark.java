@@ -0,0 +1,73 @@
+package org.example;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+
+/**
+ * Cost of {@link LayerMetricsAspect}: the same service calls with and without the service, mapper and repository
+ * beans proxied and timed into a Prometheus registry. A lookup crosses three timed boundaries, a replacement five.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InstrumentationBenchmark {
+    private static final int RECORDS = 10_000;
+
+    @Param({"false", "true"})
+    public boolean instrumented;
+
+    private MetadataService metadataService;
+    private MetadataRequest request;
+    private String[] ids;
+
+    @Setup
+    public void setUp() {
+        PrometheusMeterRegistry meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        LayerMetricsAspect aspect = new LayerMetricsAspect(meterRegistry);
+        MetadataRepository repository = proxy(new MetadataRepositoryImpl(), aspect);
+        MetadataRequestMapper requestMapper = proxy(new MetadataRequestMapperImpl(), aspect);
+        MetadataResponseMapper responseMapper = proxy(new MetadataResponseMapperImpl(), aspect);
+        metadataService = proxy(new MetadataServiceImpl(repository, requestMapper, responseMapper,
+            new MetadataXmlBulkReader(new Jackson2ObjectMapperBuilder()),
+            new MetadataProperties(), new MetadataJsonCache(new ObjectMapperConfig().objectMapper(),
+                new MetadataProperties(), meterRegistry), new TimeOrderedIdGenerator()), aspect);
+        ids = new String[RECORDS];
+        for (int i = 0; i < RECORDS; i++) {
+            ids[i] = "record-" + i;
+            metadataService.create(BenchmarkFixtures.request(ids[i], 2));
+        }
+        request = BenchmarkFixtures.request("replaced", 2);
+        metadataService.create(request);
+    }
+
+    @Benchmark
+    public Object findById() {
+        return metadataService.findById(ids[ThreadLocalRandom.current().nextInt(RECORDS)]);
+    }
+
+    @Benchmark
+    public Object replace() {
+        metadataService.deleteById(request.getId());
+        return metadataService.create(request);
+    }
+
+    private <T> T proxy(T target, LayerMetricsAspect aspect) {
+        if (!instrumented) {
+            return target;
+        }
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(aspect);
+        return proxyFactory.getProxy();
+    }
+}
@@ -0,0 +1,36 @@
+package org.example;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Serializing a {@link MetadataResponse} to JSON with the application's {@code ObjectMapper}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonWriteBenchmark {
+    @Param({"2", "20", "200"})
+    public int entries;
+
+    private ObjectWriter writer;
+    private MetadataResponse response;
+
+    @Setup
+    public void setUp() {
+        writer = new ObjectMapperConfig().objectMapper().writerFor(MetadataResponse.class);
+        response = new MetadataResponseMapperImpl().toResponse(BenchmarkFixtures.entity("benchmark", entries));
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        return writer.writeValueAsBytes(response);
+    }
+}
@@ -0,0 +1,42 @@
+package org.example;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * MapStruct mapping between the request DTO, the entity and the response DTO.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+    @Param({"2", "20", "200"})
+    public int entries;
+
+    private MetadataRequestMapper requestMapper;
+    private MetadataResponseMapper responseMapper;
+    private MetadataRequest request;
+    private MetadataEntity entity;
+
+    @Setup
+    public void setUp() {
+        requestMapper = new MetadataRequestMapperImpl();
+        responseMapper = new MetadataResponseMapperImpl();
+        request = BenchmarkFixtures.request("benchmark", entries);
+        entity = requestMapper.toEntity(request);
+    }
+
+    @Benchmark
+    public Object toEntity() {
+        return requestMapper.toEntity(request);
+    }
+
+    @Benchmark
+    public Object toResponse() {
+        return responseMapper.toResponse(entity);
+    }
+}
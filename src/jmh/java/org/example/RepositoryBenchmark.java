@@ -0,0 +1,103 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Repository operations against a store prefilled with {@code records} entities. Writes replace existing
+ * entities, so the store size stays constant during a run. Pass {@code -p storage=wal} to include the
+ * write-ahead-logged store.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class RepositoryBenchmark {
+    private static final int WRITE_POOL_SIZE = 1024;
+
+    @Param({"1000", "100000", "1000000"})
+    public int records;
+
+    @Param({"memory", "mapped"})
+    public String storage;
+
+    private MetadataRepository repository;
+    private Path directory;
+    private String[] ids;
+    private MetadataEntity[] writes;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("metadata-benchmark");
+        MetadataProperties metadataProperties = new MetadataProperties();
+        metadataProperties.getStorage().getWal().setDirectory(directory);
+        metadataProperties.getStorage().getWal().setSnapshotInterval(Duration.ZERO);
+        metadataProperties.getStorage().getMapped().setDirectory(directory);
+        repository = switch (StorageMode.valueOf(storage.toUpperCase())) {
+            case MEMORY -> new MetadataRepositoryImpl();
+            case WAL -> new DurableMetadataRepository(metadataProperties, new SimpleMeterRegistry());
+            case MAPPED -> new MappedMetadataRepository(metadataProperties);
+        };
+        ids = new String[records];
+        for (int i = 0; i < records; i++) {
+            ids[i] = "benchmark-" + i;
+            repository.save(BenchmarkFixtures.entity(ids[i], 2));
+        }
+        writes = new MetadataEntity[WRITE_POOL_SIZE];
+        for (int i = 0; i < WRITE_POOL_SIZE; i++) {
+            writes[i] = BenchmarkFixtures.entity(ids[i * (records / WRITE_POOL_SIZE + 1) % records], 2);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        if (repository instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Object save() {
+        return repository.save(writes[ThreadLocalRandom.current().nextInt(WRITE_POOL_SIZE)]);
+    }
+
+    @Benchmark
+    public Object findById() {
+        return repository.findById(ids[ThreadLocalRandom.current().nextInt(records)]);
+    }
+
+    /**
+     * Deletes an entity and saves it again, which keeps the store size constant.
+     */
+    @Benchmark
+    public Object deleteByIdAndSave() {
+        MetadataEntity entity = writes[ThreadLocalRandom.current().nextInt(WRITE_POOL_SIZE)];
+        repository.deleteById(entity.getId());
+        return repository.save(entity);
+    }
+
+    @Benchmark
+    public Object findAll() {
+        return repository.findAll();
+    }
+
+    @Benchmark
+    public Object findPage() {
+        return repository.findAll(null, 100);
+    }
+}
@@ -0,0 +1,63 @@
+package org.example;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Producing the JSON body of a lookup by ID: mapping and serializing the stored entity on every call, as before
+ * {@link MetadataJsonCache}, against serving the cached encoding. All records fit in the cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseCacheBenchmark {
+    private static final int RECORDS = 10_000;
+
+    @Param({"2", "20"})
+    public int entries;
+
+    private MetadataService metadataService;
+    private ObjectWriter writer;
+    private String[] ids;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapperConfig().objectMapper();
+        metadataService = new MetadataServiceImpl(new MetadataRepositoryImpl(), new MetadataRequestMapperImpl(),
+            new MetadataResponseMapperImpl(), new MetadataXmlBulkReader(new Jackson2ObjectMapperBuilder()),
+            new MetadataProperties(), new MetadataJsonCache(objectMapper, new MetadataProperties(), new SimpleMeterRegistry()),
+            new TimeOrderedIdGenerator());
+        writer = objectMapper.writerFor(MetadataResponse.class);
+        ids = new String[RECORDS];
+        for (int i = 0; i < RECORDS; i++) {
+            ids[i] = "record-" + i;
+            metadataService.create(BenchmarkFixtures.request(ids[i], entries));
+        }
+    }
+
+    @Benchmark
+    public byte[] mapAndSerialize() throws IOException {
+        return writer.writeValueAsBytes(metadataService.findById(randomId()).orElseThrow());
+    }
+
+    @Benchmark
+    public byte[] cached() {
+        return metadataService.findJsonById(randomId()).orElseThrow().json();
+    }
+
+    private String randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(RECORDS)];
+    }
+}
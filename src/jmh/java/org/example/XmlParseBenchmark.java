@@ -0,0 +1,52 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Deserializing a metadata XML payload into a {@link MetadataRequest}, as the create endpoint does: through the
+ * generic Jackson XML binding, and through the StAX fast path of {@link MetadataRequestXmlConverter}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class XmlParseBenchmark {
+    @Param({"2", "20", "200", "2000"})
+    public int entries;
+
+    private ObjectReader reader;
+    private MetadataRequestXmlConverter converter;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() {
+        reader = BenchmarkFixtures.xmlRequestReader();
+        payload = BenchmarkFixtures.metadataXml("benchmark", entries).getBytes(StandardCharsets.UTF_8);
+        converter = new MetadataRequestXmlConverter(new Jackson2ObjectMapperBuilder(), new MetadataProperties(),
+            new SimpleMeterRegistry());
+        if (converter.read(payload) == null) {
+            throw new IllegalStateException("The fast path does not read the benchmark payload");
+        }
+    }
+
+    @Benchmark
+    public Object parse() throws IOException {
+        return reader.readValue(payload);
+    }
+
+    @Benchmark
+    public Object fastPath() {
+        return converter.read(payload);
+    }
+}
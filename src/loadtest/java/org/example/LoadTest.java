@@ -0,0 +1,284 @@
+package org.example;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.boot.convert.DurationStyle;
+
+/**
+ * HTTP load test comparing request handling on the Tomcat platform thread pool, on virtual threads and on the
+ * reactive endpoints served by Reactor Netty ({@code platform}, {@code virtual} and {@code reactive} modes).
+ * For each mode the application is started in its own JVM, then every connection keeps posting metadata XML
+ * over a keep-alive socket, trickling each body out over {@code upload} like a slow client. Prints throughput and
+ * latency percentiles of the requests completed after the warmup.
+ * <p>
+ * Arguments are {@code name=value} pairs: {@code connections} (10000), {@code duration} (30s), {@code warmup}
+ * (10s), {@code upload} (1s), {@code chunks} (10), {@code modes} (platform,virtual,reactive) and {@code serverArgs}
+ * (extra JVM options for the server, comma separated). Both sides need an open file limit above the number of
+ * connections.
+ */
+public final class LoadTest {
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+    private final int connections;
+    private final Duration duration;
+    private final Duration warmup;
+    private final Duration upload;
+    private final int chunks;
+
+    private LoadTest(Map<String, String> args) {
+        this.connections = Integer.parseInt(args.getOrDefault("connections", "10000"));
+        this.duration = DurationStyle.detectAndParse(args.getOrDefault("duration", "30s"));
+        this.warmup = DurationStyle.detectAndParse(args.getOrDefault("warmup", "10s"));
+        this.upload = DurationStyle.detectAndParse(args.getOrDefault("upload", "1s"));
+        this.chunks = Integer.parseInt(args.getOrDefault("chunks", "10"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        LoadTest loadTest = new LoadTest(options);
+        List<String> serverArgs = options.containsKey("serverArgs")
+            ? List.of(options.get("serverArgs").split(","))
+            : List.of();
+        System.out.printf("%d connections, %s upload in %d chunks, %s warmup, %s measured%n",
+            loadTest.connections, loadTest.upload, loadTest.chunks, loadTest.warmup, loadTest.duration);
+        System.out.printf("%-10s %12s %10s %10s %10s %10s %8s%n", "mode", "requests/s", "p50 ms", "p99 ms", "max ms",
+            "completed", "errors");
+        for (String mode : options.getOrDefault("modes", "platform,virtual,reactive").split(",")) {
+            Result result = loadTest.run(mode, serverArgs);
+            System.out.printf("%-10s %12.1f %10.1f %10.1f %10.1f %10d %8d%n", mode, result.throughput(),
+                result.percentile(0.50), result.percentile(0.99), result.percentile(1.0), result.latencies().length,
+                result.errors());
+        }
+    }
+
+    /**
+     * Starts a server in the given mode, runs the load against it and stops it.
+     */
+    private Result run(String mode, List<String> serverArgs) throws Exception {
+        int servletPort = freePort();
+        int reactivePort = freePort();
+        boolean reactive = mode.equals("reactive");
+        int port = reactive ? reactivePort : servletPort;
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.addAll(serverArgs);
+        command.addAll(List.of("-cp", System.getProperty("java.class.path"), App.class.getName(),
+            "--server.port=" + servletPort,
+            "--spring.threads.virtual.enabled=" + mode.equals("virtual"),
+            "--metadata.reactive.enabled=" + reactive,
+            "--metadata.reactive.port=" + reactivePort,
+            "--server.tomcat.accept-count=" + connections,
+            "--logging.level.org.example=WARN"));
+        Path log = Files.createTempFile("loadtest-server-", ".log");
+        Process server = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+        try {
+            awaitStartup(server, port, log);
+            return load(port);
+        } finally {
+            server.destroy();
+            server.waitFor(30, TimeUnit.SECONDS);
+            Files.deleteIfExists(log);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private Result load(int port) throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        AtomicLong errors = new AtomicLong();
+        List<long[]> latencies = Collections.synchronizedList(new ArrayList<>());
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < connections; i++) {
+                int connection = i;
+                // Spread the connects over the first second so the accept queue is not flooded
+                long connectAt = start + TimeUnit.SECONDS.toNanos(1) * i / connections;
+                clients.submit(() -> latencies.add(client(port, connection, connectAt, measureFrom, end, errors)));
+            }
+        }
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Result(all, all.length / (double) duration.toSeconds(), errors.get());
+    }
+
+    /**
+     * Posts metadata over one keep-alive connection until the end, reconnecting after errors.
+     *
+     * @return the latencies in nanoseconds of the requests completed after the warmup
+     */
+    private long[] client(int port, int connection, long connectAt, long measureFrom, long end, AtomicLong errors)
+        throws InterruptedException {
+        Thread.sleep(Duration.ofNanos(Math.max(0, connectAt - System.nanoTime())));
+        long[] latencies = new long[64];
+        int count = 0;
+        int request = 0;
+        while (System.nanoTime() < end) {
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress("localhost", port), 30_000);
+                OutputStream out = socket.getOutputStream();
+                InputStream in = new BufferedInputStream(socket.getInputStream());
+                while (System.nanoTime() < end) {
+                    long started = System.nanoTime();
+                    int status = post(out, in, "load-" + connection + "-" + request++);
+                    long finished = System.nanoTime();
+                    if (status != 201) {
+                        errors.incrementAndGet();
+                    } else if (finished >= measureFrom && finished <= end) {
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = finished - started;
+                    }
+                }
+            } catch (IOException e) {
+                errors.incrementAndGet();
+            }
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+
+    /**
+     * Sends one create request, trickling the body out in chunks, and reads the response.
+     *
+     * @return the response status
+     */
+    private int post(OutputStream out, InputStream in, String id) throws IOException, InterruptedException {
+        byte[] body = metadataXml(id);
+        out.write(("POST /api/metadata HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/xml\r\n"
+            + "Accept: application/json\r\nContent-Length: " + body.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        Duration pause = upload.dividedBy(chunks);
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            Thread.sleep(pause);
+            int from = body.length * chunk / chunks;
+            out.write(body, from, body.length * (chunk + 1) / chunks - from);
+            out.flush();
+        }
+        return readResponse(in);
+    }
+
+    /**
+     * Reads a response, consuming a body framed by Content-Length or chunked transfer encoding.
+     *
+     * @return the response status
+     */
+    private static int readResponse(InputStream in) throws IOException {
+        String statusLine = readLine(in);
+        int status = Integer.parseInt(statusLine.split(" ")[1]);
+        long contentLength = 0;
+        boolean chunked = false;
+        for (String header = readLine(in); !header.isEmpty(); header = readLine(in)) {
+            String name = header.substring(0, header.indexOf(':')).trim();
+            String value = header.substring(header.indexOf(':') + 1).trim();
+            if (name.equalsIgnoreCase("Content-Length")) {
+                contentLength = Long.parseLong(value);
+            } else if (name.equalsIgnoreCase("Transfer-Encoding") && value.equalsIgnoreCase("chunked")) {
+                chunked = true;
+            }
+        }
+        if (!chunked) {
+            in.skipNBytes(contentLength);
+            return status;
+        }
+        for (long size = Long.parseLong(readLine(in).trim(), 16); size > 0; size = Long.parseLong(readLine(in).trim(), 16)) {
+            in.skipNBytes(size);
+            readLine(in);
+        }
+        readLine(in);
+        return status;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        for (int c = in.read(); c != '\n'; c = in.read()) {
+            if (c == -1) {
+                throw new EOFException("Connection closed by server");
+            }
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.toString();
+    }
+
+    private static byte[] metadataXml(String id) {
+        return """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <metadata id="%s">
+                <name>Load Test</name>
+                <description>Uploaded by a slow client</description>
+                <info>
+                    <state>active</state>
+                    <created-date>01/15/2025</created-date>
+                    <created-time>14:30:00</created-time>
+                    <created-datetime>01/15/2025 14:30:00</created-datetime>
+                </info>
+                <entries>
+                    <entry>
+                        <name>Entry 1</name>
+                        <count>10</count>
+                        <type>standard</type>
+                    </entry>
+                    <entry>
+                        <name>Entry 2</name>
+                        <count>5</count>
+                        <type>premium</type>
+                    </entry>
+                </entries>
+            </metadata>
+            """.formatted(id).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Waits until the server accepts connections.
+     */
+    private static void awaitStartup(Process server, int port, Path log) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!server.isAlive()) {
+                throw new IllegalStateException("Server exited during startup:\n" + Files.readString(log));
+            }
+            try (Socket socket = new Socket("localhost", port)) {
+                return;
+            } catch (IOException e) {
+                Thread.sleep(200);
+            }
+        }
+        throw new IllegalStateException("Server did not start within " + STARTUP_TIMEOUT);
+    }
+
+    /**
+     * Outcome of one run.
+     *
+     * @param latencies the sorted request latencies in nanoseconds
+     * @param throughput the completed requests per second
+     * @param errors the failed requests and connections
+     */
+    private record Result(long[] latencies, double throughput, long errors) {
+        double percentile(double percentile) {
+            if (latencies.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.ceil(percentile * latencies.length) - 1;
+            return latencies[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+}
@@ -1,12 +1,72 @@
 package org.example;
 
+import java.io.*;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+import java.util.function.*;
+import java.util.stream.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+
+import javax.xml.stream.*;
+import javax.xml.stream.events.XMLEvent;
 
 import com.fasterxml.jackson.annotation.*;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.fasterxml.jackson.dataformat.xml.annotation.*;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateDeserializer;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalTimeDeserializer;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 
 import io.swagger.v3.oas.annotations.*;
 import io.swagger.v3.oas.annotations.media.*;
@@ -17,20 +77,93 @@ import lombok.*;
 import lombok.Builder;
 import lombok.extern.slf4j.*;
 
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+
 import org.mapstruct.*;
 import org.mapstruct.Mapping;
 
+import org.codehaus.stax2.XMLStreamReader2;
+import org.codehaus.stax2.ri.Stax2ReaderAdapter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.*;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.server.Compression;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.context.annotation.*;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.format.FormatterRegistry;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.*;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.xml.XmlEventDecoder;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.http.converter.xml.MappingJackson2XmlHttpMessageConverter;
+import org.springframework.http.server.reactive.HttpHandler;
 import org.springframework.stereotype.*;
+import org.springframework.util.FastByteArrayOutputStream;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.util.xml.StaxUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebInputException;
+import org.springframework.web.util.WebUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 /* -- Application layer -- */
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class App {
     /**
      * Main entry point for the Spring Boot application.
@@ -48,7 +181,24 @@ public class App {
 @RequestMapping("/api")
 @RequiredArgsConstructor
 class AppController {
+    /**
+     * Formats metadata reads are written in, in the order their message converters are tried, with the suffix
+     * that qualifies their entity tags. JSON keeps the plain tag.
+     */
+    private static final Map<MediaType, String> READ_FORMATS = new LinkedHashMap<>();
+
+    static {
+        READ_FORMATS.put(MediaType.APPLICATION_JSON, "");
+        READ_FORMATS.put(MediaType.APPLICATION_CBOR, "-cbor");
+        READ_FORMATS.put(MediaType.parseMediaType(ObjectMapperConfig.APPLICATION_SMILE_VALUE), "-smile");
+        READ_FORMATS.put(MediaType.APPLICATION_XML, "-xml");
+    }
+
     private final MetadataService metadataService;
+    private final MetadataProperties metadataProperties;
+    private final ObjectMapper objectMapper;
+    private final MetadataIdempotencyStore metadataIdempotencyStore;
+    private final ContentNegotiationManager contentNegotiationManager;
 
     @PostMapping(
         path = "/metadata",
@@ -57,7 +207,8 @@ class AppController {
     )
     @Operation(
         summary = "Create metadata",
-        description = "Creates a new metadata entry from XML input",
+        description = "Creates a new metadata entry from XML input. Retries that send the same Idempotency-Key "
+            + "header as a successful request get its response again instead of creating another entry.",
         requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
             description = "Metadata request in XML format",
             required = true,
@@ -108,55 +259,331 @@ class AppController {
             responseCode = "400",
             description = "Bad request - metadata with the same ID already exists",
             content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)
+        ),
+        @ApiResponse(
+            responseCode = "422",
+            description = "Unprocessable entity - the Idempotency-Key was already used for a different request",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)
         )
     })
     /**
-     * Creates a new metadata entry from XML input.
+     * Creates a new metadata entry from XML input. With an idempotency key, the first successful response is
+     * remembered and returned to retries with the same key, which neither map nor store anything.
      *
      * @param metadata the metadata request in XML format
-     * @return ResponseEntity with status 201 (CREATED), Location header, and the created metadata response
+     * @param idempotencyKey identifies retries of the same request, or null
+     * @param event the Flight Recorder event of the request, or null if it is not recorded
+     * @return ResponseEntity with status 201 (CREATED), Location header, and the JSON-encoded metadata response
+     * @throws IdempotencyKeyReusedException if the key was already used for a different request
+     */
+    public ResponseEntity<byte[]> createMetadata(
+        @RequestBody MetadataRequest metadata,
+        @Parameter(description = "Key identifying retries of the same request", example = "5f1c9a7e-3b2d-4c8e-9f60-1a2b3c4d5e6f")
+        @RequestHeader(name = MetadataIdempotencyStore.HEADER, required = false) String idempotencyKey,
+        @Parameter(hidden = true) @RequestAttribute(name = MetadataEventInterceptor.EVENT, required = false)
+        MetadataCreateEvent event) {
+        if (event != null) {
+            event.id = metadata.getId();
+            event.entryCount = metadata.getEntries() != null ? metadata.getEntries().size() : 0;
+        }
+        IdempotentResponse response;
+        if (idempotencyKey == null) {
+            response = create(metadata, null);
+        } else {
+            // The fingerprint is taken before the service fills in a generated ID and the default state
+            byte[] fingerprint = fingerprint(metadata);
+            response = metadataIdempotencyStore.execute(idempotencyKey, fingerprint, () -> create(metadata, fingerprint));
+        }
+        return ResponseEntity.status(response.status())
+            .location(response.location())
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(response.body());
+    }
+
+    /**
+     * Computes the SHA-256 digest of a metadata request's JSON encoding, which identifies the request's content
+     * regardless of how its XML was formatted.
+     *
+     * @param metadata the metadata request
+     * @return the digest
+     * @throws UncheckedIOException if the request cannot be serialized
+     */
+    private byte[] fingerprint(MetadataRequest metadata) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(metadata));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Creates a metadata entry and encodes the response.
+     *
+     * @param metadata the metadata request
+     * @param fingerprint the fingerprint of the request, or null if the response is not stored
+     * @return the 201 (CREATED) response
+     * @throws UncheckedIOException if the response cannot be serialized
      */
-    public ResponseEntity<MetadataResponse> createMetadata(@RequestBody MetadataRequest metadata) {
+    private IdempotentResponse create(MetadataRequest metadata, byte[] fingerprint) {
         MetadataResponse response = metadataService.create(metadata);
         var location = ServletUriComponentsBuilder
             .fromCurrentRequest()
             .path("/{id}")
             .buildAndExpand(response.getId())
             .toUri();
-        return ResponseEntity.status(HttpStatus.CREATED)
-            .location(location)
-            .body(response);
+        try {
+            return new IdempotentResponse(fingerprint, HttpStatus.CREATED.value(), location,
+                objectMapper.writeValueAsBytes(response));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @PostMapping(
+        path = "/metadata/bulk",
+        consumes = MediaType.APPLICATION_XML_VALUE,
+        produces = MediaType.APPLICATION_JSON_VALUE
+    )
+    @Operation(
+        summary = "Create metadata in bulk",
+        description = "Creates metadata entries from a <metadata-list> document containing any number of <metadata> elements. "
+            + "The document is read one element at a time and stored in batches.",
+        requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
+            description = "Metadata list in XML format",
+            required = true,
+            content = @Content(
+                mediaType = MediaType.APPLICATION_XML_VALUE,
+                examples = @ExampleObject(
+                    name = "Example Metadata List",
+                    value = """
+                    <?xml version="1.0" encoding="UTF-8"?>
+                    <metadata-list>
+                        <metadata id="bulk-1">
+                            <name>First</name>
+                            <info>
+                                <state>active</state>
+                            </info>
+                        </metadata>
+                        <metadata id="bulk-2">
+                            <name>Second</name>
+                        </metadata>
+                    </metadata-list>
+                    """
+                )
+            )
+        )
+    )
+    @ApiResponses({
+        @ApiResponse(
+            responseCode = "200",
+            description = "Document processed, see the summary for per-item results",
+            content = @Content(
+                mediaType = MediaType.APPLICATION_JSON_VALUE,
+                schema = @Schema(implementation = BulkCreateResponse.class)
+            )
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Bad request - the document is not a well-formed metadata list",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)
+        )
+    })
+    /**
+     * Creates metadata entries from a {@code <metadata-list>} XML document.
+     *
+     * @param body the raw XML request body
+     * @param event the Flight Recorder event of the request, or null if it is not recorded
+     * @return ResponseEntity with status 200 (OK) and a summary of created, duplicate and invalid entries
+     * @throws InvalidBulkDocumentException if the document is not a well-formed metadata list
+     */
+    public ResponseEntity<BulkCreateResponse> createMetadataBulk(
+        InputStream body,
+        @Parameter(hidden = true) @RequestAttribute(name = MetadataEventInterceptor.EVENT, required = false)
+        MetadataBulkEvent event) {
+        BulkCreateResponse result = metadataService.createAll(body);
+        if (event != null) {
+            event.created = result.getCreated();
+            event.duplicates = result.getDuplicates();
+            event.invalid = result.getInvalid();
+        }
+        return ResponseEntity.ok(result);
     }
 
     @GetMapping("/metadata")
     @Operation(
         summary = "Get all metadata",
-        description = "Retrieves a list of all metadata entries"
+        description = "Retrieves a page of metadata entries in insertion order, optionally filtered by state, entry type "
+            + "and creation time. Pages filtered by creation time are ordered by creation time. "
+            + "When more entries exist, the next page is advertised through the Link and X-Next-Cursor headers. "
+            + "The ETag changes whenever metadata is created or deleted. The fields parameter limits each entry to "
+            + "the listed fields. Pages are also available as CBOR and Smile."
     )
     @ApiResponses({
         @ApiResponse(
             responseCode = "200",
             description = "Successfully retrieved list of metadata",
+            content = {
+                @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                    array = @ArraySchema(schema = @Schema(implementation = MetadataResponse.class))
+                ),
+                @Content(
+                    mediaType = MediaType.APPLICATION_CBOR_VALUE,
+                    array = @ArraySchema(schema = @Schema(implementation = MetadataResponse.class))
+                ),
+                @Content(
+                    mediaType = ObjectMapperConfig.APPLICATION_SMILE_VALUE,
+                    array = @ArraySchema(schema = @Schema(implementation = MetadataResponse.class))
+                )
+            }
+        ),
+        @ApiResponse(
+            responseCode = "304",
+            description = "Not modified - no metadata was created or deleted since the ETag in If-None-Match was issued"
+        ),
+        @ApiResponse(
+            responseCode = "400",
+            description = "Bad request - the cursor, a filter value or a field is invalid",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)
+        )
+    })
+    /**
+     * Retrieves a page of metadata entries. The limit is capped at the configured maximum page size.
+     * Filters are combined; the cursor must come from a page with the same filters. Answers 304 without reading
+     * the page if the If-None-Match header holds the current listing ETag. The ETag is qualified by the negotiated
+     * format, and the response varies by Accept.
+     *
+     * @param limit the maximum number of entries to return, defaults to the configured page size
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param state only return metadata in this state, or null for any state
+     * @param entryType only return metadata with at least one entry of this type, or null for any
+     * @param from only return metadata created at or after this time, or null; orders the page by creation time
+     * @param to only return metadata created before this time, or null; orders the page by creation time
+     * @param fields the comma-separated fields to include in each response, or null for all of them
+     * @param webRequest the current request, used to negotiate the format and evaluate If-None-Match
+     * @param event the Flight Recorder event of the request, or null if it is not recorded
+     * @return ResponseEntity with status 200 (OK), a page of metadata responses and next-page headers if more exist,
+     *     or null if a 304 (Not Modified) response was prepared
+     * @throws InvalidCursorException if the cursor is invalid
+     * @throws InvalidFieldsException if a requested field is unknown
+     */
+    public ResponseEntity<MappingJacksonValue> getMetadata(
+        @Parameter(description = "Maximum number of entries to return", example = "100")
+        @RequestParam(required = false) Integer limit,
+        @Parameter(description = "Cursor returned with the previous page")
+        @RequestParam(required = false) String cursor,
+        @Parameter(description = "Only return metadata in this state", example = "active")
+        @RequestParam(required = false) MetadataState state,
+        @Parameter(description = "Only return metadata with at least one entry of this type", example = "premium")
+        @RequestParam(required = false) EntryType entryType,
+        @Parameter(description = "Only return metadata created at or after this time (ISO-8601)", example = "2025-01-15T00:00:00")
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+        @Parameter(description = "Only return metadata created before this time (ISO-8601)", example = "2025-01-16T00:00:00")
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+        @Parameter(description = "Only include these fields in each entry (comma separated)", example = "id,name,info.state")
+        @RequestParam(required = false) String fields,
+        ServletWebRequest webRequest,
+        @Parameter(hidden = true) @RequestAttribute(name = MetadataEventInterceptor.EVENT, required = false)
+        MetadataFindAllEvent event) {
+        MetadataProperties.Pagination pagination = metadataProperties.getPagination();
+        int pageSize = Math.max(1, Math.min(
+            limit != null ? limit : pagination.getDefaultLimit(),
+            pagination.getMaxLimit()
+        ));
+        MetadataFilter filter = new MetadataFilter(state, entryType, from, to);
+        if (event != null) {
+            event.filter = filter.toString();
+            event.limit = pageSize;
+        }
+        MetadataFields projection = MetadataFields.parse(fields);
+        webRequest.getResponse().addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        String etag = formatEtag(metadataService.listingEtag(), webRequest);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        Page<MetadataResponse> page = metadataService.findAll(filter, cursor, pageSize, projection);
+        if (event != null) {
+            event.entryCount = page.content().size();
+        }
+        MappingJacksonValue body = filtered(page.content(), projection);
+        if (page.nextCursor() == null) {
+            return ResponseEntity.ok().eTag(etag).body(body);
+        }
+        var next = ServletUriComponentsBuilder
+            .fromCurrentRequest()
+            .replaceQueryParam("limit", pageSize)
+            .replaceQueryParam("cursor", page.nextCursor())
+            .build()
+            .toUri();
+        return ResponseEntity.ok()
+            .eTag(etag)
+            .header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+            .header("X-Next-Cursor", page.nextCursor())
+            .body(body);
+    }
+
+    @GetMapping(path = "/metadata", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(
+        summary = "Stream all metadata",
+        description = "Streams every metadata entry as newline-delimited JSON, one entry per line. "
+            + "Entries are mapped and written one at a time, so memory use does not grow with the number of entries."
+    )
+    @ApiResponses({
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully streamed all metadata",
             content = @Content(
-                mediaType = MediaType.APPLICATION_JSON_VALUE,
-                array = @ArraySchema(schema = @Schema(implementation = MetadataResponse.class))
+                mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                schema = @Schema(implementation = MetadataResponse.class)
             )
         )
     })
     /**
-     * Retrieves all metadata entries.
+     * Streams all metadata entries as newline-delimited JSON. Selected with {@code Accept: application/x-ndjson}.
      *
-     * @return ResponseEntity with status 200 (OK) and a list of all metadata responses
+     * @return ResponseEntity with status 200 (OK) and a body that writes each metadata response as it is mapped
      */
-    public ResponseEntity<List<MetadataResponse>> getMetadata() {
-        List<MetadataResponse> response = metadataService.findAll();
-        return ResponseEntity.ok(response);
+    public ResponseEntity<StreamingResponseBody> streamMetadata() {
+        ObjectWriter writer = objectMapper.writerFor(MetadataResponse.class)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = outputStream -> {
+            MetadataFindAllEvent event = new MetadataFindAllEvent();
+            event.streamed = true;
+            event.begin();
+            try (Stream<MetadataResponse> responses = metadataService.streamAll();
+                 JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                Iterator<MetadataResponse> iterator = responses.iterator();
+                boolean first = true;
+                while (iterator.hasNext()) {
+                    writer.writeValue(generator, iterator.next());
+                    generator.writeRaw('\n');
+                    event.entryCount++;
+                    if (first) {
+                        // Push the first line out right away instead of waiting for the buffer to fill
+                        generator.flush();
+                        first = false;
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                event.fail(e);
+                throw e;
+            } finally {
+                event.commit();
+            }
+        };
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(body);
     }
 
-    @GetMapping("/metadata/{id}")
+    @GetMapping(path = "/metadata/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
     @Operation(
         summary = "Get metadata by ID",
-        description = "Retrieves a specific metadata entry by its ID"
+        description = "Retrieves a specific metadata entry by its ID. Encoded responses are cached. "
+            + "The ETag is a hash of the stored content. The fields parameter limits the response to the listed fields."
     )
     @ApiResponses({
         @ApiResponse(
@@ -167,6 +594,10 @@ class AppController {
                 schema = @Schema(implementation = MetadataResponse.class)
             )
         ),
+        @ApiResponse(
+            responseCode = "304",
+            description = "Not modified - the metadata still matches the ETag in If-None-Match"
+        ),
         @ApiResponse(
             responseCode = "404",
             description = "Metadata not found",
@@ -174,293 +605,5637 @@ class AppController {
         )
     })
     /**
-     * Retrieves a specific metadata entry by its ID.
+     * Retrieves a specific metadata entry by its ID for clients that accept JSON. The body is the cached JSON
+     * encoding of the metadata response. The ETag stored with the entry is checked first, so a matching If-None-Match header is answered with 304
+     * before anything is mapped or serialized. The ETag of a 200 response comes from the same lookup as its body,
+     * so it still matches the body if the entry changed after the check. The response varies by Accept, since other
+     * formats are served by {@link #getMetadataConverted}.
+     *
+     * Projections requested with the fields parameter are mapped and encoded per request instead.
      *
      * @param id the metadata ID
-     * @return ResponseEntity with status 200 (OK) and the metadata response
+     * @param fields the comma-separated fields to include, or null for all of them
+     * @param webRequest the current request, used to negotiate the format and evaluate If-None-Match
+     * @param event the Flight Recorder event of the request, or null if it is not recorded
+     * @return ResponseEntity with status 200 (OK) and the JSON-encoded metadata response, or null if a
+     *     304 (Not Modified) response was prepared
      * @throws MetadataNotFoundException if the metadata with the given ID is not found
+     * @throws InvalidFieldsException if a requested field is unknown
      */
-    public ResponseEntity<MetadataResponse> getMetadata(
+    public ResponseEntity<byte[]> getMetadata(
         @Parameter(description = "Metadata ID", required = true, example = "012345678-9012-3456-7890-123456789012")
-        @PathVariable String id) {
-        MetadataResponse response = metadataService.findById(id)
+        @PathVariable String id,
+        @Parameter(description = "Only include these fields (comma separated)", example = "id,name,info.state")
+        @RequestParam(required = false) String fields,
+        ServletWebRequest webRequest,
+        @Parameter(hidden = true) @RequestAttribute(name = MetadataEventInterceptor.EVENT, required = false)
+        MetadataFindEvent event) {
+        if (event != null) {
+            event.id = id;
+        }
+        MetadataFields projection = MetadataFields.parse(fields);
+        webRequest.getResponse().addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        String etag = metadataService.findEtagById(id)
             .orElseThrow(() -> new MetadataNotFoundException(id));
-        return ResponseEntity.ok(response);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        EncodedMetadata encoded = projection.isAll()
+            ? metadataService.findJsonById(id).orElseThrow(() -> new MetadataNotFoundException(id))
+            : encode(metadataService.findTaggedById(id, projection).orElseThrow(() -> new MetadataNotFoundException(id)), projection);
+        if (event != null) {
+            event.entryCount = encoded.entryCount();
+        }
+        setEtag(webRequest, encoded.etag());
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(encoded.json());
     }
 
-    @DeleteMapping("/metadata/{id}")
+    /**
+     * Encodes the requested fields of a metadata response as JSON.
+     *
+     * @param tagged the projected response and its entity tag
+     * @param fields the requested fields
+     * @return the encoded response
+     * @throws UncheckedIOException if the response cannot be serialized
+     */
+    private EncodedMetadata encode(TaggedMetadata tagged, MetadataFields fields) {
+        MetadataResponse response = tagged.response();
+        try {
+            return new EncodedMetadata(objectMapper.writer(fields.filters()).writeValueAsBytes(response),
+                response.getEntries() != null ? response.getEntries().size() : 0, tagged.etag());
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @GetMapping("/metadata/{id}")
     @Operation(
-        summary = "Delete metadata",
-        description = "Deletes a metadata entry by ID. Idempotent - returns 204 whether the resource existed or not."
+        summary = "Get metadata by ID in another format",
+        description = "Retrieves a specific metadata entry by its ID, encoded as CBOR, Smile or XML. "
+            + "The ETag is a hash of the stored content. The fields parameter limits the response to the listed fields."
     )
     @ApiResponses({
         @ApiResponse(
-            responseCode = "204",
-            description = "Metadata deleted successfully (or did not exist)"
+            responseCode = "200",
+            description = "Successfully retrieved metadata",
+            content = {
+                @Content(
+                    mediaType = MediaType.APPLICATION_XML_VALUE,
+                    schema = @Schema(implementation = MetadataResponse.class)
+                ),
+                @Content(
+                    mediaType = MediaType.APPLICATION_CBOR_VALUE,
+                    schema = @Schema(implementation = MetadataResponse.class)
+                ),
+                @Content(
+                    mediaType = ObjectMapperConfig.APPLICATION_SMILE_VALUE,
+                    schema = @Schema(implementation = MetadataResponse.class)
+                )
+            }
+        ),
+        @ApiResponse(
+            responseCode = "304",
+            description = "Not modified - the metadata still matches the ETag in If-None-Match"
+        ),
+        @ApiResponse(
+            responseCode = "404",
+            description = "Metadata not found",
+            content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)
         )
     })
     /**
-     * Deletes a metadata entry by ID. Idempotent operation - returns 204 whether the resource existed or not.
+     * Retrieves a specific metadata entry by its ID for clients that do not accept JSON, such as those asking for
+     * CBOR, Smile or XML. Requests that accept JSON are routed to the more specific {@code produces} mapping of
+     * {@link #getMetadata(String, String, ServletWebRequest, MetadataFindEvent)}. The response is mapped per request
+     * and written by the message converter of the negotiated format; the response cache only holds JSON. The ETag
+     * is qualified by that format, and the response varies by Accept.
      *
-     * @param id the metadata ID to delete
-     * @return ResponseEntity with status 204 (NO_CONTENT)
+     * @param id the metadata ID
+     * @param fields the comma-separated fields to include, or null for all of them
+     * @param webRequest the current request, used to negotiate the format and evaluate If-None-Match
+     * @param event the Flight Recorder event of the request, or null if it is not recorded
+     * @return ResponseEntity with status 200 (OK) and the metadata response, or null if a 304 (Not Modified)
+     *     response was prepared
+     * @throws MetadataNotFoundException if the metadata with the given ID is not found
+     * @throws InvalidFieldsException if a requested field is unknown
      */
-    public ResponseEntity<Void> deleteMetadata(
+    public ResponseEntity<MappingJacksonValue> getMetadataConverted(
         @Parameter(description = "Metadata ID", required = true, example = "012345678-9012-3456-7890-123456789012")
-        @PathVariable String id) {
-        metadataService.deleteById(id);
-        return ResponseEntity.noContent().build();
+        @PathVariable String id,
+        @Parameter(description = "Only include these fields (comma separated)", example = "id,name,info.state")
+        @RequestParam(required = false) String fields,
+        ServletWebRequest webRequest,
+        @Parameter(hidden = true) @RequestAttribute(name = MetadataEventInterceptor.EVENT, required = false)
+        MetadataFindEvent event) {
+        if (event != null) {
+            event.id = id;
+        }
+        MetadataFields projection = MetadataFields.parse(fields);
+        webRequest.getResponse().addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        String etag = formatEtag(metadataService.findEtagById(id)
+            .orElseThrow(() -> new MetadataNotFoundException(id)), webRequest);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        TaggedMetadata tagged = metadataService.findTaggedById(id, projection)
+            .orElseThrow(() -> new MetadataNotFoundException(id));
+        MetadataResponse response = tagged.response();
+        if (event != null) {
+            event.entryCount = response.getEntries() != null ? response.getEntries().size() : 0;
+        }
+        setEtag(webRequest, formatEtag(tagged.etag(), webRequest));
+        return ResponseEntity.ok()
+            .body(filtered(response, projection));
     }
-}
-
-/* -- Service layer -- */
 
-interface MetadataService {
     /**
-     * Finds a metadata entry by its ID.
+     * Sets the entity tag of the body about to be written. {@link ServletWebRequest#checkNotModified(String)} has
+     * already set the tag it checked, which ResponseEntity headers would not replace; the two differ if the entry
+     * changed between the check and the lookup of the body.
      *
-     * @param id the metadata ID
-     * @return Optional containing the metadata response if found, empty otherwise
+     * @param webRequest the current request
+     * @param etag the unquoted entity tag of the body
      */
-    Optional<MetadataResponse> findById(String id);
+    private static void setEtag(ServletWebRequest webRequest, String etag) {
+        webRequest.getResponse().setHeader(HttpHeaders.ETAG, "\"" + etag + "\"");
+    }
 
     /**
-     * Deletes a metadata entry by its ID. Idempotent operation.
+     * Qualifies an entity tag with the format the response will be written in, so that a response cached in one
+     * format is never validated for a client asking for another. The format is chosen the way the message
+     * converters choose it: the most specific and preferred accepted type, ties going to the earlier converter.
      *
-     * @param id the metadata ID to delete
+     * @param etag the unquoted entity tag of the content
+     * @param webRequest the current request
+     * @return the entity tag of the response, unchanged for JSON or if no format is acceptable
      */
-    void deleteById(String id);
+    private String formatEtag(String etag, ServletWebRequest webRequest) {
+        List<MediaType> acceptable = new ArrayList<>();
+        try {
+            for (MediaType accepted : contentNegotiationManager.resolveMediaTypes(webRequest)) {
+                for (MediaType format : READ_FORMATS.keySet()) {
+                    if (accepted.isCompatibleWith(format)) {
+                        acceptable.add(format.copyQualityValue(accepted));
+                    }
+                }
+            }
+        } catch (HttpMediaTypeNotAcceptableException e) {
+            // The message converters reject the request
+            return etag;
+        }
+        if (acceptable.isEmpty()) {
+            return etag;
+        }
+        MimeTypeUtils.sortBySpecificity(acceptable);
+        return etag + READ_FORMATS.get(acceptable.get(0).removeQualityValue());
+    }
 
     /**
-     * Retrieves all metadata entries.
+     * Wraps a response body with the property filters of a projection, for the message converter that writes it.
      *
-     * @return list of all metadata responses
+     * @param body the response body
+     * @param fields the requested fields
+     * @return the body with its filters
      */
-    List<MetadataResponse> findAll();
+    private static MappingJacksonValue filtered(Object body, MetadataFields fields) {
+        MappingJacksonValue value = new MappingJacksonValue(body);
+        if (!fields.isAll()) {
+            value.setFilters(fields.filters());
+        }
+        return value;
+    }
 
+    @DeleteMapping("/metadata/{id}")
+    @Operation(
+        summary = "Delete metadata",
+        description = "Deletes a metadata entry by ID. Idempotent - returns 204 whether the resource existed or not."
+    )
+    @ApiResponses({
+        @ApiResponse(
+            responseCode = "204",
+            description = "Metadata deleted successfully (or did not exist)"
+        )
+    })
     /**
-     * Creates a new metadata entry. Generates an ID if not provided.
+     * Deletes a metadata entry by ID. Idempotent operation - returns 204 whether the resource existed or not.
      *
-     * @param metadata the metadata request
-     * @return the created metadata response
-     * @throws MetadataAlreadyExistsException if a metadata entry with the same ID already exists
+     * @param id the metadata ID to delete
+     * @param event the Flight Recorder event of the request, or null if it is not recorded
+     * @return ResponseEntity with status 204 (NO_CONTENT)
      */
-    MetadataResponse create(MetadataRequest metadata);
+    public ResponseEntity<Void> deleteMetadata(
+        @Parameter(description = "Metadata ID", required = true, example = "012345678-9012-3456-7890-123456789012")
+        @PathVariable String id,
+        @Parameter(hidden = true) @RequestAttribute(name = MetadataEventInterceptor.EVENT, required = false)
+        MetadataDeleteEvent event) {
+        if (event != null) {
+            event.id = id;
+        }
+        metadataService.deleteById(id);
+        return ResponseEntity.noContent().build();
+    }
 }
 
-@Service
-@RequiredArgsConstructor
-class MetadataServiceImpl implements MetadataService {
-    private final MetadataRepository metadataRepository;
-    private final MetadataRequestMapper metadataRequestMapper;
-    private final MetadataResponseMapper metadataResponseMapper;
-
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public Optional<MetadataResponse> findById(String id) {
-        return metadataRepository.findById(id)
-            .map(metadataResponseMapper::toResponse);
-    }
+/**
+ * Times the requests of {@link AppController} as Flight Recorder events. The event starts before the handler
+ * method is invoked, so it includes binding the request body, and ends once the response is complete. The
+ * outcome is taken from the exception the request failed with, also when an exception handler turned it into an
+ * error response, or from a 304 status.
+ * <p>
+ * A handler takes part by declaring a parameter of its event type bound to the {@link #EVENT} request attribute.
+ * The attribute is only set while a recording has the event enabled, so the handler fills in the fields of a
+ * non-null event. The NDJSON stream records its own event while the body is written.
+ */
+class MetadataEventInterceptor implements HandlerInterceptor {
+    static final String EVENT = "org.example.MetadataEvent";
 
-    /**
-     * {@inheritDoc}
-     */
-    @Override
-    public void deleteById(String id) {
-        metadataRepository.deleteById(id);
-    }
+    private final Map<Method, Optional<Constructor<? extends MetadataEvent>>> events = new ConcurrentHashMap<>();
 
-    /**
-     * {@inheritDoc}
-     */
     @Override
-    public List<MetadataResponse> findAll() {
-        return metadataRepository.findAll()
-            .stream()
-            .map(metadataResponseMapper::toResponse)
-            .toList();
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+        throws ReflectiveOperationException {
+        if (handler instanceof HandlerMethod method) {
+            Optional<Constructor<? extends MetadataEvent>> type = events.computeIfAbsent(method.getMethod(),
+                key -> eventType(method));
+            if (type.isPresent()) {
+                MetadataEvent event = type.get().newInstance();
+                if (event.isEnabled()) {
+                    event.begin();
+                    request.setAttribute(EVENT, event);
+                }
+            }
+        }
+        return true;
     }
 
-    /**
-     * {@inheritDoc}
-     */
     @Override
-    public MetadataResponse create(MetadataRequest metadata) {
-        if (metadataRepository.findById(metadata.getId()).isPresent()) {
-            throw new MetadataAlreadyExistsException(metadata.getId());
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+        Exception ex) {
+        if (!(request.getAttribute(EVENT) instanceof MetadataEvent event)) {
+            return;
         }
-        if (metadata.getId() == null || metadata.getId().isEmpty()) {
-            metadata.setId(generateId());
+        request.removeAttribute(EVENT);
+        event.end();
+        if (!event.shouldCommit()) {
+            return;
         }
-        // Set default state from info if not provided
-        if (metadata.getInfo() != null && metadata.getInfo().getState() == null) {
-            metadata.getInfo().setState(MetadataState.UNKNOWN);
-        } else if (metadata.getInfo() == null) {
-            InfoRequest info = InfoRequest.builder()
-                .state(MetadataState.UNKNOWN)
-                .build();
-            metadata.setInfo(info);
+        Object handled = request.getAttribute(DispatcherServlet.EXCEPTION_ATTRIBUTE);
+        if (ex != null) {
+            event.fail(ex);
+        } else if (handled instanceof Throwable e) {
+            event.fail(e);
+        } else if (response.getStatus() == HttpStatus.NOT_MODIFIED.value()) {
+            event.notModified();
         }
-        MetadataEntity entity = metadataRequestMapper.toEntity(metadata);
-        return metadataResponseMapper.toResponse(metadataRepository.save(entity));
+        CountingRequest counted = WebUtils.getNativeRequest(request, CountingRequest.class);
+        if (counted != null) {
+            event.bodyRead(counted.getCount());
+        }
+        event.commit();
     }
 
     /**
-     * Generates a unique UUID for metadata entries.
+     * Finds the event type a handler method takes as its {@link #EVENT} request attribute.
      *
-     * @return a UUID string
+     * @param method the handler method
+     * @return the constructor of the event, or empty if the handler records no event
      */
-    private String generateId() {
-        return UUID.randomUUID().toString();
+    private static Optional<Constructor<? extends MetadataEvent>> eventType(HandlerMethod method) {
+        for (MethodParameter parameter : method.getMethodParameters()) {
+            RequestAttribute attribute = parameter.getParameterAnnotation(RequestAttribute.class);
+            if (attribute != null && EVENT.equals(attribute.name())
+                && MetadataEvent.class.isAssignableFrom(parameter.getParameterType())) {
+                try {
+                    return Optional.of(parameter.getParameterType().asSubclass(MetadataEvent.class).getDeclaredConstructor());
+                } catch (NoSuchMethodException e) {
+                    throw new IllegalStateException("Event " + parameter.getParameterType() + " needs a no-arg constructor", e);
+                }
+            }
+        }
+        return Optional.empty();
     }
 }
 
-/* -- Repository layer -- */
+/**
+ * Counts the bytes read from the bodies of {@code POST} requests, for the payload sizes of the Flight Recorder
+ * events. Unlike the declared Content-Length, the count is also known for chunked uploads.
+ */
+@Component
+class CountingRequestFilter extends OncePerRequestFilter {
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+        throws ServletException, IOException {
+        chain.doFilter(new CountingRequest(request), response);
+    }
+}
+
+/**
+ * Request whose body stream counts the bytes read through it.
+ */
+class CountingRequest extends HttpServletRequestWrapper {
+    private ServletInputStream body;
+    private long count;
 
-interface Repository<T, ID> {
     /**
-     * Saves an entity.
+     * Wraps a request.
      *
-     * @param entity the entity to save
-     * @return the saved entity
+     * @param request the request
      */
-    T save(T entity);
+    CountingRequest(HttpServletRequest request) {
+        super(request);
+    }
 
     /**
-     * Deletes an entity by its ID.
+     * Returns the number of body bytes read so far.
      *
-     * @param id the entity ID
+     * @return the byte count
      */
-    void deleteById(ID id);
+    long getCount() {
+        return count;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (body == null) {
+            ServletInputStream in = super.getInputStream();
+            body = new ServletInputStream() {
+                @Override
+                public int read() throws IOException {
+                    int value = in.read();
+                    if (value != -1) {
+                        count++;
+                    }
+                    return value;
+                }
+
+                @Override
+                public int read(byte[] bytes, int offset, int length) throws IOException {
+                    int read = in.read(bytes, offset, length);
+                    if (read > 0) {
+                        count += read;
+                    }
+                    return read;
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.isFinished();
+                }
+
+                @Override
+                public boolean isReady() {
+                    return in.isReady();
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    in.setReadListener(listener);
+                }
+            };
+        }
+        return body;
+    }
+}
+
+/**
+ * Bounded, time-expiring store of the responses to create requests that carried an {@code Idempotency-Key} header,
+ * so a client retrying after a timeout gets the first response again instead of a duplicate entry or a 400.
+ * Responses are weighed by their size and expire a fixed time after they were stored. Requests with the same key
+ * that arrive while the first one is still running wait for its response rather than running again.
+ * Hits and misses are published as {@code cache.*} metrics tagged {@code cache=metadata.idempotency}.
+ */
+@Component
+class MetadataIdempotencyStore {
+    static final String HEADER = "Idempotency-Key";
+    static final String CACHE_NAME = "metadata.idempotency";
+
+    private final Cache<String, CompletableFuture<IdempotentResponse>> cache;
 
     /**
-     * Finds an entity by its ID.
+     * Creates the store and registers its metrics.
      *
-     * @param id the entity ID
-     * @return Optional containing the entity if found, empty otherwise
+     * @param metadataProperties the application settings
+     * @param meterRegistry the registry for the cache metrics
      */
-    Optional<T> findById(ID id);
+    MetadataIdempotencyStore(MetadataProperties metadataProperties, MeterRegistry meterRegistry) {
+        MetadataProperties.Idempotency settings = metadataProperties.getIdempotency();
+        this.cache = Caffeine.newBuilder()
+            .maximumWeight(settings.getMaxSize().toBytes())
+            // Requests still running weigh only their key; their response is weighed once it replaces them
+            .weigher((String key, CompletableFuture<IdempotentResponse> response) ->
+                key.length() + (response.isDone() ? response.join().body().length : 0))
+            .expireAfterWrite(settings.getRetention())
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
 
     /**
-     * Retrieves all entities.
+     * Returns the response stored for a key, or runs the request and stores its response. Only successful responses
+     * are stored: if the request throws, the key is released before every request waiting on it gets the same
+     * exception.
      *
-     * @return list of all entities
+     * @param key the idempotency key
+     * @param fingerprint identifies the request's content, so a key cannot be reused for a different one
+     * @param request runs the request
+     * @return the response
+     * @throws IdempotencyKeyReusedException if the key was stored for a request with a different fingerprint
      */
-    List<T> findAll();
+    IdempotentResponse execute(String key, byte[] fingerprint, Supplier<IdempotentResponse> request) {
+        CompletableFuture<IdempotentResponse> started = new CompletableFuture<>();
+        CompletableFuture<IdempotentResponse> response = cache.get(key, ignored -> started);
+        if (response == started) {
+            try {
+                IdempotentResponse created = request.get();
+                // Starts the retention period and weighs the response
+                cache.asMap().replace(key, started, CompletableFuture.completedFuture(created));
+                started.complete(created);
+                return created;
+            } catch (RuntimeException e) {
+                cache.asMap().remove(key, started);
+                started.completeExceptionally(e);
+                throw e;
+            }
+        }
+        IdempotentResponse stored;
+        try {
+            stored = response.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        if (!MessageDigest.isEqual(stored.fingerprint(), fingerprint)) {
+            throw new IdempotencyKeyReusedException(key);
+        }
+        return stored;
+    }
 }
 
-interface MetadataRepository extends Repository<MetadataEntity, String> {
+/**
+ * A response remembered for an idempotency key.
+ *
+ * @param fingerprint the digest of the request that produced the response, or null if it is not stored
+ * @param status the status code
+ * @param location the Location header
+ * @param body the encoded body
+ */
+record IdempotentResponse(byte[] fingerprint, int status, URI location, byte[] body) {
+}
+
+/**
+ * Reads {@link MetadataRequest} bodies of the create endpoint straight from a StAX stream, without the token
+ * buffering and reflective property lookup of the generic Jackson XML binding.
+ * Only the known {@code <metadata>}, {@code <info>} and {@code <entries>} shape is read this way. Anything else,
+ * such as unknown or repeated elements, attributes other than the ID, values that need coercion and malformed
+ * documents, is handed to the generic converter, so results and errors are the same as without this converter.
+ * Bodies are buffered so the generic converter can start over; bodies larger than
+ * {@code metadata.xml.fast-path-max-size} are streamed to the generic converter instead.
+ * Registered ahead of the default converters when {@code metadata.xml.fast-path} is enabled; reads are counted
+ * by a {@code metadata.xml.reads} counter tagged {@code path=fast} or {@code path=generic}. Only reads: responses
+ * are left to the other converters.
+ */
+@Component
+@ConditionalOnProperty(prefix = "metadata.xml", name = "fast-path", havingValue = "true")
+class MetadataRequestXmlConverter implements HttpMessageConverter<MetadataRequest> {
+    private static final List<MediaType> SUPPORTED_MEDIA_TYPES =
+        List.of(MediaType.APPLICATION_XML, MediaType.TEXT_XML, new MediaType("application", "*+xml"));
+
+    private static final int NAME = 1;
+    private static final int DESCRIPTION = 1 << 1;
+    private static final int INFO = 1 << 2;
+    private static final int ENTRIES = 1 << 3;
+    private static final int STATE = 1 << 4;
+    private static final int CREATED_DATE = 1 << 5;
+    private static final int CREATED_TIME = 1 << 6;
+    private static final int CREATED_DATETIME = 1 << 7;
+    private static final int COUNT = 1 << 8;
+    private static final int TYPE = 1 << 9;
+
+    private final XMLInputFactory xmlInputFactory;
+    private final MappingJackson2XmlHttpMessageConverter generic;
+    private final int maxBufferedSize;
+    private final Counter fastReads;
+    private final Counter genericReads;
+
     /**
-     * {@inheritDoc}
+     * Creates a converter falling back to a generic converter with the application's Jackson XML configuration.
+     *
+     * @param objectMapperBuilder the Jackson builder that also configures the XML message converter
+     * @param metadataProperties the application settings
+     * @param meterRegistry the registry of the read counters
      */
+    MetadataRequestXmlConverter(Jackson2ObjectMapperBuilder objectMapperBuilder, MetadataProperties metadataProperties,
+        MeterRegistry meterRegistry) {
+        this.maxBufferedSize = Math.toIntExact(metadataProperties.getXml().getFastPathMaxSize().toBytes());
+        XmlMapper xmlMapper = objectMapperBuilder.createXmlMapper(true).build();
+        this.generic = new MappingJackson2XmlHttpMessageConverter(xmlMapper);
+        this.xmlInputFactory = xmlMapper.getFactory().getXMLInputFactory();
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        this.fastReads = Counter.builder("metadata.xml.reads").tag("path", "fast").register(meterRegistry);
+        this.genericReads = Counter.builder("metadata.xml.reads").tag("path", "generic").register(meterRegistry);
+    }
+
     @Override
-    MetadataEntity save(MetadataEntity entity);
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return clazz == MetadataRequest.class
+            && (mediaType == null || SUPPORTED_MEDIA_TYPES.stream().anyMatch(supported -> supported.includes(mediaType)));
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public List<MediaType> getSupportedMediaTypes() {
+        return SUPPORTED_MEDIA_TYPES;
+    }
 
     /**
-     * {@inheritDoc}
+     * Reads the body with the fast path, or with the generic converter if the fast path cannot read it.
+     * The body is read into memory first so the generic converter can start over, unless its Content-Length or
+     * the bytes read so far exceed the size limit; the generic converter then reads it as a stream.
+     *
+     * @param clazz the requested type
+     * @param inputMessage the request
+     * @return the metadata request
+     * @throws IOException if the body cannot be read
+     * @throws org.springframework.http.converter.HttpMessageNotReadableException if the body cannot be bound
      */
     @Override
-    void deleteById(String id);
+    public MetadataRequest read(Class<? extends MetadataRequest> clazz, HttpInputMessage inputMessage)
+        throws IOException {
+        HttpHeaders headers = inputMessage.getHeaders();
+        MediaType contentType = headers.getContentType();
+        InputStream body = inputMessage.getBody();
+        // The generic converter decodes other charsets itself rather than leaving it to the XML parser
+        if ((contentType == null || contentType.getCharset() == null
+            || StandardCharsets.UTF_8.equals(contentType.getCharset()))
+            && headers.getContentLength() <= maxBufferedSize) {
+            byte[] buffered = body.readNBytes(maxBufferedSize + 1);
+            if (buffered.length <= maxBufferedSize) {
+                MetadataRequest metadata = read(buffered);
+                if (metadata != null) {
+                    fastReads.increment();
+                    return metadata;
+                }
+                body = new ByteArrayInputStream(buffered);
+            } else {
+                body = new SequenceInputStream(new ByteArrayInputStream(buffered), body);
+            }
+        }
+        genericReads.increment();
+        InputStream remaining = body;
+        return (MetadataRequest) generic.read(MetadataRequest.class, new HttpInputMessage() {
+            @Override
+            public InputStream getBody() {
+                return remaining;
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return headers;
+            }
+        });
+    }
 
     /**
-     * {@inheritDoc}
+     * Always fails: this converter only reads, and {@link #canWrite} is false.
+     *
+     * @param metadata the metadata request
+     * @param contentType the content type to write
+     * @param outputMessage the response
+     * @throws HttpMessageNotWritableException always
      */
     @Override
-    Optional<MetadataEntity> findById(String id);
+    public void write(MetadataRequest metadata, MediaType contentType, HttpOutputMessage outputMessage) {
+        throw new HttpMessageNotWritableException("Metadata requests are only read by " + getClass().getSimpleName());
+    }
 
     /**
-     * {@inheritDoc}
+     * Reads a metadata document with the fast path.
+     *
+     * @param body the XML document
+     * @return the metadata request, or null if the document has to be read by the generic converter
      */
-    @Override
-    List<MetadataEntity> findAll();
+    MetadataRequest read(byte[] body) {
+        XMLStreamReader reader = null;
+        try {
+            reader = xmlInputFactory.createXMLStreamReader(new ByteArrayInputStream(body));
+            if (reader.nextTag() != XMLStreamConstants.START_ELEMENT || !"metadata".equals(reader.getLocalName())
+                || !isPlain(reader, 1) || reader.getAttributeCount() == 1 && !isIdAttribute(reader)) {
+                return null;
+            }
+            MetadataRequest metadata = readMetadata(reader);
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event != XMLStreamConstants.COMMENT && event != XMLStreamConstants.PROCESSING_INSTRUCTION
+                    && event != XMLStreamConstants.SPACE && event != XMLStreamConstants.END_DOCUMENT
+                    && !(event == XMLStreamConstants.CHARACTERS && reader.isWhiteSpace())) {
+                    return null;
+                }
+            }
+            return metadata;
+        } catch (XMLStreamException | UnsupportedShapeException | DateTimeParseException e) {
+            return null;
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException ignored) {
+                    // Nothing left to release
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the children of the {@code <metadata>} element, up to its end tag.
+     *
+     * @param reader the reader positioned at the start tag
+     * @return the metadata request
+     */
+    private static MetadataRequest readMetadata(XMLStreamReader reader) throws XMLStreamException, UnsupportedShapeException {
+        MetadataRequest metadata = new MetadataRequest();
+        metadata.setId(reader.getAttributeCount() == 1 ? reader.getAttributeValue(0) : null);
+        int seen = 0;
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (element(reader)) {
+                case "name" -> {
+                    seen = once(seen, NAME);
+                    metadata.setName(reader.getElementText());
+                }
+                case "description" -> {
+                    seen = once(seen, DESCRIPTION);
+                    metadata.setDescription(reader.getElementText());
+                }
+                case "info" -> {
+                    seen = once(seen, INFO);
+                    metadata.setInfo(readInfo(reader));
+                }
+                case "entries" -> {
+                    seen = once(seen, ENTRIES);
+                    metadata.setEntries(readEntries(reader));
+                }
+                default -> throw UnsupportedShapeException.INSTANCE;
+            }
+        }
+        return metadata;
+    }
+
+    /**
+     * Reads the children of an {@code <info>} element, up to its end tag.
+     *
+     * @param reader the reader positioned at the start tag
+     * @return the info section
+     */
+    private static InfoRequest readInfo(XMLStreamReader reader) throws XMLStreamException, UnsupportedShapeException {
+        InfoRequest info = new InfoRequest();
+        int seen = 0;
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (element(reader)) {
+                case "state" -> {
+                    seen = once(seen, STATE);
+                    info.setState(switch (value(reader)) {
+                        case "unknown" -> MetadataState.UNKNOWN;
+                        case "active" -> MetadataState.ACTIVE;
+                        case "inactive" -> MetadataState.INACTIVE;
+                        default -> throw UnsupportedShapeException.INSTANCE;
+                    });
+                }
+                case "created-date" -> {
+                    seen = once(seen, CREATED_DATE);
+                    info.setCreatedDate(MetadataDateTimeFormat.parseDate(value(reader)));
+                }
+                case "created-time" -> {
+                    seen = once(seen, CREATED_TIME);
+                    info.setCreatedTime(MetadataDateTimeFormat.parseTime(value(reader)));
+                }
+                case "created-datetime" -> {
+                    seen = once(seen, CREATED_DATETIME);
+                    info.setCreatedDatetime(MetadataDateTimeFormat.parseDateTime(value(reader)));
+                }
+                default -> throw UnsupportedShapeException.INSTANCE;
+            }
+        }
+        return info;
+    }
+
+    /**
+     * Reads the {@code <entry>} children of an {@code <entries>} element, up to its end tag.
+     *
+     * @param reader the reader positioned at the start tag
+     * @return the entries
+     */
+    private static List<EntryRequest> readEntries(XMLStreamReader reader) throws XMLStreamException, UnsupportedShapeException {
+        List<EntryRequest> entries = new ArrayList<>();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if (!"entry".equals(element(reader))) {
+                throw UnsupportedShapeException.INSTANCE;
+            }
+            EntryRequest entry = new EntryRequest();
+            int seen = 0;
+            while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                switch (element(reader)) {
+                    case "name" -> {
+                        seen = once(seen, NAME);
+                        entry.setName(reader.getElementText());
+                    }
+                    case "count" -> {
+                        seen = once(seen, COUNT);
+                        entry.setCount(parseCount(value(reader)));
+                    }
+                    case "type" -> {
+                        seen = once(seen, TYPE);
+                        entry.setType(switch (value(reader)) {
+                            case "standard" -> EntryType.STANDARD;
+                            case "premium" -> EntryType.PREMIUM;
+                            case "basic" -> EntryType.BASIC;
+                            default -> throw UnsupportedShapeException.INSTANCE;
+                        });
+                    }
+                    default -> throw UnsupportedShapeException.INSTANCE;
+                }
+            }
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the local name of the current element, which must have no namespace and no attributes.
+     *
+     * @param reader the reader positioned at a start tag
+     * @return the local name
+     */
+    private static String element(XMLStreamReader reader) throws UnsupportedShapeException {
+        if (!isPlain(reader, 0)) {
+            throw UnsupportedShapeException.INSTANCE;
+        }
+        return reader.getLocalName();
+    }
+
+    /**
+     * Tells whether the current element has no namespace and at most the given number of attributes.
+     *
+     * @param reader the reader positioned at a start tag
+     * @param maxAttributes the number of attributes allowed
+     * @return true if the element can be read by name alone
+     */
+    private static boolean isPlain(XMLStreamReader reader, int maxAttributes) {
+        String namespace = reader.getNamespaceURI();
+        return (namespace == null || namespace.isEmpty()) && reader.getAttributeCount() <= maxAttributes;
+    }
+
+    /**
+     * Tells whether the only attribute of the current element is an {@code id} attribute without a namespace.
+     *
+     * @param reader the reader positioned at a start tag with one attribute
+     * @return true if the attribute is the ID
+     */
+    private static boolean isIdAttribute(XMLStreamReader reader) {
+        String namespace = reader.getAttributeNamespace(0);
+        return "id".equals(reader.getAttributeLocalName(0)) && (namespace == null || namespace.isEmpty());
+    }
+
+    /**
+     * Reads the text of a typed element. Empty and padded values, which Jackson coerces or trims, are left to
+     * the generic converter.
+     *
+     * @param reader the reader positioned at the start tag
+     * @return the text
+     */
+    private static String value(XMLStreamReader reader) throws XMLStreamException, UnsupportedShapeException {
+        String text = reader.getElementText();
+        if (text.isEmpty() || Character.isWhitespace(text.charAt(0))
+            || Character.isWhitespace(text.charAt(text.length() - 1))) {
+            throw UnsupportedShapeException.INSTANCE;
+        }
+        return text;
+    }
+
+    /**
+     * Parses an entry count written as plain decimal digits that fit in an int, with an optional minus sign.
+     *
+     * @param text the count
+     * @return the count
+     */
+    private static Integer parseCount(String text) throws UnsupportedShapeException {
+        int start = text.charAt(0) == '-' ? 1 : 0;
+        int digits = text.length() - start;
+        if (digits == 0 || digits > 9 || (digits > 1 && text.charAt(start) == '0')) {
+            throw UnsupportedShapeException.INSTANCE;
+        }
+        int count = 0;
+        for (int i = start; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                throw UnsupportedShapeException.INSTANCE;
+            }
+            count = count * 10 + (c - '0');
+        }
+        return start == 1 ? -count : count;
+    }
+
+    /**
+     * Marks a field as read, failing if it was read before.
+     *
+     * @param seen the fields read so far
+     * @param field the field
+     * @return the fields read so far, including the field
+     */
+    private static int once(int seen, int field) throws UnsupportedShapeException {
+        if ((seen & field) != 0) {
+            throw UnsupportedShapeException.INSTANCE;
+        }
+        return seen | field;
+    }
+
+    /**
+     * Signals a document the fast path leaves to the generic converter. Thrown without a stack trace.
+     */
+    private static final class UnsupportedShapeException extends Exception {
+        static final UnsupportedShapeException INSTANCE = new UnsupportedShapeException();
+
+        private UnsupportedShapeException() {
+            super(null, null, false, false);
+        }
+    }
 }
 
+/**
+ * Compresses responses with gzip or deflate for clients that accept either, when the response has one of the
+ * {@code metadata.compression.mime-types} and at least {@code metadata.compression.min-response-size} bytes.
+ * Such responses are held back until the handler is done, so the size is known before anything is sent; other
+ * responses, and any body written after the request went async such as the NDJSON stream, pass through as they are.
+ * Every response to a client that accepts an encoding carries the weak form of its ETag, including 304s and bodies
+ * too small to compress: the strong tag names the uncompressed bytes, and the tag of a variant must not depend on
+ * its size. If-None-Match is compared weakly, so conditional requests still get 304. A handler that writes without
+ * blocking, by setting a write listener, gets its body sent as it is.
+ * <p>
+ * The compressed body of a 200 response with an ETag is cached under its URL, content type, encoding and ETag, so
+ * listings and lookups downloaded again before they change are not compressed again. Compression is timed by a
+ * {@code metadata.compression} timer, and its output size as a share of the input is recorded by a
+ * {@code metadata.compression.ratio} summary, both tagged with the encoding. The cache publishes {@code cache.*}
+ * metrics tagged {@code cache=metadata.compressed}.
+ */
 @Component
-class MetadataRepositoryImpl implements MetadataRepository {
-    private List<MetadataEntity> metadataList = new ArrayList<>();
+@ConditionalOnProperty(prefix = "metadata.compression", name = "enabled", havingValue = "true", matchIfMissing = true)
+class MetadataCompressionFilter extends OncePerRequestFilter {
+    static final String CACHE_NAME = "metadata.compressed";
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final List<MimeType> mimeTypes;
+    private final long minResponseSize;
+    private final int level;
+    private final Cache<CompressedKey, byte[]> cache;
+    private final Map<String, Timer> timers;
+    private final Map<String, DistributionSummary> ratios;
 
     /**
-     * {@inheritDoc}
+     * Creates the filter and registers its metrics.
+     *
+     * @param metadataProperties the application settings
+     * @param meterRegistry the registry for the compression and cache metrics
      */
+    MetadataCompressionFilter(MetadataProperties metadataProperties, MeterRegistry meterRegistry) {
+        MetadataProperties.Compression compression = metadataProperties.getCompression();
+        this.mimeTypes = compression.getMimeTypes().stream().map(MimeTypeUtils::parseMimeType).toList();
+        this.minResponseSize = compression.getMinResponseSize().toBytes();
+        this.level = compression.getLevel();
+        this.cache = Caffeine.newBuilder()
+            .maximumWeight(compression.getCacheSize().toBytes())
+            .weigher((CompressedKey key, byte[] body) -> body.length)
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        this.timers = Stream.of(GZIP, DEFLATE).collect(Collectors.toUnmodifiableMap(Function.identity(),
+            encoding -> Timer.builder("metadata.compression").tag("encoding", encoding).register(meterRegistry)));
+        this.ratios = Stream.of(GZIP, DEFLATE).collect(Collectors.toUnmodifiableMap(Function.identity(),
+            encoding -> DistributionSummary.builder("metadata.compression.ratio").tag("encoding", encoding)
+                .register(meterRegistry)));
+    }
+
     @Override
-    public MetadataEntity save(MetadataEntity entity) {
-        metadataList.add(entity);
-        return entity;
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.GET.matches(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+        throws ServletException, IOException {
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        Enumeration<String> acceptEncoding = request.getHeaders(HttpHeaders.ACCEPT_ENCODING);
+        String encoding = acceptEncoding.hasMoreElements() ? negotiate(String.join(",", Collections.list(acceptEncoding))) : null;
+        if (encoding == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        BufferingResponse buffering = new BufferingResponse(request, response);
+        filterChain.doFilter(request, buffering);
+        buffering.finish(encoding);
     }
 
     /**
-     * {@inheritDoc}
+     * Picks the encoding for an Accept-Encoding header: gzip or deflate, whichever has the higher quality value,
+     * preferring gzip on a tie. Codings that are not listed get the quality value of {@code *}, if present.
+     *
+     * @param acceptEncoding the comma-separated codings with optional quality values
+     * @return {@link #GZIP}, {@link #DEFLATE}, or null if the client accepts neither
      */
-    @Override
-    public void deleteById(String id) {
-        metadataList.removeIf(m -> m.getId().equals(id));
+    static String negotiate(String acceptEncoding) {
+        double gzip = -1;
+        double deflate = -1;
+        double any = 0;
+        for (String coding : acceptEncoding.split(",")) {
+            int semicolon = coding.indexOf(';');
+            String name = (semicolon < 0 ? coding : coding.substring(0, semicolon)).trim().toLowerCase(Locale.ROOT);
+            double quality = semicolon < 0 ? 1 : quality(coding.substring(semicolon + 1));
+            switch (name) {
+                case "gzip", "x-gzip" -> gzip = Math.max(gzip, quality);
+                case "deflate" -> deflate = Math.max(deflate, quality);
+                case "*" -> any = quality;
+                default -> {
+                }
+            }
+        }
+        gzip = gzip < 0 ? any : gzip;
+        deflate = deflate < 0 ? any : deflate;
+        if (gzip <= 0 && deflate <= 0) {
+            return null;
+        }
+        return gzip >= deflate ? GZIP : DEFLATE;
     }
 
     /**
-     * {@inheritDoc}
+     * Reads the {@code q} parameter of a coding.
+     *
+     * @param parameters the parameters after the coding name
+     * @return the quality value, 1 if absent or 0 if malformed
      */
-    @Override
-    public Optional<MetadataEntity> findById(String id) {
-        return metadataList.stream().filter(m -> m.getId().equals(id)).findFirst();
+    private static double quality(String parameters) {
+        for (String parameter : parameters.split(";")) {
+            int equals = parameter.indexOf('=');
+            if (equals > 0 && parameter.substring(0, equals).trim().equalsIgnoreCase("q")) {
+                try {
+                    return Double.parseDouble(parameter.substring(equals + 1).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
     }
 
     /**
-     * {@inheritDoc}
+     * Compresses a body at the configured level and records the time taken and the ratio.
+     *
+     * @param body the uncompressed body
+     * @param encoding {@link #GZIP} or {@link #DEFLATE}
+     * @return the compressed body
      */
-    @Override
-    public List<MetadataEntity> findAll() {
-        return metadataList;
+    byte[] compress(byte[] body, String encoding) {
+        long start = System.nanoTime();
+        boolean gzip = GZIP.equals(encoding);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        // gzip is raw deflate data framed by a header and a CRC-32 and length trailer; deflate has zlib framing
+        Deflater deflater = new Deflater(level, gzip);
+        try {
+            if (gzip) {
+                out.writeBytes(GZIP_HEADER);
+            }
+            deflater.setInput(body);
+            deflater.finish();
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+        } finally {
+            deflater.end();
+        }
+        if (gzip) {
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            writeIntLittleEndian(out, (int) crc.getValue());
+            writeIntLittleEndian(out, body.length);
+        }
+        byte[] compressed = out.toByteArray();
+        timers.get(encoding).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        ratios.get(encoding).record(body.length == 0 ? 1 : (double) compressed.length / body.length);
+        return compressed;
+    }
+
+    private static void writeIntLittleEndian(ByteArrayOutputStream out, int value) {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+    }
+
+    /**
+     * Checks whether a content type is one of the configured compressible types, ignoring parameters.
+     *
+     * @param contentType the content type of the response, or null
+     * @return true if responses of this type are compressed
+     */
+    private boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        try {
+            MimeType mimeType = MimeTypeUtils.parseMimeType(contentType);
+            return mimeTypes.stream().anyMatch(mimeType::equalsTypeAndSubtype);
+        } catch (InvalidMimeTypeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Identifies a compressed response body.
+     *
+     * @param url the request URL with its query string
+     * @param contentType the content type of the response
+     * @param encoding the content encoding
+     * @param etag the ETag of the uncompressed response
+     */
+    private record CompressedKey(String url, String contentType, String encoding, String etag) {
+    }
+
+    /**
+     * Holds back the body of a compressible response. Whether a response is compressible is decided by its content
+     * type when the body is first written, or when the handler is done if nothing was written. Content-Length is
+     * held back along with the body, and set to the size actually sent. ETags are weakened as they are set.
+     */
+    private final class BufferingResponse extends HttpServletResponseWrapper {
+        private final HttpServletRequest request;
+        private FastByteArrayOutputStream buffer;
+        private boolean decided;
+        private boolean errorSent;
+        private long contentLength = -1;
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+
+        BufferingResponse(HttpServletRequest request, HttpServletResponse response) {
+            super(response);
+            this.request = request;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (!decide()) {
+                return super.getOutputStream();
+            }
+            if (writer != null) {
+                throw new IllegalStateException("getWriter() has already been called for this response");
+            }
+            if (outputStream == null) {
+                outputStream = new BufferOutputStream();
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (!decide()) {
+                return super.getWriter();
+            }
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called for this response");
+            }
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(buffer, getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (!decide()) {
+                super.flushBuffer();
+            }
+        }
+
+        @Override
+        public void resetBuffer() {
+            super.resetBuffer();
+            if (buffer != null) {
+                buffer.reset();
+            }
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            if (buffer != null) {
+                buffer.reset();
+            }
+            contentLength = -1;
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            errorSent = true;
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            errorSent = true;
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            setContentLengthLong(len);
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            if (decided && buffer == null) {
+                super.setContentLengthLong(len);
+            } else {
+                contentLength = len;
+            }
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(Long.parseLong(value));
+            } else if (HttpHeaders.ETAG.equalsIgnoreCase(name) && value != null && !value.startsWith("W/")) {
+                super.setHeader(name, "W/" + value);
+            } else {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(Long.parseLong(value));
+            } else if (HttpHeaders.ETAG.equalsIgnoreCase(name) && value != null && !value.startsWith("W/")) {
+                super.addHeader(name, "W/" + value);
+            } else {
+                super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(value);
+            } else {
+                super.setIntHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addIntHeader(String name, int value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(value);
+            } else {
+                super.addIntHeader(name, value);
+            }
+        }
+
+        /**
+         * Decides on first use whether the body is held back.
+         *
+         * @return true if the body is held back
+         */
+        private boolean decide() {
+            if (!decided) {
+                decided = true;
+                if (!request.isAsyncStarted() && isCompressible(getContentType())) {
+                    buffer = new FastByteArrayOutputStream();
+                } else if (contentLength >= 0) {
+                    super.setContentLengthLong(contentLength);
+                }
+            }
+            return buffer != null;
+        }
+
+        /**
+         * Sends a held back body, compressed if it is large enough and not encoded already.
+         *
+         * @param encoding the encoding accepted by the client
+         * @throws IOException if the body cannot be written
+         */
+        void finish(String encoding) throws IOException {
+            if (!decide() || errorSent) {
+                return;
+            }
+            if (writer != null) {
+                writer.flush();
+            }
+            HttpServletResponse response = (HttpServletResponse) getResponse();
+            int status = response.getStatus();
+            // A length here would describe the empty body rather than the selected representation
+            if (status == HttpServletResponse.SC_NOT_MODIFIED || status == HttpServletResponse.SC_NO_CONTENT) {
+                return;
+            }
+            byte[] body = buffer.toByteArrayUnsafe();
+            if (body.length < minResponseSize || response.containsHeader(HttpHeaders.CONTENT_ENCODING)) {
+                response.setContentLength(body.length);
+                response.getOutputStream().write(body);
+                return;
+            }
+            String etag = response.getHeader(HttpHeaders.ETAG);
+            byte[] compressed;
+            if (etag != null && response.getStatus() == HttpServletResponse.SC_OK) {
+                String query = request.getQueryString();
+                CompressedKey key = new CompressedKey(query == null ? request.getRequestURI() : request.getRequestURI() + '?' + query,
+                    response.getContentType(), encoding, etag);
+                compressed = cache.get(key, k -> compress(body, encoding));
+            } else {
+                compressed = compress(body, encoding);
+            }
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+            response.setContentLength(compressed.length);
+            response.getOutputStream().write(compressed);
+        }
+
+        /**
+         * Stops holding back the body: sends what was written so far as it is and returns the stream of the wrapped
+         * response for the rest.
+         *
+         * @return the output stream of the wrapped response
+         * @throws IOException if the body written so far cannot be sent
+         */
+        private ServletOutputStream release() throws IOException {
+            FastByteArrayOutputStream held = buffer;
+            buffer = null;
+            if (contentLength >= 0) {
+                super.setContentLengthLong(contentLength);
+            }
+            ServletOutputStream out = super.getOutputStream();
+            held.writeTo(out);
+            return out;
+        }
+
+        /**
+         * Servlet output stream writing into the buffer, or into the wrapped response once a write listener is set.
+         * Non-blocking writes go out as they are, since holding them back would keep them from being sent until the
+         * filter finishes, which happens before the listener has written anything.
+         */
+        private final class BufferOutputStream extends ServletOutputStream {
+            private ServletOutputStream released;
+
+            @Override
+            public void write(int b) throws IOException {
+                if (released != null) {
+                    released.write(b);
+                } else {
+                    buffer.write(b);
+                }
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (released != null) {
+                    released.write(b, off, len);
+                } else {
+                    buffer.write(b, off, len);
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                if (released != null) {
+                    released.flush();
+                }
+            }
+
+            @Override
+            public boolean isReady() {
+                return released == null || released.isReady();
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                if (released == null) {
+                    try {
+                        released = release();
+                    } catch (IOException e) {
+                        writeListener.onError(e);
+                        return;
+                    }
+                }
+                released.setWriteListener(writeListener);
+            }
+        }
     }
 }
 
-/* -- Exception handler -- */
+/* -- Reactive layer -- */
 
+/**
+ * Reactive counterpart of {@link AppController} (create, list, stream, get and delete), served by
+ * {@link ReactiveMetadataServer} on its own port. Request bodies are parsed as their buffers arrive and streamed
+ * listings pull each entry from the repository only when the client is ready for it. Nothing blocks the event loop:
+ * every repository access, mapping and serialization runs on the bounded elastic scheduler, since writes may wait
+ * for the write-ahead log and reads of the mapped store may wait for a compaction.
+ */
 @Slf4j
-@ControllerAdvice
-class GlobalExceptionHandler {
+@Component
+@ConditionalOnProperty(prefix = "metadata.reactive", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+class ReactiveMetadataHandler {
+    private final MetadataService metadataService;
+    private final MetadataProperties metadataProperties;
+    private final ReactiveMetadataXmlDecoder metadataXmlDecoder;
+
     /**
-     * Handles MetadataNotFoundException and returns a ProblemDetail response.
+     * Builds the routes, mapping the application exceptions to the same ProblemDetail responses as
+     * {@link GlobalExceptionHandler}.
      *
-     * @param e the exception that was thrown
-     * @return ProblemDetail with status 404 (NOT_FOUND) and the exception message
+     * @return the router function
      */
-    @ExceptionHandler(MetadataNotFoundException.class)
-    public ProblemDetail handleMetadataNotFoundException(MetadataNotFoundException e) {
-        log.warn("Metadata not found: {}", e.getMessage());
-        return ProblemDetail.forStatusAndDetail(HttpStatus.NOT_FOUND, e.getMessage());
+    RouterFunction<ServerResponse> routes() {
+        return RouterFunctions.route()
+            .POST("/api/metadata", RequestPredicates.contentType(MediaType.APPLICATION_XML), this::create)
+            .GET("/api/metadata", request -> request.headers().accept().contains(MediaType.APPLICATION_NDJSON), this::stream)
+            .GET("/api/metadata", this::list)
+            .GET("/api/metadata/{id}", this::get)
+            .DELETE("/api/metadata/{id}", this::delete)
+            .onError(MetadataNotFoundException.class, (e, request) -> problem(HttpStatus.NOT_FOUND, e.getMessage(), request))
+            .onError(MetadataAlreadyExistsException.class, (e, request) -> problem(HttpStatus.BAD_REQUEST, e.getMessage(), request))
+            .onError(InvalidCursorException.class, (e, request) -> problem(HttpStatus.BAD_REQUEST, e.getMessage(), request))
+            .onError(ResponseStatusException.class, (e, request) ->
+                problem(((ResponseStatusException) e).getStatusCode(), ((ResponseStatusException) e).getReason(), request))
+            .build();
     }
 
     /**
-     * Handles MetadataAlreadyExistsException and returns a ProblemDetail response.
+     * Creates a new metadata entry from XML input.
      *
-     * @param e the exception that was thrown
-     * @return ProblemDetail with status 400 (BAD_REQUEST) and the exception message
+     * @param request the request with the metadata XML body
+     * @return status 201 (CREATED) with a Location header and the created metadata response
      */
-    @ExceptionHandler(MetadataAlreadyExistsException.class)
-    public ProblemDetail handleMetadataAlreadyExistsException(MetadataAlreadyExistsException e) {
-        log.warn("Metadata already exists: {}", e.getMessage());
-        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+    Mono<ServerResponse> create(ServerRequest request) {
+        return metadataXmlDecoder.decode(request.body(BodyExtractors.toDataBuffers()))
+            .publishOn(Schedulers.boundedElastic())
+            .map(metadataService::create)
+            .flatMap(response -> ServerResponse.created(request.uriBuilder().path("/{id}").build(response.getId()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(response));
+    }
+
+    /**
+     * Retrieves a page of metadata entries, with the same parameters, next-page headers and ETag as the servlet
+     * endpoint.
+     *
+     * @param request the request with the optional limit, cursor, state, entryType, from and to parameters
+     * @return status 200 (OK) with a page of metadata responses, or 304 (NOT_MODIFIED) if If-None-Match holds the
+     *     current listing ETag
+     */
+    Mono<ServerResponse> list(ServerRequest request) {
+        return Mono.defer(() -> {
+            String etag = metadataService.listingEtag();
+            return request.checkNotModified(etag).switchIfEmpty(Mono.defer(() -> page(request, etag)));
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<ServerResponse> page(ServerRequest request, String etag) {
+        return Mono.fromCallable(() -> {
+            MetadataProperties.Pagination pagination = metadataProperties.getPagination();
+            int pageSize = Math.max(1, Math.min(
+                queryParam(request, "limit", Integer::valueOf).orElse(pagination.getDefaultLimit()),
+                pagination.getMaxLimit()
+            ));
+            MetadataFilter filter = new MetadataFilter(
+                queryParam(request, "state", value -> JsonEnumValues.parse(MetadataState.class, value)).orElse(null),
+                queryParam(request, "entryType", value -> JsonEnumValues.parse(EntryType.class, value)).orElse(null),
+                queryParam(request, "from", LocalDateTime::parse).orElse(null),
+                queryParam(request, "to", LocalDateTime::parse).orElse(null)
+            );
+            return Map.entry(pageSize, metadataService.findAll(filter, request.queryParam("cursor").orElse(null), pageSize));
+        }).flatMap(result -> {
+            Page<MetadataResponse> page = result.getValue();
+            ServerResponse.BodyBuilder response = ServerResponse.ok().eTag(etag).contentType(MediaType.APPLICATION_JSON);
+            if (page.nextCursor() != null) {
+                URI next = request.uriBuilder()
+                    .replaceQueryParam("limit", result.getKey())
+                    .replaceQueryParam("cursor", page.nextCursor())
+                    .build();
+                response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+                    .header("X-Next-Cursor", page.nextCursor());
+            }
+            return response.bodyValue(page.content());
+        });
+    }
+
+    /**
+     * Streams all metadata entries as newline-delimited JSON. Selected with {@code Accept: application/x-ndjson}.
+     *
+     * @param request the request
+     * @return status 200 (OK) with a body that writes each metadata response as the client takes it
+     */
+    Mono<ServerResponse> stream(ServerRequest request) {
+        return ServerResponse.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(streamAll().subscribeOn(Schedulers.boundedElastic()), MetadataResponse.class);
+    }
+
+    /**
+     * Retrieves a specific metadata entry by its ID, from the same cache of encoded responses and with the same
+     * ETag as the servlet endpoint. The ETag of a 200 response comes from the same lookup as its body.
+     *
+     * @param request the request with the id path variable
+     * @return status 200 (OK) with the JSON-encoded metadata response, or 304 (NOT_MODIFIED) if If-None-Match holds
+     *     its ETag
+     */
+    Mono<ServerResponse> get(ServerRequest request) {
+        String id = request.pathVariable("id");
+        return Mono.fromCallable(() -> metadataService.findEtagById(id).orElseThrow(() -> new MetadataNotFoundException(id)))
+            .flatMap(etag -> request.checkNotModified(etag).switchIfEmpty(Mono.defer(() ->
+                Mono.fromCallable(() -> metadataService.findJsonById(id).orElseThrow(() -> new MetadataNotFoundException(id)))
+                    .flatMap(encoded -> ServerResponse.ok()
+                        .eTag(encoded.etag())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(encoded.json())))))
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Deletes a metadata entry by ID. Idempotent operation - returns 204 whether the resource existed or not.
+     *
+     * @param request the request with the id path variable
+     * @return status 204 (NO_CONTENT)
+     */
+    Mono<ServerResponse> delete(ServerRequest request) {
+        String id = request.pathVariable("id");
+        return Mono.fromRunnable(() -> metadataService.deleteById(id))
+            .subscribeOn(Schedulers.boundedElastic())
+            .then(ServerResponse.noContent().build());
+    }
+
+    /**
+     * Emits every metadata entry in insertion order. Entries are read and mapped on demand, so a slow consumer holds
+     * back the repository instead of letting responses queue up in memory; the stream is closed on cancellation,
+     * and on completion or error before they are signalled, also when the entries are emitted on another thread.
+     *
+     * @return flux of metadata responses
+     */
+    Flux<MetadataResponse> streamAll() {
+        return Flux.using(metadataService::streamAll, Flux::fromStream, Stream::close);
+    }
+
+    /**
+     * Parses an optional query parameter; blank values count as absent.
+     *
+     * @param request the request
+     * @param name the parameter name
+     * @param parser converts the value
+     * @return the parsed value, or empty if the parameter is absent
+     * @throws ServerWebInputException if the value cannot be parsed
+     */
+    private static <T> Optional<T> queryParam(ServerRequest request, String name, Function<String, T> parser) {
+        Optional<String> value = request.queryParam(name).filter(s -> !s.isBlank());
+        try {
+            return value.map(parser);
+        } catch (RuntimeException e) {
+            throw new ServerWebInputException("Invalid value for parameter '" + name + "': " + value.get());
+        }
+    }
+
+    /**
+     * Builds a ProblemDetail response.
+     *
+     * @param status the response status
+     * @param detail the problem detail
+     * @param request the failed request
+     * @return the response
+     */
+    private static Mono<ServerResponse> problem(HttpStatusCode status, String detail, ServerRequest request) {
+        log.warn("Reactive request {} {} failed: {}", request.method(), request.path(), detail);
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(status, detail);
+        problem.setInstance(URI.create(request.path()));
+        return ServerResponse.status(status)
+            .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+            .bodyValue(problem);
+    }
+}
+
+/**
+ * Decodes a metadata XML document from request body buffers as they arrive. The non-blocking Aalto parser behind
+ * {@link XmlEventDecoder} turns each buffer into XML events and releases it, so a slow upload holds no thread. The
+ * events are bound as they come, through the same Jackson XML setup as the servlet endpoint: each entry is bound
+ * once its end tag arrives and its events are dropped, and only the events of the small top-level fields are kept
+ * until the document ends. Memory grows with the bound request rather than with the events of the document.
+ * Bodies are limited to {@code metadata.reactive.max-body-size} and rejected with 413 as soon as they cross it.
+ */
+@Component
+@ConditionalOnProperty(prefix = "metadata.reactive", name = "enabled", havingValue = "true")
+class ReactiveMetadataXmlDecoder {
+    private static final ResolvableType XML_EVENT = ResolvableType.forClass(XMLEvent.class);
+    private static final String ENTRIES = "entries";
+
+    private final XmlEventDecoder xmlEventDecoder = new XmlEventDecoder();
+    private final XmlMapper xmlMapper;
+    private final long maxBodySize;
+
+    /**
+     * Creates a decoder using the application's Jackson XML configuration.
+     *
+     * @param objectMapperBuilder the Jackson builder that also configures the XML message converter
+     * @param metadataProperties the application settings
+     */
+    ReactiveMetadataXmlDecoder(Jackson2ObjectMapperBuilder objectMapperBuilder, MetadataProperties metadataProperties) {
+        this.xmlMapper = objectMapperBuilder.createXmlMapper(true).build();
+        this.maxBodySize = metadataProperties.getReactive().getMaxBodySize().toBytes();
+    }
+
+    /**
+     * Decodes one {@code <metadata>} document.
+     *
+     * @param body the request body buffers
+     * @return the metadata request; fails with {@link ServerWebInputException} if the body is not valid metadata XML,
+     *     or with a 413 {@link ResponseStatusException} if it exceeds the size limit
+     */
+    Mono<MetadataRequest> decode(Flux<DataBuffer> body) {
+        return xmlEventDecoder.decode(limited(body), XML_EVENT, MediaType.APPLICATION_XML, null)
+            .onErrorMap(DecodingException.class, e -> new ServerWebInputException("Malformed metadata: " + e.getMessage()))
+            .collect(DocumentBinder::new, DocumentBinder::accept)
+            .map(DocumentBinder::finish);
+    }
+
+    /**
+     * Passes body buffers on until their total size exceeds the limit, then fails.
+     *
+     * @param body the request body buffers
+     * @return the buffers within the limit
+     */
+    private Flux<DataBuffer> limited(Flux<DataBuffer> body) {
+        return Flux.defer(() -> {
+            long[] received = {0};
+            return body.handle((buffer, sink) -> {
+                received[0] += buffer.readableByteCount();
+                if (received[0] > maxBodySize) {
+                    DataBufferUtils.release(buffer);
+                    sink.error(new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                        "Metadata documents are limited to " + maxBodySize + " bytes"));
+                } else {
+                    sink.next(buffer);
+                }
+            });
+        });
+    }
+
+    /**
+     * Binds XML events to a value with the Jackson XML setup.
+     *
+     * @param events the events of one element, or of a document
+     * @param type the type to bind to
+     * @return the bound value
+     * @throws ServerWebInputException if the events do not form a valid value
+     */
+    private <T> T bind(List<XMLEvent> events, Class<T> type) {
+        try {
+            XMLStreamReader reader = StaxUtils.createEventStreamReader(StaxUtils.createXMLEventReader(events));
+            return xmlMapper.readValue(reader, type);
+        } catch (XMLStreamException | IOException e) {
+            throw new ServerWebInputException("Malformed metadata: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Binds the events of one document as they arrive. Events inside the items of the top-level {@code <entries>}
+     * wrapper go to a per-item list that is bound to an {@link EntryRequest} and cleared at the item's end tag;
+     * everything else, including the then empty wrapper, is kept and bound to the {@link MetadataRequest} at the end.
+     */
+    private final class DocumentBinder {
+        private final List<XMLEvent> document = new ArrayList<>();
+        private final List<XMLEvent> item = new ArrayList<>();
+        private List<EntryRequest> entries;
+        private boolean started;
+        private boolean inEntries;
+        private int depth;
+
+        /**
+         * Takes the next event of the document.
+         *
+         * @param event the event
+         * @throws ServerWebInputException if a completed entry is not valid
+         */
+        void accept(XMLEvent event) {
+            boolean element = event.isStartElement() || event.isEndElement();
+            if (event.isStartElement()) {
+                started = true;
+                depth++;
+                if (depth == 2 && ENTRIES.equals(event.asStartElement().getName().getLocalPart())) {
+                    inEntries = true;
+                    entries = new ArrayList<>();
+                }
+            }
+            // The depth of an element's own tags, or of the element around other events
+            int level = depth;
+            if (event.isEndElement()) {
+                depth--;
+            }
+            if (!inEntries || level < 2 || level == 2 && element) {
+                document.add(event);
+                if (event.isEndElement() && level == 2) {
+                    inEntries = false;
+                }
+            } else if (level > 2) {
+                item.add(event);
+                if (event.isEndElement() && level == 3) {
+                    entries.add(bind(item, EntryRequest.class));
+                    item.clear();
+                }
+            }
+            // Anything else is text or a comment between the items, which the wrapper does not bind anyway
+        }
+
+        /**
+         * Binds the document once all its events have arrived.
+         *
+         * @return the metadata request
+         * @throws ServerWebInputException if the document is missing or not valid metadata
+         */
+        MetadataRequest finish() {
+            if (!started) {
+                throw new ServerWebInputException("Missing metadata document");
+            }
+            MetadataRequest metadata = bind(document, MetadataRequest.class);
+            if (entries != null && !entries.isEmpty()) {
+                metadata.setEntries(entries);
+            }
+            return metadata;
+        }
+    }
+}
+
+/**
+ * Runs {@link ReactiveMetadataHandler}'s routes on a Reactor Netty server of their own next to the servlet
+ * container, on {@code metadata.reactive.port}. Netty serves every connection from a small fixed set of event loop
+ * threads. Responses are written with the application {@link ObjectMapper}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "metadata.reactive", name = "enabled", havingValue = "true")
+class ReactiveMetadataServer implements SmartLifecycle {
+    private final WebServer webServer;
+    private volatile boolean running;
+
+    /**
+     * Creates the server; it starts with the application context.
+     *
+     * @param metadataHandler the reactive endpoints
+     * @param objectMapper the mapper for JSON responses
+     * @param metadataProperties the application settings
+     */
+    ReactiveMetadataServer(ReactiveMetadataHandler metadataHandler, ObjectMapper objectMapper,
+                           MetadataProperties metadataProperties) {
+        HandlerStrategies strategies = HandlerStrategies.builder()
+            .codecs(codecs -> codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper)))
+            .build();
+        HttpHandler httpHandler = RouterFunctions.toHttpHandler(metadataHandler.routes(), strategies);
+        NettyReactiveWebServerFactory factory = new NettyReactiveWebServerFactory(metadataProperties.getReactive().getPort());
+        factory.setCompression(compression(metadataProperties.getCompression()));
+        this.webServer = factory.getWebServer(httpHandler);
+    }
+
+    /**
+     * Translates the compression settings into Reactor Netty's compression, which has the same threshold and types
+     * but neither a configurable level nor a cache of compressed responses.
+     *
+     * @param settings the compression settings
+     * @return the server compression
+     */
+    private static Compression compression(MetadataProperties.Compression settings) {
+        Compression compression = new Compression();
+        compression.setEnabled(settings.isEnabled());
+        compression.setMinResponseSize(settings.getMinResponseSize());
+        compression.setMimeTypes(settings.getMimeTypes().toArray(String[]::new));
+        return compression;
+    }
+
+    /**
+     * Returns the port the server listens on, which is only known after start when configured as 0.
+     *
+     * @return the port
+     */
+    int getPort() {
+        return webServer.getPort();
+    }
+
+    @Override
+    public void start() {
+        webServer.start();
+        running = true;
+        log.info("Reactive metadata endpoints listening on port {}", webServer.getPort());
+    }
+
+    @Override
+    public void stop() {
+        webServer.stop();
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
+
+/* -- Service layer -- */
+
+interface MetadataService {
+    /**
+     * Finds a metadata entry by its ID.
+     *
+     * @param id the metadata ID
+     * @return Optional containing the metadata response if found, empty otherwise
+     */
+    Optional<MetadataResponse> findById(String id);
+
+    /**
+     * Finds a metadata entry by its ID, mapping only the requested fields.
+     *
+     * @param id the metadata ID
+     * @param fields the requested fields
+     * @return Optional containing the metadata response if found, empty otherwise
+     */
+    Optional<MetadataResponse> findById(String id, MetadataFields fields);
+
+    /**
+     * Finds a metadata entry by its ID, mapping only the requested fields, together with its entity tag. Both come
+     * from the same read, so the tag describes the response even if the entry changes concurrently.
+     *
+     * @param id the metadata ID
+     * @param fields the requested fields
+     * @return Optional containing the metadata response and its unquoted entity tag if found, empty otherwise
+     */
+    Optional<TaggedMetadata> findTaggedById(String id, MetadataFields fields);
+
+    /**
+     * Finds a metadata entry by its ID, encoded as JSON, together with the entity tag of the encoded content.
+     * Encoded entries are cached, so repeated lookups skip mapping and serialization.
+     *
+     * @param id the metadata ID
+     * @return Optional containing the encoded metadata response if found, empty otherwise
+     */
+    Optional<EncodedMetadata> findJsonById(String id);
+
+    /**
+     * Finds the entity tag of a metadata entry: the content hash stored with it, so the entry is neither read
+     * nor mapped. Equal tags mean equal responses.
+     *
+     * @param id the metadata ID
+     * @return Optional containing the unquoted entity tag if found, empty otherwise
+     */
+    Optional<String> findEtagById(String id);
+
+    /**
+     * Returns the entity tag of the metadata listings, which changes whenever an entry is created or deleted.
+     * Read it before the page it describes, so that a concurrent change can only make the tag older than the
+     * page, never newer.
+     *
+     * @return the unquoted entity tag
+     */
+    String listingEtag();
+
+    /**
+     * Deletes a metadata entry by its ID. Idempotent operation.
+     *
+     * @param id the metadata ID to delete
+     */
+    void deleteById(String id);
+
+    /**
+     * Retrieves all metadata entries.
+     *
+     * @return list of all metadata responses
+     */
+    List<MetadataResponse> findAll();
+
+    /**
+     * Retrieves a page of the metadata entries matching a filter, in insertion order.
+     *
+     * @param filter the filter; {@link MetadataFilter#NONE} matches everything
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param limit the maximum number of entries to return
+     * @return page of metadata responses
+     * @throws InvalidCursorException if the cursor is invalid
+     */
+    Page<MetadataResponse> findAll(MetadataFilter filter, String cursor, int limit);
+
+    /**
+     * Retrieves a page of the metadata entries matching a filter, in insertion order, mapping only the requested
+     * fields.
+     *
+     * @param filter the filter; {@link MetadataFilter#NONE} matches everything
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param limit the maximum number of entries to return
+     * @param fields the requested fields
+     * @return page of metadata responses
+     * @throws InvalidCursorException if the cursor is invalid
+     */
+    Page<MetadataResponse> findAll(MetadataFilter filter, String cursor, int limit, MetadataFields fields);
+
+    /**
+     * Streams all metadata entries in insertion order. Entries are mapped lazily as the stream is consumed.
+     *
+     * @return stream of metadata responses, which should be closed after use
+     */
+    Stream<MetadataResponse> streamAll();
+
+    /**
+     * Creates a new metadata entry. Generates an ID if not provided.
+     *
+     * @param metadata the metadata request
+     * @return the created metadata response
+     * @throws MetadataAlreadyExistsException if a metadata entry with the same ID already exists
+     */
+    MetadataResponse create(MetadataRequest metadata);
+
+    /**
+     * Creates metadata entries from a {@code <metadata-list>} XML document. Entries are read one at a time and
+     * stored in batches; IDs are generated for entries without one. Entries stored before a malformed part of the
+     * document was reached are kept.
+     *
+     * @param xml the XML document
+     * @return summary of created, duplicate and invalid entries
+     * @throws InvalidBulkDocumentException if the document is not a well-formed metadata list
+     */
+    BulkCreateResponse createAll(InputStream xml);
+}
+
+@Service
+@RequiredArgsConstructor
+class MetadataServiceImpl implements MetadataService {
+    private final MetadataRepository metadataRepository;
+    private final MetadataRequestMapper metadataRequestMapper;
+    private final MetadataResponseMapper metadataResponseMapper;
+    private final MetadataXmlBulkReader metadataXmlBulkReader;
+    private final MetadataProperties metadataProperties;
+    private final MetadataJsonCache metadataJsonCache;
+    private final IdGenerator idGenerator;
+    private final String instanceTag = Long.toHexString(UUID.randomUUID().getMostSignificantBits());
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<MetadataResponse> findById(String id) {
+        return metadataRepository.findById(id)
+            .map(metadataResponseMapper::toResponse);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<MetadataResponse> findById(String id, MetadataFields fields) {
+        return metadataRepository.findById(id)
+            .map(entity -> toResponse(entity, fields));
+    }
+
+    /**
+     * {@inheritDoc}
+     * The tag is hashed from the entity that was read, which gives the same tag as {@link #findEtagById(String)}.
+     */
+    @Override
+    public Optional<TaggedMetadata> findTaggedById(String id, MetadataFields fields) {
+        return metadataRepository.findById(id)
+            .map(entity -> new TaggedMetadata(toResponse(entity, fields), etag(MetadataEntityCodec.contentHash(entity))));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<EncodedMetadata> findJsonById(String id) {
+        return Optional.ofNullable(metadataJsonCache.get(id, key -> findTaggedById(key, MetadataFields.ALL)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<String> findEtagById(String id) {
+        OptionalLong contentHash = metadataRepository.findContentHashById(id);
+        return contentHash.isPresent() ? Optional.of(etag(contentHash.getAsLong())) : Optional.empty();
+    }
+
+    /**
+     * {@inheritDoc}
+     * The repository version restarts with the application, so it is qualified by a tag chosen at random per
+     * instance.
+     */
+    @Override
+    public String listingEtag() {
+        return instanceTag + "-" + Long.toHexString(metadataRepository.version());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteById(String id) {
+        metadataJsonCache.write(id, () -> {
+            metadataRepository.deleteById(id);
+            metadataJsonCache.invalidate(id);
+            return null;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<MetadataResponse> findAll() {
+        return metadataRepository.findAll()
+            .stream()
+            .map(metadataResponseMapper::toResponse)
+            .toList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Page<MetadataResponse> findAll(MetadataFilter filter, String cursor, int limit) {
+        return metadataRepository.findAll(filter, cursor, limit)
+            .map(metadataResponseMapper::toResponse);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Page<MetadataResponse> findAll(MetadataFilter filter, String cursor, int limit, MetadataFields fields) {
+        return metadataRepository.findAll(filter, cursor, limit)
+            .map(entity -> toResponse(entity, fields));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<MetadataResponse> streamAll() {
+        return metadataRepository.streamAll()
+            .map(metadataResponseMapper::toResponse);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MetadataResponse create(MetadataRequest metadata) {
+        MetadataEntity entity = toNewEntity(metadata);
+        return metadataJsonCache.write(entity.getId(), () -> {
+            if (metadataRepository.saveIfAbsent(entity).isPresent()) {
+                throw new MetadataAlreadyExistsException(metadata.getId());
+            }
+            MetadataResponse response = metadataResponseMapper.toResponse(entity);
+            metadataJsonCache.put(new TaggedMetadata(response, etag(MetadataEntityCodec.contentHash(entity))));
+            return response;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BulkCreateResponse createAll(InputStream xml) {
+        MetadataProperties.Bulk settings = metadataProperties.getBulk();
+        BulkCreateResponse result = new BulkCreateResponse();
+        List<MetadataEntity> batch = new ArrayList<>(settings.getBatchSize());
+        try {
+            metadataXmlBulkReader.read(
+                xml,
+                metadata -> {
+                    batch.add(toNewEntity(metadata));
+                    if (batch.size() >= settings.getBatchSize()) {
+                        commitBatch(batch, result, settings);
+                    }
+                },
+                id -> {
+                    result.setInvalid(result.getInvalid() + 1);
+                    reportFailure(id, result, settings);
+                }
+            );
+        } finally {
+            commitBatch(batch, result, settings);
+        }
+        return result;
+    }
+
+    /**
+     * Formats a content hash as an unquoted entity tag.
+     *
+     * @param contentHash the content hash
+     * @return the entity tag
+     */
+    private static String etag(long contentHash) {
+        return HexFormat.of().toHexDigits(contentHash);
+    }
+
+    /**
+     * Maps the requested fields of an entity, with the full mapping when every field is requested.
+     *
+     * @param entity the entity
+     * @param fields the requested fields
+     * @return the response
+     */
+    private MetadataResponse toResponse(MetadataEntity entity, MetadataFields fields) {
+        return fields.isAll()
+            ? metadataResponseMapper.toResponse(entity)
+            : metadataResponseMapper.toResponse(entity, fields);
+    }
+
+    /**
+     * Applies creation defaults to a request and maps it to a new entity. Generates an ID if not provided
+     * and defaults the state to UNKNOWN.
+     *
+     * @param metadata the metadata request
+     * @return the entity to store
+     */
+    private MetadataEntity toNewEntity(MetadataRequest metadata) {
+        if (metadata.getId() == null || metadata.getId().isEmpty()) {
+            metadata.setId(generateId());
+        }
+        // Set default state from info if not provided
+        if (metadata.getInfo() != null && metadata.getInfo().getState() == null) {
+            metadata.getInfo().setState(MetadataState.UNKNOWN);
+        } else if (metadata.getInfo() == null) {
+            InfoRequest info = InfoRequest.builder()
+                .state(MetadataState.UNKNOWN)
+                .build();
+            metadata.setInfo(info);
+        }
+        return metadataRequestMapper.toEntity(metadata);
+    }
+
+    /**
+     * Stores a batch of entities and records the outcome in the bulk result. Clears the batch afterwards.
+     *
+     * @param batch the entities to store
+     * @param result the bulk result to update
+     * @param settings the bulk settings
+     */
+    private void commitBatch(List<MetadataEntity> batch, BulkCreateResponse result, MetadataProperties.Bulk settings) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<MetadataEntity> duplicates = metadataRepository.saveAllIfAbsent(batch);
+        result.setCreated(result.getCreated() + batch.size() - duplicates.size());
+        result.setDuplicates(result.getDuplicates() + duplicates.size());
+        for (MetadataEntity duplicate : duplicates) {
+            reportFailure(duplicate.getId(), result, settings);
+        }
+        batch.clear();
+    }
+
+    /**
+     * Adds a failing ID to the bulk result, up to the configured maximum.
+     *
+     * @param id the failing ID, or null if the element had none
+     * @param result the bulk result to update
+     * @param settings the bulk settings
+     */
+    private void reportFailure(String id, BulkCreateResponse result, MetadataProperties.Bulk settings) {
+        if (id != null && result.getFailedIds().size() < settings.getMaxReportedFailures()) {
+            result.getFailedIds().add(id);
+        }
+    }
+
+    /**
+     * Generates a unique UUID for metadata entries with the configured {@link IdGenerator}.
+     *
+     * @return a UUID string
+     */
+    private String generateId() {
+        return idGenerator.nextId();
+    }
+}
+
+/**
+ * Generates the IDs of metadata created without one. Selected with {@code metadata.ids.strategy} by
+ * {@link IdGeneratorConfig}.
+ */
+interface IdGenerator {
+    /**
+     * Generates a new ID.
+     *
+     * @return a UUID string
+     */
+    String nextId();
+}
+
+/**
+ * Random version 4 UUIDs from {@link UUID#randomUUID()}. They are unpredictable, but every call draws from one shared
+ * {@code SecureRandom}, and consecutive IDs land anywhere in a sorted index or log.
+ */
+class RandomIdGenerator implements IdGenerator {
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String nextId() {
+        return UUID.randomUUID().toString();
+    }
+}
+
+/**
+ * Version 7 UUIDs (RFC 9562): 48 bits of Unix time in milliseconds, a 12-bit counter and 62 random bits, so IDs sort
+ * by creation time, as strings too, and new entries append to the end of sorted indexes and logs. The timestamp and
+ * counter advance together with a compare-and-set on one long, which keeps the IDs of an instance strictly increasing
+ * without a lock: more than 4096 IDs in a millisecond, or a clock that steps back, carry into the timestamp until the
+ * clock catches up. The random bits come from {@link ThreadLocalRandom}, so they are not secret.
+ */
+class TimeOrderedIdGenerator implements IdGenerator {
+    private static final int COUNTER_BITS = 12;
+    private static final long VERSION = 7L << COUNTER_BITS;
+    private static final long VARIANT = 1L << 63;
+
+    private final AtomicLong last = new AtomicLong();
+    private final LongSupplier clock;
+
+    /**
+     * Creates a generator on the system clock.
+     */
+    TimeOrderedIdGenerator() {
+        this(System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a generator on the given clock.
+     *
+     * @param clock returns the current time in milliseconds since the epoch
+     */
+    TimeOrderedIdGenerator(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String nextId() {
+        long next = last.updateAndGet(previous -> Math.max(clock.getAsLong() << COUNTER_BITS, previous + 1));
+        long mostSignificant = (next >>> COUNTER_BITS) << 16 | VERSION | (next & ((1L << COUNTER_BITS) - 1));
+        long leastSignificant = VARIANT | (ThreadLocalRandom.current().nextLong() >>> 2);
+        return new UUID(mostSignificant, leastSignificant).toString();
+    }
+}
+
+/**
+ * Creates the {@link IdGenerator} of the configured strategy. The choice is made on the bound
+ * {@link IdStrategy}, so every spelling that relaxed binding accepts, such as {@code time-ordered} or
+ * {@code TIME_ORDERED}, selects the same generator.
+ */
+@Configuration
+class IdGeneratorConfig {
+    /**
+     * Creates the ID generator selected by {@code metadata.ids.strategy}.
+     *
+     * @param metadataProperties the application settings
+     * @return the ID generator bean
+     */
+    @Bean
+    public IdGenerator idGenerator(MetadataProperties metadataProperties) {
+        return switch (metadataProperties.getIds().getStrategy()) {
+            case RANDOM -> new RandomIdGenerator();
+            case TIME_ORDERED -> new TimeOrderedIdGenerator();
+        };
+    }
+}
+
+/**
+ * Bounded cache of metadata responses already encoded as JSON, keyed by ID, so repeated lookups skip mapping and
+ * serialization and the cached bytes are written straight to the response. Entries are weighed by their encoded
+ * size and evicted by Caffeine's W-TinyLFU policy, which keeps frequently read entries over one-off reads.
+ * Hits, misses and evictions are published as {@code cache.*} metrics tagged {@code cache=metadata.json}.
+ * <p>
+ * The cache does not observe the repository. Writers change the repository and the cache for an ID inside
+ * {@link #write}, so a create cannot cache an entity that a concurrent delete has already removed.
+ */
+@Component
+class MetadataJsonCache {
+    static final String CACHE_NAME = "metadata.json";
+    private static final int LOCK_STRIPES = 64;
+
+    private final Lock[] locks = Stream.generate(ReentrantLock::new).limit(LOCK_STRIPES).toArray(Lock[]::new);
+    private final ObjectWriter writer;
+    private final Cache<String, EncodedMetadata> cache;
+
+    /**
+     * Creates the cache and registers its metrics.
+     *
+     * @param objectMapper the mapper that also writes JSON responses
+     * @param metadataProperties the application settings
+     * @param meterRegistry the registry for the cache metrics
+     */
+    MetadataJsonCache(ObjectMapper objectMapper, MetadataProperties metadataProperties, MeterRegistry meterRegistry) {
+        this.writer = objectMapper.writerFor(MetadataResponse.class);
+        this.cache = Caffeine.newBuilder()
+            .maximumWeight(metadataProperties.getResponseCache().getMaxSize().toBytes())
+            .weigher((String id, EncodedMetadata encoded) -> encoded.json().length)
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Returns the encoded response for an ID, loading and encoding it on a miss. Absent entries are not cached.
+     *
+     * @param id the metadata ID
+     * @param loader looks up the response and its entity tag on a miss
+     * @return the encoded response, or null if the loader found none
+     */
+    EncodedMetadata get(String id, Function<String, Optional<TaggedMetadata>> loader) {
+        return cache.get(id, key -> loader.apply(key).map(this::encode).orElse(null));
+    }
+
+    /**
+     * Encodes a response and caches it under its ID. Must be called inside {@link #write} for that ID.
+     *
+     * @param tagged the response to cache and its entity tag
+     */
+    void put(TaggedMetadata tagged) {
+        cache.put(tagged.response().getId(), encode(tagged));
+    }
+
+    /**
+     * Removes the entry for an ID. Must be called inside {@link #write} for that ID, after the repository change.
+     *
+     * @param id the metadata ID
+     */
+    void invalidate(String id) {
+        cache.invalidate(id);
+    }
+
+    /**
+     * Runs a repository write and the cache update that goes with it while holding one of a fixed set of striped
+     * locks for the ID.
+     *
+     * @param id the metadata ID
+     * @param write the repository write and cache update
+     * @return the result of the write
+     */
+    <T> T write(String id, Supplier<T> write) {
+        int hash = Objects.hashCode(id);
+        Lock lock = locks[(hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1)];
+        lock.lock();
+        try {
+            return write.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Encodes a response as JSON.
+     *
+     * @param tagged the response and its entity tag
+     * @return the encoded response
+     * @throws UncheckedIOException if the response cannot be serialized
+     */
+    private EncodedMetadata encode(TaggedMetadata tagged) {
+        MetadataResponse response = tagged.response();
+        try {
+            return new EncodedMetadata(writer.writeValueAsBytes(response),
+                response.getEntries() != null ? response.getEntries().size() : 0, tagged.etag());
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
+
+/**
+ * A metadata response encoded as JSON.
+ *
+ * @param json the encoded response
+ * @param entryCount the number of entries in the response
+ * @param etag the unquoted entity tag of the entity the response was mapped from
+ */
+record EncodedMetadata(byte[] json, int entryCount, String etag) {
+}
+
+/**
+ * A metadata response with the entity tag of the entity it was mapped from, read together so that the tag always
+ * describes the response.
+ *
+ * @param response the response
+ * @param etag the unquoted entity tag
+ */
+record TaggedMetadata(MetadataResponse response, String etag) {
+}
+
+/**
+ * Reads {@code <metadata-list>} documents one {@code <metadata>} element at a time with a StAX reader,
+ * binding each element through the same Jackson XML setup as the single-entry endpoint. Only the
+ * element being bound is held in memory.
+ */
+@Component
+class MetadataXmlBulkReader {
+    static final String LIST_ELEMENT = "metadata-list";
+    static final String ITEM_ELEMENT = "metadata";
+
+    private final XmlMapper xmlMapper;
+    private final XMLInputFactory xmlInputFactory;
+
+    /**
+     * Creates a reader using the application's Jackson XML configuration.
+     *
+     * @param objectMapperBuilder the Jackson builder that also configures the XML message converter
+     */
+    MetadataXmlBulkReader(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        this.xmlMapper = objectMapperBuilder.createXmlMapper(true).build();
+        this.xmlInputFactory = xmlMapper.getFactory().getXMLInputFactory();
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    /**
+     * Reads a metadata list document. Elements that cannot be bound are reported as invalid and skipped.
+     *
+     * @param xml the XML document
+     * @param onItem receives each bound metadata request
+     * @param onInvalid receives the id attribute (or null) of each element that could not be bound
+     * @throws InvalidBulkDocumentException if the document is not a well-formed metadata list
+     */
+    void read(InputStream xml, Consumer<MetadataRequest> onItem, Consumer<String> onInvalid) {
+        XMLStreamReader2 reader = null;
+        try {
+            reader = Stax2ReaderAdapter.wrapIfNecessary(xmlInputFactory.createXMLStreamReader(xml));
+            if (reader.nextTag() != XMLStreamConstants.START_ELEMENT || !LIST_ELEMENT.equals(reader.getLocalName())) {
+                throw new InvalidBulkDocumentException("Root element must be <" + LIST_ELEMENT + ">");
+            }
+            while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                String id = reader.getAttributeValue(null, "id");
+                int depth = reader.getDepth();
+                if (!ITEM_ELEMENT.equals(reader.getLocalName())) {
+                    skipElement(reader, depth);
+                    onInvalid.accept(id);
+                    continue;
+                }
+                MetadataRequest metadata;
+                try {
+                    metadata = xmlMapper.readValue(reader, MetadataRequest.class);
+                } catch (IOException e) {
+                    if (e.getCause() instanceof XMLStreamException cause) {
+                        throw cause;
+                    }
+                    skipElement(reader, depth);
+                    onInvalid.accept(id);
+                    continue;
+                }
+                onItem.accept(metadata);
+            }
+        } catch (XMLStreamException e) {
+            throw new InvalidBulkDocumentException("Malformed metadata list: " + e.getMessage());
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException ignored) {
+                    // Nothing left to release
+                }
+            }
+        }
+    }
+
+    /**
+     * Advances the reader to the end tag of the element that started at the given depth.
+     *
+     * @param reader the reader positioned inside or at the end of the element
+     * @param depth the depth of the element's start tag
+     * @throws XMLStreamException if the document is malformed
+     */
+    private static void skipElement(XMLStreamReader2 reader, int depth) throws XMLStreamException {
+        while (!(reader.getEventType() == XMLStreamConstants.END_ELEMENT && reader.getDepth() == depth)) {
+            reader.next();
+        }
+    }
+}
+
+/* -- Repository layer -- */
+
+interface Repository<T, ID> {
+    /**
+     * Saves an entity.
+     *
+     * @param entity the entity to save
+     * @return the saved entity
+     */
+    T save(T entity);
+
+    /**
+     * Saves an entity only if no entity with the same ID is stored yet.
+     * The existence check and the save happen atomically.
+     *
+     * @param entity the entity to save
+     * @return Optional containing the already stored entity if the ID is taken, empty if the entity was saved
+     */
+    Optional<T> saveIfAbsent(T entity);
+
+    /**
+     * Saves each entity whose ID is not stored yet, as if by {@link #saveIfAbsent(Object)} in list order.
+     *
+     * @param entities the entities to save
+     * @return the entities that were not saved because their ID was already taken
+     */
+    List<T> saveAllIfAbsent(List<T> entities);
+
+    /**
+     * Deletes an entity by its ID.
+     *
+     * @param id the entity ID
+     */
+    void deleteById(ID id);
+
+    /**
+     * Finds an entity by its ID.
+     *
+     * @param id the entity ID
+     * @return Optional containing the entity if found, empty otherwise
+     */
+    Optional<T> findById(ID id);
+
+    /**
+     * Retrieves all entities.
+     *
+     * @return list of all entities
+     */
+    List<T> findAll();
+
+    /**
+     * Retrieves a page of entities using keyset pagination, so the cost depends on the page size and not on how
+     * deep the page is.
+     *
+     * @param cursor the opaque cursor returned with the previous page, or null for the first page
+     * @param limit the maximum number of entities to return
+     * @return page of entities
+     * @throws InvalidCursorException if the cursor is invalid
+     */
+    Page<T> findAll(String cursor, int limit);
+
+    /**
+     * Streams all entities lazily without copying them into a list first. The stream reflects concurrent
+     * changes on a best-effort basis.
+     *
+     * @return stream of all entities
+     */
+    Stream<T> streamAll();
+
+    /**
+     * Counts the stored entities.
+     *
+     * @return the number of entities
+     */
+    long count();
+}
+
+/**
+ * A page of results with the cursor of the next page.
+ *
+ * @param content the entries of this page
+ * @param nextCursor the opaque cursor of the next page, or null if this is the last page
+ * @param <T> the entry type
+ */
+record Page<T>(List<T> content, String nextCursor) {
+    /**
+     * Maps the entries of this page, keeping the cursor.
+     *
+     * @param mapper the mapping function
+     * @param <R> the mapped entry type
+     * @return the mapped page
+     */
+    <R> Page<R> map(Function<? super T, ? extends R> mapper) {
+        return new Page<>(content.stream().<R>map(mapper).toList(), nextCursor);
+    }
+}
+
+/**
+ * Criteria for filtered list queries. Null criteria match everything; set criteria are combined.
+ *
+ * @param state the required metadata state, or null
+ * @param entryType the entry type at least one entry must have, or null
+ * @param from the earliest creation time, inclusive, or null
+ * @param to the latest creation time, exclusive, or null
+ */
+record MetadataFilter(MetadataState state, EntryType entryType, LocalDateTime from, LocalDateTime to) {
+    static final MetadataFilter NONE = new MetadataFilter(null, null);
+
+    /**
+     * Creates a filter without a creation time range.
+     *
+     * @param state the required metadata state, or null
+     * @param entryType the entry type at least one entry must have, or null
+     */
+    MetadataFilter(MetadataState state, EntryType entryType) {
+        this(state, entryType, null, null);
+    }
+
+    /**
+     * Tells whether this filter matches everything.
+     *
+     * @return true if no criteria are set
+     */
+    boolean isEmpty() {
+        return state == null && entryType == null && !hasTimeRange();
+    }
+
+    /**
+     * Tells whether this filter restricts the creation time. Such queries are ordered by creation time.
+     *
+     * @return true if from or to is set
+     */
+    boolean hasTimeRange() {
+        return from != null || to != null;
+    }
+}
+
+interface MetadataRepository extends Repository<MetadataEntity, String> {
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    MetadataEntity save(MetadataEntity entity);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    Optional<MetadataEntity> saveIfAbsent(MetadataEntity entity);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    List<MetadataEntity> saveAllIfAbsent(List<MetadataEntity> entities);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void deleteById(String id);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    Optional<MetadataEntity> findById(String id);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    List<MetadataEntity> findAll();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    Page<MetadataEntity> findAll(String cursor, int limit);
+
+    /**
+     * Retrieves a page of the entities matching a filter, in insertion order, or ordered by creation time
+     * (then insertion order) if the filter has a time range. Served by secondary indexes, so the cost grows
+     * with the number of matches rather than the number of stored entities.
+     *
+     * @param filter the filter; an empty filter behaves like {@link #findAll(String, int)}
+     * @param cursor the cursor returned with the previous page of the same filter, or null for the first page
+     * @param limit the maximum number of entities to return
+     * @return the page
+     * @throws InvalidCursorException if the cursor is invalid
+     */
+    Page<MetadataEntity> findAll(MetadataFilter filter, String cursor, int limit);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    Stream<MetadataEntity> streamAll();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    long count();
+
+    /**
+     * Estimates the memory held by the stored entities, on or off the heap depending on the storage mode.
+     * Meant for monitoring, so it is cheap to call and only approximate.
+     *
+     * @return the estimated size in bytes
+     */
+    long estimatedBytes();
+
+    /**
+     * Retrieves the content hash of an entity, computed with {@link MetadataEntityCodec#contentHash(MetadataEntity)}
+     * when it was saved, without reading the entity itself.
+     *
+     * @param id the entity ID
+     * @return the content hash, or empty if no entity has the ID
+     */
+    OptionalLong findContentHashById(String id);
+
+    /**
+     * Returns a number that changes whenever an entity is saved or deleted, so that a cached listing can be
+     * validated without reading it again. It restarts with the repository, so it is only meaningful together with
+     * the instance that returned it.
+     *
+     * @return the current version
+     */
+    long version();
+}
+
+/**
+ * A fixed-size table of recently seen short strings, so that records built one after another share one instance of
+ * a value that repeats, such as an entry name. Slots are indexed by hash, so a string that misses is stored as given
+ * and later lookups share it until another string takes the slot. Racing writers may replace each other's entries;
+ * String is immutable, so a reader always sees a complete one. Long strings are left out, so the table never holds
+ * on to much.
+ */
+final class RecentStrings {
+    private static final int SLOTS = 4096;
+    private static final int MAX_LENGTH = 64;
+
+    private final String[] recent = new String[SLOTS];
+
+    /**
+     * Returns the instance of an equal short string seen recently, or remembers this one for later lookups.
+     *
+     * @param value the string, or null
+     * @return an equal string
+     */
+    String share(String value) {
+        if (value == null || value.length() > MAX_LENGTH) {
+            return value;
+        }
+        int slot = value.hashCode() & (SLOTS - 1);
+        String shared = recent[slot];
+        if (value.equals(shared)) {
+            return shared;
+        }
+        recent[slot] = value;
+        return value;
+    }
+}
+
+/**
+ * The form in which {@link MetadataRepositoryImpl} holds an entity, a single object instead of the dozen or so that
+ * make up a {@link MetadataEntity}. The info section is folded in, with its dates and times as primitives and its
+ * state as an ordinal byte. The entries are exactly sized parallel arrays of names, primitive counts and type
+ * ordinals. Entry names are shared between records through the repository's {@link RecentStrings}. {@link #toEntity()} builds a new
+ * entity on every call, so callers never see, or change, the stored state.
+ */
+final class CompactMetadata {
+    private static final MetadataState[] STATES = MetadataState.values();
+    private static final EntryType[] TYPES = EntryType.values();
+    private static final byte HAS_INFO = 1;
+    private static final byte HAS_ENTRIES = 1 << 1;
+    private static final byte COUNT_ABSENT = (byte) 0x80;
+    private static final long ABSENT = Long.MIN_VALUE;
+    private static final int OBJECT_BYTES = 72;
+
+    private final String id;
+    private final String name;
+    private final String description;
+    private final byte flags;
+    private final byte state;
+    private final int createdDatetimeNano;
+    private final long createdDate;
+    private final long createdTime;
+    private final long createdDatetime;
+    private final String[] entryNames;
+    private final int[] entryCounts;
+    private final byte[] entryTypes;
+
+    /**
+     * Copies an entity into the compact form.
+     *
+     * @param entity the entity
+     * @param recentNames the recently stored entry names to share
+     */
+    CompactMetadata(MetadataEntity entity, RecentStrings recentNames) {
+        this.id = entity.getId();
+        this.name = entity.getName();
+        this.description = entity.getDescription();
+        InfoEntity info = entity.getInfo();
+        List<EntryEntity> entries = entity.getEntries();
+        this.flags = (byte) ((info != null ? HAS_INFO : 0) | (entries != null ? HAS_ENTRIES : 0));
+        MetadataState infoState = info != null ? info.getState() : null;
+        LocalDate date = info != null ? info.getCreatedDate() : null;
+        LocalTime time = info != null ? info.getCreatedTime() : null;
+        LocalDateTime datetime = info != null ? info.getCreatedDatetime() : null;
+        // State and type bytes hold the ordinal plus one, so that zero stands for null
+        this.state = (byte) (infoState != null ? infoState.ordinal() + 1 : 0);
+        this.createdDate = date != null ? date.toEpochDay() : ABSENT;
+        this.createdTime = time != null ? time.toNanoOfDay() : ABSENT;
+        this.createdDatetime = datetime != null ? datetime.toEpochSecond(ZoneOffset.UTC) : ABSENT;
+        this.createdDatetimeNano = datetime != null ? datetime.getNano() : 0;
+        int size = entries != null ? entries.size() : 0;
+        this.entryNames = new String[size];
+        this.entryCounts = new int[size];
+        this.entryTypes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            EntryEntity entry = entries.get(i);
+            entryNames[i] = recentNames.share(entry.getName());
+            entryCounts[i] = entry.getCount() != null ? entry.getCount() : 0;
+            entryTypes[i] = (byte) ((entry.getType() != null ? entry.getType().ordinal() + 1 : 0)
+                | (entry.getCount() == null ? COUNT_ABSENT : 0));
+        }
+    }
+
+    /**
+     * Builds an entity with the stored content.
+     *
+     * @return a new entity, with a new mutable entry list
+     */
+    MetadataEntity toEntity() {
+        InfoEntity info = null;
+        if ((flags & HAS_INFO) != 0) {
+            info = new InfoEntity(
+                state(),
+                createdDate != ABSENT ? LocalDate.ofEpochDay(createdDate) : null,
+                createdTime != ABSENT ? LocalTime.ofNanoOfDay(createdTime) : null,
+                createdDatetime());
+        }
+        List<EntryEntity> entries = null;
+        if ((flags & HAS_ENTRIES) != 0) {
+            entries = new ArrayList<>(entryNames.length);
+            for (int i = 0; i < entryNames.length; i++) {
+                int type = entryTypes[i] & ~COUNT_ABSENT;
+                entries.add(new EntryEntity(
+                    entryNames[i],
+                    (entryTypes[i] & COUNT_ABSENT) != 0 ? null : entryCounts[i],
+                    type != 0 ? TYPES[type - 1] : null));
+            }
+        }
+        return new MetadataEntity(id, name, description, info, entries);
+    }
+
+    /**
+     * Returns the stored state.
+     *
+     * @return the state, or null if there is none
+     */
+    MetadataState state() {
+        return state != 0 ? STATES[state - 1] : null;
+    }
+
+    /**
+     * Returns the stored entry types as a bit set of their ordinals.
+     *
+     * @return the mask with bit {@code 1 << ordinal} set for every type that occurs
+     */
+    int entryTypeMask() {
+        int mask = 0;
+        for (byte entryType : entryTypes) {
+            int type = entryType & ~COUNT_ABSENT;
+            if (type != 0) {
+                mask |= 1 << (type - 1);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Returns the stored creation time.
+     *
+     * @return the creation time, or null if there is none
+     */
+    LocalDateTime createdDatetime() {
+        return createdDatetime != ABSENT ? LocalDateTime.ofEpochSecond(createdDatetime, createdDatetimeNano, ZoneOffset.UTC) : null;
+    }
+
+    /**
+     * Roughly estimates the heap retained by this object and its arrays and strings, assuming compressed references
+     * and Latin-1 strings. Strings shared with other records are counted for each of them.
+     *
+     * @return the estimated size in bytes
+     */
+    long estimatedBytes() {
+        long bytes = estimateBytes(id, name, description, entryNames.length);
+        for (String entryName : entryNames) {
+            bytes += estimateBytes(entryName);
+        }
+        return bytes;
+    }
+
+    /**
+     * Estimates {@link #estimatedBytes()} of the compact form of an entity without building it, so that nothing is
+     * added to the table of shared strings.
+     *
+     * @param entity the entity
+     * @return the estimated size in bytes
+     */
+    static long estimatedBytes(MetadataEntity entity) {
+        List<EntryEntity> entries = entity.getEntries() != null ? entity.getEntries() : List.of();
+        long bytes = estimateBytes(entity.getId(), entity.getName(), entity.getDescription(), entries.size());
+        for (EntryEntity entry : entries) {
+            bytes += estimateBytes(entry.getName());
+        }
+        return bytes;
+    }
+
+    private static long estimateBytes(String id, String name, String description, int entries) {
+        return OBJECT_BYTES + estimateBytes(id) + estimateBytes(name) + estimateBytes(description)
+            + align(16 + 4L * entries) * 2 + align(16 + entries);
+    }
+
+    private static long estimateBytes(String value) {
+        return value == null ? 0 : 40 + value.length();
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
+
+/**
+ * In-memory metadata repository backed by a concurrent id index.
+ * Each entity is assigned a sequence number on first save, which keeps {@link #findAll()}
+ * in insertion order and serves as the keyset for paging. Saving an existing ID replaces the entity
+ * but keeps its position. The content hash is computed before taking the lock and kept in the index slot.
+ * Entities are held as {@link CompactMetadata} and rebuilt on every read.
+ * Reads are lock-free. Writes to the same ID are serialized by one of a fixed set of striped locks rather than
+ * inside {@code ConcurrentHashMap.compute}: the map's bin monitor would pin a virtual thread to its carrier while
+ * it waits for the secondary index lock.
+ */
+@Component
+@ConditionalOnProperty(prefix = "metadata.storage", name = "mode", havingValue = "memory", matchIfMissing = true)
+class MetadataRepositoryImpl implements MetadataRepository {
+    private static final int INDEX_ENTRY_BYTES = 112; // slot, id map node and insertion order node
+    private static final int LOCK_STRIPES = 64;
+
+    private final Lock[] locks = Stream.generate(ReentrantLock::new).limit(LOCK_STRIPES).toArray(Lock[]::new);
+    private final Map<String, Slot> index = new ConcurrentHashMap<>();
+    private final NavigableMap<Long, CompactMetadata> insertionOrder = new ConcurrentSkipListMap<>();
+    private final MetadataSecondaryIndex secondaryIndex = new MetadataSecondaryIndex();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong estimatedBytes = new AtomicLong();
+    private final AtomicLong version = new AtomicLong();
+    private final RecentStrings recentNames = new RecentStrings();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MetadataEntity save(MetadataEntity entity) {
+        Objects.requireNonNull(entity.getId(), "Metadata id must not be null");
+        long contentHash = MetadataEntityCodec.contentHash(entity);
+        CompactMetadata metadata = new CompactMetadata(entity, recentNames);
+        Lock lock = lockFor(entity.getId());
+        lock.lock();
+        try {
+            Slot existing = index.get(entity.getId());
+            if (existing == null) {
+                insert(entity, metadata, contentHash);
+                return entity;
+            }
+            long position = existing.sequence();
+            remove(position, existing.metadata());
+            estimatedBytes.addAndGet(-estimateBytes(existing.metadata()));
+            insertionOrder.put(position, metadata);
+            secondaryIndex.add(position, entity);
+            estimatedBytes.addAndGet(estimateBytes(metadata));
+            index.put(entity.getId(), new Slot(position, metadata, contentHash));
+            version.incrementAndGet();
+            return entity;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<MetadataEntity> saveIfAbsent(MetadataEntity entity) {
+        Objects.requireNonNull(entity.getId(), "Metadata id must not be null");
+        Slot existing = index.get(entity.getId());
+        if (existing != null) {
+            return Optional.of(existing.metadata().toEntity());
+        }
+        long contentHash = MetadataEntityCodec.contentHash(entity);
+        CompactMetadata metadata = new CompactMetadata(entity, recentNames);
+        Lock lock = lockFor(entity.getId());
+        lock.lock();
+        try {
+            existing = index.get(entity.getId());
+            if (existing != null) {
+                return Optional.of(existing.metadata().toEntity());
+            }
+            insert(entity, metadata, contentHash);
+            return Optional.empty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<MetadataEntity> saveAllIfAbsent(List<MetadataEntity> entities) {
+        List<MetadataEntity> duplicates = new ArrayList<>();
+        for (MetadataEntity entity : entities) {
+            if (saveIfAbsent(entity).isPresent()) {
+                duplicates.add(entity);
+            }
+        }
+        return duplicates;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteById(String id) {
+        if (id == null || !index.containsKey(id)) {
+            return;
+        }
+        Lock lock = lockFor(id);
+        lock.lock();
+        try {
+            Slot existing = index.remove(id);
+            if (existing != null) {
+                insertionOrder.remove(existing.sequence());
+                remove(existing.sequence(), existing.metadata());
+                estimatedBytes.addAndGet(-estimateBytes(existing.metadata()));
+                version.incrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<MetadataEntity> findById(String id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        Slot slot = index.get(id);
+        return slot == null ? Optional.empty() : Optional.of(slot.metadata().toEntity());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<MetadataEntity> findAll() {
+        return insertionOrder.values().stream().map(CompactMetadata::toEntity).toList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Page<MetadataEntity> findAll(String cursor, int limit) {
+        NavigableMap<Long, CompactMetadata> remaining = cursor == null
+            ? insertionOrder
+            : insertionOrder.tailMap(decodeCursor(cursor), false);
+        List<MetadataEntity> content = new ArrayList<>(Math.min(limit, 1024));
+        long last = 0;
+        for (Map.Entry<Long, CompactMetadata> entry : remaining.entrySet()) {
+            if (content.size() == limit) {
+                return new Page<>(content, encodeCursor(last));
+            }
+            content.add(entry.getValue().toEntity());
+            last = entry.getKey();
+        }
+        return new Page<>(content, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Page<MetadataEntity> findAll(MetadataFilter filter, String cursor, int limit) {
+        if (filter.isEmpty()) {
+            return findAll(cursor, limit);
+        }
+        Page<Long> positions = secondaryIndex.find(filter, cursor, limit);
+        List<MetadataEntity> content = new ArrayList<>(positions.content().size());
+        for (Long position : positions.content()) {
+            CompactMetadata metadata = insertionOrder.get(position);
+            if (metadata != null) {
+                content.add(metadata.toEntity());
+            }
+        }
+        return new Page<>(content, positions.nextCursor());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<MetadataEntity> streamAll() {
+        return insertionOrder.values().stream().map(CompactMetadata::toEntity);
+    }
+
+    /**
+     * Streams the entities inserted up to a sequence number, in insertion order, like {@link #streamAll()}.
+     * Entities inserted later are left out, even if they replace a deleted entity with the same ID.
+     *
+     * @param sequence the last sequence number to include, as returned by {@link #lastSequence()}
+     * @return stream of the entities
+     */
+    Stream<MetadataEntity> streamUpTo(long sequence) {
+        return insertionOrder.headMap(sequence, true).values().stream().map(CompactMetadata::toEntity);
+    }
+
+    /**
+     * Returns the sequence number of the most recent insertion.
+     *
+     * @return the sequence number, or 0 if nothing was inserted yet
+     */
+    long lastSequence() {
+        return sequence.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long count() {
+        return index.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     * Kept as a running total of {@link #estimateBytes(MetadataEntity)} over the stored entities.
+     */
+    @Override
+    public long estimatedBytes() {
+        return estimatedBytes.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public OptionalLong findContentHashById(String id) {
+        Slot slot = id == null ? null : index.get(id);
+        return slot == null ? OptionalLong.empty() : OptionalLong.of(slot.contentHash());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Roughly estimates the heap retained by a stored entity, including its index entries.
+     *
+     * @param entity the entity
+     * @return the estimated size in bytes
+     */
+    static long estimateBytes(MetadataEntity entity) {
+        return INDEX_ENTRY_BYTES + CompactMetadata.estimatedBytes(entity);
+    }
+
+    private static long estimateBytes(CompactMetadata metadata) {
+        return INDEX_ENTRY_BYTES + metadata.estimatedBytes();
+    }
+
+    /**
+     * Stores an entity under a new sequence number. Requires the lock of its ID.
+     */
+    private void insert(MetadataEntity entity, CompactMetadata metadata, long contentHash) {
+        long position = sequence.incrementAndGet();
+        insertionOrder.put(position, metadata);
+        secondaryIndex.add(position, entity);
+        estimatedBytes.addAndGet(estimateBytes(metadata));
+        index.put(entity.getId(), new Slot(position, metadata, contentHash));
+        version.incrementAndGet();
+    }
+
+    /**
+     * Removes a stored entity from the secondary index, using its stored state and types. Requires the lock of its ID.
+     */
+    private void remove(long position, CompactMetadata metadata) {
+        secondaryIndex.remove(position, metadata.state(), metadata.entryTypeMask(), metadata.createdDatetime());
+    }
+
+    private Lock lockFor(String id) {
+        int hash = id.hashCode();
+        return locks[(hash ^ (hash >>> 16)) & (LOCK_STRIPES - 1)];
+    }
+
+    /**
+     * Encodes a sequence number as an opaque cursor.
+     *
+     * @param position the sequence number of the last entry of a page
+     * @return the cursor
+     */
+    static String encodeCursor(long position) {
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(Long.toString(position).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Decodes an opaque cursor back to a sequence number.
+     *
+     * @param cursor the cursor
+     * @return the sequence number of the last entry of the previous page
+     * @throws InvalidCursorException if the cursor is invalid
+     */
+    static long decodeCursor(String cursor) {
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+
+    /**
+     * Index entry pairing a stored entity with its insertion sequence number and content hash.
+     *
+     * @param sequence the insertion sequence number
+     * @param metadata the stored entity
+     * @param contentHash the content hash of the entity
+     */
+    private record Slot(long sequence, CompactMetadata metadata, long contentHash) {
+    }
+}
+
+/**
+ * Secondary indexes over the insertion sequence numbers of the stored entities. Every value of the small
+ * {@link MetadataState} and {@link EntryType} domains gets a {@link SequenceBitmap}, so membership costs about a bit
+ * per entity and a filtered page is read in insertion order starting right after the cursor. Combined filters are
+ * intersected by leapfrogging between the two bitmaps, skipping ranges that cannot match. Creation times are kept
+ * in a sorted tree, so a time range is found in O(log n) and read in creation time order, checking the other
+ * criteria against the bitmaps as it goes.
+ * The owning repository updates the index together with its primary store.
+ */
+class MetadataSecondaryIndex {
+    private static final EntryType[] TYPES = EntryType.values();
+
+    private final Map<MetadataState, SequenceBitmap> byState = new EnumMap<>(MetadataState.class);
+    private final Map<EntryType, SequenceBitmap> byEntryType = new EnumMap<>(EntryType.class);
+    private final NavigableSet<TimeKey> byCreatedDatetime = new TreeSet<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Creates an empty index.
+     */
+    MetadataSecondaryIndex() {
+        for (MetadataState state : MetadataState.values()) {
+            byState.put(state, new SequenceBitmap());
+        }
+        for (EntryType type : EntryType.values()) {
+            byEntryType.put(type, new SequenceBitmap());
+        }
+    }
+
+    /**
+     * Indexes an entity.
+     *
+     * @param position the insertion sequence number of the entity
+     * @param entity the entity
+     */
+    void add(long position, MetadataEntity entity) {
+        lock.writeLock().lock();
+        try {
+            if (entity.getInfo() != null && entity.getInfo().getState() != null) {
+                byState.get(entity.getInfo().getState()).set(position);
+            }
+            if (entity.getInfo() != null && entity.getInfo().getCreatedDatetime() != null) {
+                byCreatedDatetime.add(TimeKey.of(entity.getInfo().getCreatedDatetime(), position));
+            }
+            if (entity.getEntries() != null) {
+                for (EntryEntity entry : entity.getEntries()) {
+                    if (entry.getType() != null) {
+                        byEntryType.get(entry.getType()).set(position);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes an entity from every index.
+     *
+     * @param position the insertion sequence number of the entity
+     * @param entity the entity as it was indexed
+     */
+    void remove(long position, MetadataEntity entity) {
+        InfoEntity info = entity.getInfo();
+        int entryTypes = 0;
+        if (entity.getEntries() != null) {
+            for (EntryEntity entry : entity.getEntries()) {
+                if (entry.getType() != null) {
+                    entryTypes |= 1 << entry.getType().ordinal();
+                }
+            }
+        }
+        remove(position, info != null ? info.getState() : null, entryTypes, info != null ? info.getCreatedDatetime() : null);
+    }
+
+    /**
+     * Removes an entity from the indexes of its state, entry types and creation time.
+     *
+     * @param position the insertion sequence number of the entity
+     * @param state the state the entity was indexed with, or null
+     * @param entryTypes the entry types the entity was indexed with, as a bit set of their ordinals
+     * @param createdDatetime the creation time the entity was indexed with, or null
+     */
+    void remove(long position, MetadataState state, int entryTypes, LocalDateTime createdDatetime) {
+        lock.writeLock().lock();
+        try {
+            if (state != null) {
+                byState.get(state).clear(position);
+            }
+            for (EntryType type : TYPES) {
+                if ((entryTypes & 1 << type.ordinal()) != 0) {
+                    byEntryType.get(type).clear(position);
+                }
+            }
+            if (createdDatetime != null) {
+                byCreatedDatetime.remove(TimeKey.of(createdDatetime, position));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes every entity from the index.
+     */
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            byState.values().forEach(SequenceBitmap::clear);
+            byEntryType.values().forEach(SequenceBitmap::clear);
+            byCreatedDatetime.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds a page of the positions of the entities matching a non-empty filter.
+     *
+     * @param filter the filter
+     * @param cursor the cursor returned with the previous page of the same filter, or null for the first page
+     * @param limit the maximum number of positions to return
+     * @return the matching positions and the cursor of the next page
+     * @throws InvalidCursorException if the cursor is invalid
+     */
+    Page<Long> find(MetadataFilter filter, String cursor, int limit) {
+        lock.readLock().lock();
+        try {
+            return filter.hasTimeRange() ? findByTime(filter, cursor, limit) : findBySequence(filter, cursor, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Page<Long> findBySequence(MetadataFilter filter, String cursor, int limit) {
+        SequenceBitmap first = filter.state() != null ? byState.get(filter.state()) : byEntryType.get(filter.entryType());
+        SequenceBitmap second = filter.state() != null && filter.entryType() != null ? byEntryType.get(filter.entryType()) : null;
+        List<Long> positions = new ArrayList<>(Math.min(limit, 1024));
+        long candidate = first.next(cursor == null ? 0 : MetadataRepositoryImpl.decodeCursor(cursor) + 1);
+        while (candidate >= 0) {
+            long match = second == null ? candidate : second.next(candidate);
+            if (match < 0) {
+                break;
+            }
+            if (match == candidate) {
+                if (positions.size() == limit) {
+                    return new Page<>(positions, MetadataRepositoryImpl.encodeCursor(positions.get(limit - 1)));
+                }
+                positions.add(candidate);
+                candidate = first.next(candidate + 1);
+            } else {
+                candidate = first.next(match);
+            }
+        }
+        return new Page<>(positions, null);
+    }
+
+    private Page<Long> findByTime(MetadataFilter filter, String cursor, int limit) {
+        NavigableSet<TimeKey> range = byCreatedDatetime;
+        TimeKey lower = filter.from() != null ? TimeKey.of(filter.from(), Long.MIN_VALUE) : null;
+        TimeKey after = cursor != null ? TimeKey.decode(cursor) : null;
+        if (after != null && (lower == null || after.compareTo(lower) >= 0)) {
+            range = range.tailSet(after, false);
+        } else if (lower != null) {
+            range = range.tailSet(lower, true);
+        }
+        if (filter.to() != null) {
+            range = range.headSet(TimeKey.of(filter.to(), Long.MIN_VALUE), false);
+        }
+        SequenceBitmap state = filter.state() != null ? byState.get(filter.state()) : null;
+        SequenceBitmap entryType = filter.entryType() != null ? byEntryType.get(filter.entryType()) : null;
+        List<Long> positions = new ArrayList<>(Math.min(limit, 1024));
+        TimeKey last = null;
+        for (TimeKey key : range) {
+            if ((state != null && !state.get(key.position())) || (entryType != null && !entryType.get(key.position()))) {
+                continue;
+            }
+            if (positions.size() == limit) {
+                return new Page<>(positions, last.encode());
+            }
+            positions.add(key.position());
+            last = key;
+        }
+        return new Page<>(positions, null);
+    }
+
+    /**
+     * Creation time index key; ties are broken by insertion order.
+     *
+     * @param epochSecond the creation time in seconds since the epoch, taken as UTC
+     * @param nano the nanosecond of the second
+     * @param position the insertion sequence number
+     */
+    private record TimeKey(long epochSecond, int nano, long position) implements Comparable<TimeKey> {
+        static TimeKey of(LocalDateTime time, long position) {
+            return new TimeKey(time.toEpochSecond(ZoneOffset.UTC), time.getNano(), position);
+        }
+
+        /**
+         * Decodes a cursor issued by {@link #encode()}.
+         *
+         * @throws InvalidCursorException if the cursor is invalid
+         */
+        static TimeKey decode(String cursor) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII).split("\\.");
+                if (parts.length != 3) {
+                    throw new InvalidCursorException(cursor);
+                }
+                return new TimeKey(Long.parseLong(parts[0]), Integer.parseInt(parts[1]), Long.parseLong(parts[2]));
+            } catch (IllegalArgumentException e) {
+                throw new InvalidCursorException(cursor);
+            }
+        }
+
+        String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((epochSecond + "." + nano + "." + position).getBytes(StandardCharsets.US_ASCII));
+        }
+
+        @Override
+        public int compareTo(TimeKey other) {
+            int result = Long.compare(epochSecond, other.epochSecond);
+            if (result == 0) {
+                result = Integer.compare(nano, other.nano);
+            }
+            return result != 0 ? result : Long.compare(position, other.position);
+        }
+    }
+}
+
+/**
+ * Sparse bitmap over non-negative sequence numbers, stored as chunks of 1024 bits. Chunks are created on first
+ * use and dropped once empty, so memory follows the live entries rather than every sequence number ever issued.
+ * Not thread-safe.
+ */
+final class SequenceBitmap {
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+    private static final int WORDS_PER_CHUNK = (1 << CHUNK_SHIFT) / Long.SIZE;
+
+    private final NavigableMap<Long, long[]> chunks = new TreeMap<>();
+
+    /**
+     * Sets a bit.
+     *
+     * @param position the bit to set
+     */
+    void set(long position) {
+        long[] words = chunks.computeIfAbsent(position >>> CHUNK_SHIFT, chunk -> new long[WORDS_PER_CHUNK]);
+        int bit = (int) (position & CHUNK_MASK);
+        words[bit >>> 6] |= 1L << bit;
+    }
+
+    /**
+     * Tells whether a bit is set.
+     *
+     * @param position the bit to test
+     * @return true if the bit is set
+     */
+    boolean get(long position) {
+        long[] words = chunks.get(position >>> CHUNK_SHIFT);
+        int bit = (int) (position & CHUNK_MASK);
+        return words != null && (words[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    /**
+     * Clears a bit, dropping its chunk if it becomes empty.
+     *
+     * @param position the bit to clear
+     */
+    void clear(long position) {
+        long[] words = chunks.get(position >>> CHUNK_SHIFT);
+        if (words == null) {
+            return;
+        }
+        int bit = (int) (position & CHUNK_MASK);
+        words[bit >>> 6] &= ~(1L << bit);
+        for (long word : words) {
+            if (word != 0) {
+                return;
+            }
+        }
+        chunks.remove(position >>> CHUNK_SHIFT);
+    }
+
+    /**
+     * Clears every bit.
+     */
+    void clear() {
+        chunks.clear();
+    }
+
+    /**
+     * Finds the first set bit at or after a position.
+     *
+     * @param from the first position to look at
+     * @return the first set bit, or -1 if there is none
+     */
+    long next(long from) {
+        long firstChunk = from >>> CHUNK_SHIFT;
+        for (Map.Entry<Long, long[]> chunk : chunks.tailMap(firstChunk, true).entrySet()) {
+            long[] words = chunk.getValue();
+            int start = chunk.getKey() == firstChunk ? (int) (from & CHUNK_MASK) : 0;
+            int word = start >>> 6;
+            long bits = words[word] & (-1L << start);
+            while (true) {
+                if (bits != 0) {
+                    return (chunk.getKey() << CHUNK_SHIFT) + ((long) word << 6) + Long.numberOfTrailingZeros(bits);
+                }
+                if (++word == WORDS_PER_CHUNK) {
+                    break;
+                }
+                bits = words[word];
+            }
+        }
+        return -1;
+    }
+}
+
+/**
+ * Metadata repository that makes every change durable in a {@link WriteAheadLog} before applying it to an
+ * in-memory {@link MetadataRepositoryImpl} index. On startup the newest snapshot is loaded and only the log
+ * written after it is replayed. Snapshots are taken periodically; each one starts a new log segment and lets
+ * the segments and snapshots before it be deleted, so recovery time stays bounded.
+ * Writes are serialized so the log order always matches the order the index saw; reads go straight to the index.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "metadata.storage", name = "mode", havingValue = "wal")
+class DurableMetadataRepository implements MetadataRepository, AutoCloseable {
+    private final MetadataRepositoryImpl index = new MetadataRepositoryImpl();
+    private final Lock writeLock = new ReentrantLock();
+    private final Lock snapshotLock = new ReentrantLock();
+    private final WriteAheadLog writeAheadLog;
+    private final SnapshotStore snapshotStore;
+    private final ScheduledExecutorService snapshotter;
+    private final Timer snapshotTimer;
+    private final DistributionSummary snapshotSize;
+
+    /**
+     * Loads the newest snapshot, replays the log written after it and schedules periodic snapshots.
+     *
+     * @param metadataProperties the application settings
+     * @param meterRegistry the registry for snapshot and recovery metrics
+     * @throws UncheckedIOException if the snapshot or log cannot be opened or read
+     */
+    DurableMetadataRepository(MetadataProperties metadataProperties, MeterRegistry meterRegistry) {
+        MetadataProperties.Wal settings = metadataProperties.getStorage().getWal();
+        this.snapshotTimer = Timer.builder("metadata.snapshot.duration")
+            .description("Time to write a snapshot of the metadata store")
+            .register(meterRegistry);
+        this.snapshotSize = DistributionSummary.builder("metadata.snapshot.size")
+            .description("Size of written metadata snapshots")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        try {
+            Files.createDirectories(settings.getDirectory());
+            snapshotStore = new SnapshotStore(settings.getDirectory());
+            long started = System.nanoTime();
+            long generation = snapshotStore.loadLatest(index::save);
+            long loaded = System.nanoTime();
+            writeAheadLog = WriteAheadLog.open(settings.getDirectory(), settings.getFsyncInterval(), settings.getFsyncBatchSize());
+            long records = writeAheadLog.replay(generation, index::save, index::deleteById);
+            long replayed = System.nanoTime();
+            recoveryTimer(meterRegistry, "snapshot").record(loaded - started, TimeUnit.NANOSECONDS);
+            recoveryTimer(meterRegistry, "log").record(replayed - loaded, TimeUnit.NANOSECONDS);
+            log.info("Recovered {} metadata entries from snapshot {} in {} ms and {} log records in {} ms",
+                index.count(), generation, TimeUnit.NANOSECONDS.toMillis(loaded - started),
+                records, TimeUnit.NANOSECONDS.toMillis(replayed - loaded));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open metadata store in " + settings.getDirectory(), e);
+        }
+        this.snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metadata-snapshotter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = settings.getSnapshotInterval().toMillis();
+        if (intervalMillis > 0) {
+            snapshotter.scheduleWithFixedDelay(this::snapshotQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MetadataEntity save(MetadataEntity entity) {
+        Objects.requireNonNull(entity.getId(), "Metadata id must not be null");
+        byte[] record = WriteAheadLog.saveRecord(entity);
+        writeLock.lock();
+        try {
+            writeAheadLog.append(List.of(record));
+            return index.save(entity);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<MetadataEntity> saveIfAbsent(MetadataEntity entity) {
+        Objects.requireNonNull(entity.getId(), "Metadata id must not be null");
+        byte[] record = WriteAheadLog.saveRecord(entity);
+        writeLock.lock();
+        try {
+            if (index.findContentHashById(entity.getId()).isPresent()) {
+                // Only a conflict pays for rebuilding the stored entity
+                return index.findById(entity.getId());
+            }
+            writeAheadLog.append(List.of(record));
+            index.save(entity);
+            return Optional.empty();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * The accepted entities of the batch are written to the log with a single append.
+     */
+    @Override
+    public List<MetadataEntity> saveAllIfAbsent(List<MetadataEntity> entities) {
+        Map<String, byte[]> records = new HashMap<>();
+        for (MetadataEntity entity : entities) {
+            Objects.requireNonNull(entity.getId(), "Metadata id must not be null");
+            records.putIfAbsent(entity.getId(), WriteAheadLog.saveRecord(entity));
+        }
+        writeLock.lock();
+        try {
+            List<MetadataEntity> accepted = new ArrayList<>(entities.size());
+            List<MetadataEntity> duplicates = new ArrayList<>();
+            Set<String> acceptedIds = new HashSet<>();
+            for (MetadataEntity entity : entities) {
+                if (index.findContentHashById(entity.getId()).isPresent() || !acceptedIds.add(entity.getId())) {
+                    duplicates.add(entity);
+                } else {
+                    accepted.add(entity);
+                }
+            }
+            writeAheadLog.append(accepted.stream().map(entity -> records.get(entity.getId())).toList());
+            accepted.forEach(index::save);
+            return duplicates;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteById(String id) {
+        if (id == null) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            if (index.findContentHashById(id).isPresent()) {
+                writeAheadLog.append(List.of(WriteAheadLog.deleteRecord(id)));
+                index.deleteById(id);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<MetadataEntity> findById(String id) {
+        return index.findById(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<MetadataEntity> findAll() {
+        return index.findAll();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Page<MetadataEntity> findAll(String cursor, int limit) {
+        return index.findAll(cursor, limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Page<MetadataEntity> findAll(MetadataFilter filter, String cursor, int limit) {
+        return index.findAll(filter, cursor, limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<MetadataEntity> streamAll() {
+        return index.streamAll();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long count() {
+        return index.count();
+    }
+
+    /**
+     * {@inheritDoc}
+     * Counts the in-memory copy only, not the log and snapshot files.
+     */
+    @Override
+    public long estimatedBytes() {
+        return index.estimatedBytes();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public OptionalLong findContentHashById(String id) {
+        return index.findContentHashById(id);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Recovery replays every entity into a new index, so the version restarts while the content hashes do not.
+     */
+    @Override
+    public long version() {
+        return index.version();
+    }
+
+    /**
+     * Writes a snapshot of all live entities and deletes the log segments and snapshots it replaces.
+     * Writers are only blocked while the log is rotated and the last sequence number is read. The snapshot then
+     * reads the entities up to that number while writers carry on, so it may already hold some of the changes
+     * logged after the rotation; replaying them again on recovery leaves each entity as it was last written.
+     * Does nothing if nothing was logged since the last snapshot.
+     *
+     * @return true if a snapshot was written
+     * @throws IOException if the snapshot cannot be written
+     */
+    boolean snapshot() throws IOException {
+        snapshotLock.lock();
+        try {
+            long generation;
+            long lastSequence;
+            writeLock.lock();
+            try {
+                if (writeAheadLog.isActiveSegmentEmpty()) {
+                    return false;
+                }
+                generation = writeAheadLog.rotate();
+                lastSequence = index.lastSequence();
+            } finally {
+                writeLock.unlock();
+            }
+            long started = System.nanoTime();
+            SnapshotStore.Written written = snapshotStore.write(generation, index.streamUpTo(lastSequence));
+            long elapsed = System.nanoTime() - started;
+            snapshotTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            snapshotSize.record(written.bytes());
+            writeAheadLog.deleteSegmentsBefore(generation);
+            snapshotStore.deleteBefore(generation);
+            log.info("Wrote snapshot {} with {} metadata entries ({} bytes) in {} ms",
+                generation, written.entities(), written.bytes(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+            return true;
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Stops periodic snapshots, then syncs and closes the log.
+     *
+     * @throws IOException if the final sync fails
+     */
+    @Override
+    public void close() throws IOException {
+        snapshotter.shutdown();
+        snapshotLock.lock();
+        writeLock.lock();
+        try {
+            writeAheadLog.close();
+        } finally {
+            writeLock.unlock();
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Periodic snapshot task; failures are logged and retried on the next run.
+     */
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to write metadata snapshot", e);
+        }
+    }
+
+    private static Timer recoveryTimer(MeterRegistry meterRegistry, String phase) {
+        return Timer.builder("metadata.recovery.duration")
+            .description("Time to recover the metadata store on startup")
+            .tag("phase", phase)
+            .register(meterRegistry);
+    }
+}
+
+/**
+ * Append-only binary log of metadata changes, split into numbered segments ({@code metadata-<generation>.wal}).
+ * Each record is framed as {@code [int length][int crc32][byte type][payload]}, where length and checksum cover
+ * type and payload. Appends are handed to the OS right away, so they survive a process crash. The fsync that makes
+ * them survive a power loss is periodic: writers do not wait for it. It runs once the configured number of records
+ * is pending or when the configured interval elapses, whichever comes first, so at most that window of acknowledged
+ * writes can be lost on power failure. An append that fails, including the sync it triggers, is cut off the log
+ * again, so a write reported as failed is not replayed after a restart.
+ */
+@Slf4j
+class WriteAheadLog implements AutoCloseable {
+    static final byte SAVE = 1;
+    static final byte DELETE = 2;
+    static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 64 * 1024 * 1024;
+    private static final String SEGMENT_PREFIX = "metadata-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+
+    private final Path directory;
+    private final int fsyncBatchSize;
+    private final AtomicInteger unsynced = new AtomicInteger();
+    private final Lock channelLock = new ReentrantLock();
+    private final ScheduledExecutorService flusher;
+    private volatile FileChannel channel;
+    private long generation;
+
+    private WriteAheadLog(Path directory, long generation, Duration fsyncInterval, int fsyncBatchSize) throws IOException {
+        this.directory = directory;
+        this.generation = generation;
+        this.channel = openSegment(generation);
+        this.fsyncBatchSize = fsyncBatchSize;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metadata-wal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = Math.max(1, fsyncInterval.toMillis());
+        flusher.scheduleWithFixedDelay(this::syncQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens the newest segment in a directory, or creates the first one. {@link #replay} must be called before
+     * the first append.
+     *
+     * @param directory the log directory
+     * @param fsyncInterval the maximum time appended records stay unsynced
+     * @param fsyncBatchSize the number of pending records that triggers an immediate sync
+     * @return the opened log
+     * @throws IOException if the segment cannot be opened
+     */
+    static WriteAheadLog open(Path directory, Duration fsyncInterval, int fsyncBatchSize) throws IOException {
+        List<Long> generations = segmentGenerations(directory);
+        long generation = generations.isEmpty() ? 1 : generations.get(generations.size() - 1);
+        return new WriteAheadLog(directory, generation, fsyncInterval, fsyncBatchSize);
+    }
+
+    /**
+     * Resolves the file of a segment.
+     *
+     * @param directory the log directory
+     * @param generation the segment generation
+     * @return the segment file
+     */
+    static Path segmentFile(Path directory, long generation) {
+        return directory.resolve(String.format("%s%019d%s", SEGMENT_PREFIX, generation, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Encodes a save record.
+     *
+     * @param entity the saved entity
+     * @return the framed record
+     */
+    static byte[] saveRecord(MetadataEntity entity) {
+        return frame(SAVE, out -> MetadataEntityCodec.write(out, entity));
+    }
+
+    /**
+     * Encodes a delete record.
+     *
+     * @param id the deleted ID
+     * @return the framed record
+     */
+    static byte[] deleteRecord(String id) {
+        return frame(DELETE, out -> MetadataEntityCodec.writeString(out, id));
+    }
+
+    /**
+     * Reads every record of the segments from the given generation on and positions the log for appending after
+     * the last complete record. A torn or corrupt tail of the active segment, as left by a crash during an append,
+     * is logged and cut off. Older segments were synced when they were rotated out, so damage there is an error.
+     *
+     * @param fromGeneration the first generation to replay; older segments are covered by a snapshot
+     * @param onSave receives each saved entity in log order
+     * @param onDelete receives each deleted ID in log order
+     * @return the number of records replayed
+     * @throws IOException if a segment cannot be read or an older segment is damaged
+     */
+    long replay(long fromGeneration, Consumer<MetadataEntity> onSave, Consumer<String> onDelete) throws IOException {
+        long records = 0;
+        for (long segment : segmentGenerations(directory)) {
+            if (segment < fromGeneration || segment == generation) {
+                continue;
+            }
+            try (FileChannel older = FileChannel.open(segmentFile(directory, segment), StandardOpenOption.READ)) {
+                ReplayResult result = replaySegment(older, onSave, onDelete);
+                if (result.valid() < older.size()) {
+                    throw new IOException("Log segment " + segmentFile(directory, segment) + " is damaged at offset " + result.valid());
+                }
+                records += result.records();
+            }
+        }
+        ReplayResult result = replaySegment(channel, onSave, onDelete);
+        long size = channel.size();
+        if (result.valid() < size) {
+            log.warn("Discarding {} bytes of incomplete or corrupt records at the end of {}",
+                size - result.valid(), segmentFile(directory, generation));
+            channel.truncate(result.valid());
+            channel.force(true);
+        }
+        channel.position(result.valid());
+        return records + result.records();
+    }
+
+    /**
+     * Appends records with a single write. Triggers a sync when enough records are pending. If the write or that
+     * sync fails, the segment is truncated back to where the append started. Callers must not append concurrently.
+     *
+     * @param records the framed records
+     * @throws UncheckedIOException if the write or the sync fails
+     */
+    void append(List<byte[]> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        int size = 0;
+        for (byte[] record : records) {
+            size += record.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        records.forEach(buffer::put);
+        buffer.flip();
+        long start = -1;
+        try {
+            start = channel.position();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (unsynced.addAndGet(records.size()) >= fsyncBatchSize) {
+                sync();
+            }
+        } catch (IOException e) {
+            UncheckedIOException failure = new UncheckedIOException("Failed to append to " + segmentFile(directory, generation), e);
+            if (start >= 0) {
+                discardFrom(start, failure);
+            }
+            throw failure;
+        }
+    }
+
+    /**
+     * Cuts the records of a failed append off the active segment.
+     *
+     * @param start the position the append started at
+     * @param failure the append failure, which collects a failure to truncate
+     */
+    private void discardFrom(long start, UncheckedIOException failure) {
+        try {
+            channel.truncate(start);
+            channel.position(start);
+            channel.force(false);
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+            log.error("Failed to discard a failed append from {}; it may be replayed on restart",
+                segmentFile(directory, generation), e);
+        }
+    }
+
+    /**
+     * Tells whether nothing was appended to the active segment yet.
+     *
+     * @return true if the active segment is empty
+     * @throws IOException if the segment size cannot be read
+     */
+    boolean isActiveSegmentEmpty() throws IOException {
+        return channel.size() == 0;
+    }
+
+    /**
+     * Syncs and closes the active segment and starts a new one, syncing the directory so that the new segment
+     * survives a crash. Callers must not append concurrently.
+     *
+     * @return the generation of the new segment
+     * @throws IOException if the old segment cannot be synced or the new one cannot be created
+     */
+    long rotate() throws IOException {
+        channelLock.lock();
+        try {
+            unsynced.set(0);
+            channel.force(false);
+            channel.close();
+            generation++;
+            channel = openSegment(generation);
+            syncDirectory(directory);
+            return generation;
+        } finally {
+            channelLock.unlock();
+        }
+    }
+
+    /**
+     * Forces the entries of a directory to disk, so that files created, renamed or deleted in it stay that way
+     * after a crash.
+     *
+     * @param directory the directory
+     * @throws IOException if the sync fails
+     */
+    static void syncDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Deletes the segments older than the given generation.
+     *
+     * @param generation the oldest generation to keep
+     * @throws IOException if a segment cannot be deleted
+     */
+    void deleteSegmentsBefore(long generation) throws IOException {
+        for (long segment : segmentGenerations(directory)) {
+            if (segment < generation) {
+                Files.deleteIfExists(segmentFile(directory, segment));
+            }
+        }
+    }
+
+    /**
+     * Forces pending records to disk if there are any.
+     *
+     * @throws IOException if the sync fails
+     */
+    void sync() throws IOException {
+        channelLock.lock();
+        try {
+            int pending = unsynced.getAndSet(0);
+            if (pending > 0) {
+                try {
+                    channel.force(false);
+                } catch (IOException e) {
+                    unsynced.addAndGet(pending);
+                    throw e;
+                }
+            }
+        } finally {
+            channelLock.unlock();
+        }
+    }
+
+    /**
+     * Stops the periodic sync, syncs pending records and closes the active segment.
+     *
+     * @throws IOException if the final sync fails
+     */
+    @Override
+    public void close() throws IOException {
+        flusher.shutdown();
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Periodic sync task; failures are logged and retried on the next run.
+     */
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (IOException e) {
+            log.error("Failed to sync {}", segmentFile(directory, generation), e);
+        }
+    }
+
+    private FileChannel openSegment(long generation) throws IOException {
+        return FileChannel.open(segmentFile(directory, generation), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Lists the generations of the segments in a directory, oldest first.
+     *
+     * @param directory the log directory
+     * @return the segment generations
+     * @throws IOException if the directory cannot be listed
+     */
+    private static List<Long> segmentGenerations(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+                .sorted()
+                .toList();
+        }
+    }
+
+    /**
+     * Reads the complete, intact records of a segment from its start.
+     *
+     * @param segment the segment channel
+     * @param onSave receives each saved entity
+     * @param onDelete receives each deleted ID
+     * @return the number of records read and the length of the intact prefix
+     * @throws IOException if the segment cannot be read
+     */
+    private static ReplayResult replaySegment(FileChannel segment, Consumer<MetadataEntity> onSave, Consumer<String> onDelete) throws IOException {
+        long valid = 0;
+        long records = 0;
+        segment.position(0);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(segment), 1 << 16));
+        CRC32 crc = new CRC32();
+        while (true) {
+            int length;
+            int checksum;
+            byte[] payload;
+            try {
+                length = in.readInt();
+                checksum = in.readInt();
+                if (length < 1 || length > MAX_RECORD_BYTES) {
+                    break;
+                }
+                payload = in.readNBytes(length);
+                if (payload.length < length) {
+                    break;
+                }
+            } catch (EOFException e) {
+                break;
+            }
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload, 1, length - 1));
+            switch (payload[0]) {
+                case SAVE -> onSave.accept(MetadataEntityCodec.read(record));
+                case DELETE -> onDelete.accept(MetadataEntityCodec.readString(record));
+                default -> throw new IOException("Unknown record type " + payload[0] + " at offset " + valid);
+            }
+            valid += HEADER_BYTES + length;
+            records++;
+        }
+        return new ReplayResult(records, valid);
+    }
+
+    /**
+     * Frames a record with its length and checksum.
+     *
+     * @param type the record type
+     * @param body writes the record payload
+     * @return the framed record
+     */
+    private static byte[] frame(byte type, MetadataEntityCodec.Writer body) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeLong(0); // header placeholder
+            out.writeByte(type);
+            body.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] record = bytes.toByteArray();
+        int length = record.length - HEADER_BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(record, HEADER_BYTES, length);
+        ByteBuffer.wrap(record).putInt(length).putInt((int) crc.getValue());
+        return record;
+    }
+
+    /**
+     * Outcome of reading a segment.
+     *
+     * @param records the number of intact records
+     * @param valid the length of the intact prefix in bytes
+     */
+    private record ReplayResult(long records, long valid) {
+    }
+}
+
+/**
+ * Snapshot files of the live metadata set ({@code snapshot-<generation>.bin}). A snapshot of generation N holds
+ * the state before log segment N, possibly with some of the changes logged in segment N already applied. The format
+ * is {@code [int magic]([boolean true][entity])...[boolean false][long crc32]}, with entities in
+ * {@link MetadataEntityCodec} format and the checksum covering everything before it, so a snapshot can be written
+ * while the entities are still being read. Snapshots are written to a temporary file, renamed once synced and the
+ * rename synced as well, and are read back through memory mappings of at most 1 GB each.
+ */
+class SnapshotStore {
+    private static final int MAGIC = 0x4D534E32; // "MSN2"
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+    private static final int MAPPING_BYTES = 1 << 30;
+
+    private final Path directory;
+    private final int mappingBytes;
+
+    /**
+     * Creates a store for the given directory.
+     *
+     * @param directory the snapshot directory
+     */
+    SnapshotStore(Path directory) {
+        this(directory, MAPPING_BYTES);
+    }
+
+    /**
+     * Creates a store for the given directory that maps snapshots in pieces of the given size.
+     *
+     * @param directory the snapshot directory
+     * @param mappingBytes the maximum size of a single mapping
+     */
+    SnapshotStore(Path directory, int mappingBytes) {
+        this.directory = directory;
+        this.mappingBytes = mappingBytes;
+    }
+
+    /**
+     * Writes a snapshot and syncs the directory, so the snapshot survives a crash before anything it replaces
+     * is deleted.
+     *
+     * @param generation the generation of the log segment that follows the snapshot
+     * @param entities the live entities in insertion order, read while the snapshot is written
+     * @return the number of entities and the size of the snapshot
+     * @throws IOException if the snapshot cannot be written
+     */
+    Written write(long generation, Stream<MetadataEntity> entities) throws IOException {
+        Path target = snapshotFile(generation);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        long count = 0;
+        try (FileChannel file = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                new BufferedOutputStream(Channels.newOutputStream(file), 1 << 16), crc));
+            out.writeInt(MAGIC);
+            for (Iterator<MetadataEntity> iterator = entities.iterator(); iterator.hasNext(); count++) {
+                out.writeBoolean(true);
+                MetadataEntityCodec.write(out, iterator.next());
+            }
+            out.writeBoolean(false);
+            out.writeLong(crc.getValue());
+            out.flush();
+            file.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        WriteAheadLog.syncDirectory(directory);
+        return new Written(count, Files.size(target));
+    }
+
+    /**
+     * Loads the newest snapshot, if any, through memory mappings.
+     *
+     * @param onEntity receives each entity in insertion order
+     * @return the generation of the loaded snapshot, or 0 if there is none
+     * @throws IOException if the snapshot cannot be read or is damaged
+     */
+    long loadLatest(Consumer<MetadataEntity> onEntity) throws IOException {
+        List<Long> generations = generations();
+        if (generations.isEmpty()) {
+            return 0;
+        }
+        long generation = generations.get(generations.size() - 1);
+        Path file = snapshotFile(generation);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long payload = channel.size() - Long.BYTES;
+            if (payload < Integer.BYTES + 1) {
+                throw new IOException("Snapshot " + file + " is damaged");
+            }
+            List<ByteBuffer> mappings = new ArrayList<>();
+            CRC32 crc = new CRC32();
+            for (long offset = 0; offset < payload; offset += mappingBytes) {
+                MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(mappingBytes, payload - offset));
+                crc.update(mapping.duplicate());
+                mappings.add(mapping);
+            }
+            long checksum = channel.map(FileChannel.MapMode.READ_ONLY, payload, Long.BYTES).getLong();
+            DataInputStream in = new DataInputStream(new SequenceInputStream(
+                Collections.enumeration(mappings.stream().map(ByteBufferInputStream::new).toList())));
+            if (checksum != crc.getValue() || in.readInt() != MAGIC) {
+                throw new IOException("Snapshot " + file + " is damaged");
+            }
+            while (in.readBoolean()) {
+                onEntity.accept(MetadataEntityCodec.read(in));
+            }
+        }
+        return generation;
+    }
+
+    /**
+     * Deletes the snapshots older than the given generation.
+     *
+     * @param generation the oldest generation to keep
+     * @throws IOException if a snapshot cannot be deleted
+     */
+    void deleteBefore(long generation) throws IOException {
+        for (long older : generations()) {
+            if (older < generation) {
+                Files.deleteIfExists(snapshotFile(older));
+            }
+        }
+    }
+
+    private Path snapshotFile(long generation) {
+        return directory.resolve(String.format("%s%019d%s", PREFIX, generation, SUFFIX));
+    }
+
+    private List<Long> generations() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                .map(name -> Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())))
+                .sorted()
+                .toList();
+        }
+    }
+
+    /**
+     * Outcome of writing a snapshot.
+     *
+     * @param entities the number of entities written
+     * @param bytes the size of the snapshot file
+     */
+    record Written(long entities, long bytes) {
+    }
+}
+
+/**
+ * Input stream over the remaining bytes of a buffer, used to decode memory-mapped files without copying them
+ * onto the heap first.
+ */
+class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    /**
+     * Creates a stream reading from the buffer's position to its limit.
+     *
+     * @param buffer the buffer
+     */
+    ByteBufferInputStream(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+        return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        int count = Math.min(length, buffer.remaining());
+        buffer.get(bytes, offset, count);
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+}
+
+/**
+ * Metadata repository that keeps entities off the heap. Each entity is encoded with {@link MetadataEntityCodec}
+ * and appended to memory-mapped segment files as {@code [int length][long sequence][long content hash][payload]};
+ * the heap only holds the id and location index. Entities are decoded on every read, so callers always get a fresh copy.
+ * Replacing or deleting an entity leaves its old record behind as garbage; a background task copies the live
+ * records out of segments that are mostly garbage and frees them. The segment files are scratch space deleted
+ * on close, so this mode is not durable across restarts.
+ * Reads share a read lock; writes and compaction take the write lock, so a location is never read while it moves.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "metadata.storage", name = "mode", havingValue = "mapped")
+class MappedMetadataRepository implements MetadataRepository, AutoCloseable {
+    private static final int HASH_OFFSET = Integer.BYTES + Long.BYTES;
+    private static final int RECORD_HEADER_BYTES = HASH_OFFSET + Long.BYTES;
+
+    private final Map<String, Long> index = new ConcurrentHashMap<>();
+    private final NavigableMap<Long, Long> locations = new ConcurrentSkipListMap<>();
+    private final MetadataSecondaryIndex secondaryIndex = new MetadataSecondaryIndex();
+    private final Map<Integer, Segment> segments = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Path directory;
+    private final int segmentBytes;
+    private final double compactionThreshold;
+    private final ScheduledExecutorService compactor;
+    private Segment active;
+    private int nextSegmentId;
+    private long sequence;
+    private volatile long version;
+
+    /**
+     * Creates an empty repository and schedules background compaction.
+     *
+     * @param metadataProperties the application settings
+     * @throws UncheckedIOException if the segment directory cannot be created
+     */
+    MappedMetadataRepository(MetadataProperties metadataProperties) {
+        MetadataProperties.Mapped settings = metadataProperties.getStorage().getMapped();
+        this.directory = settings.getDirectory();
+        this.segmentBytes = Math.toIntExact(settings.getSegmentSize().toBytes());
+        this.compactionThreshold = settings.getCompactionThreshold();
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create segment directory " + directory, e);
+        }
+        this.compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metadata-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = settings.getCompactionInterval().toMillis();
+        if (intervalMillis > 0) {
+            compactor.scheduleWithFixedDelay(this::compactQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * The entity is copied; later changes to it are not stored.
+     */
+    @Override
+    public MetadataEntity save(MetadataEntity entity) {
+        Objects.requireNonNull(entity.getId(), "Metadata id must not be null");
+        byte[] payload = encode(entity);
+        lock.writeLock().lock();
+        try {
+            Long position = index.get(entity.getId());
+            if (position == null) {
+                insert(entity.getId(), payload, entity);
+            } else {
+                long previous = locations.get(position);
+                secondaryIndex.remove(position, read(previous));
+                release(previous);
+                locations.put(position, append(position, MetadataEntityCodec.contentHash(payload), payload));
+                secondaryIndex.add(position, entity);
+                version++;
+            }
+            return entity;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<MetadataEntity> saveIfAbsent(MetadataEntity entity) {
+        Objects.requireNonNull(entity.getId(), "Metadata id must not be null");
+        byte[] payload = encode(entity);
+        lock.writeLock().lock();
+        try {
+            Long position = index.get(entity.getId());
+            if (position != null) {
+                return Optional.of(read(locations.get(position)));
+            }
+            insert(entity.getId(), payload, entity);
+            return Optional.empty();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<MetadataEntity> saveAllIfAbsent(List<MetadataEntity> entities) {
+        List<byte[]> payloads = new ArrayList<>(entities.size());
+        for (MetadataEntity entity : entities) {
+            Objects.requireNonNull(entity.getId(), "Metadata id must not be null");
+            payloads.add(encode(entity));
+        }
+        lock.writeLock().lock();
+        try {
+            List<MetadataEntity> duplicates = new ArrayList<>();
+            for (int i = 0; i < entities.size(); i++) {
+                MetadataEntity entity = entities.get(i);
+                if (index.containsKey(entity.getId())) {
+                    duplicates.add(entity);
+                } else {
+                    insert(entity.getId(), payloads.get(i), entity);
+                }
+            }
+            return duplicates;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteById(String id) {
+        if (id == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Long position = index.remove(id);
+            if (position != null) {
+                long location = locations.remove(position);
+                secondaryIndex.remove(position, read(location));
+                release(location);
+                version++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<MetadataEntity> findById(String id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        lock.readLock().lock();
+        try {
+            Long position = index.get(id);
+            return position == null ? Optional.empty() : Optional.of(read(locations.get(position)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<MetadataEntity> findAll() {
+        lock.readLock().lock();
+        try {
+            List<MetadataEntity> entities = new ArrayList<>(locations.size());
+            for (long location : locations.values()) {
+                entities.add(read(location));
+            }
+            return entities;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Page<MetadataEntity> findAll(String cursor, int limit) {
+        NavigableMap<Long, Long> remaining = cursor == null
+            ? locations
+            : locations.tailMap(MetadataRepositoryImpl.decodeCursor(cursor), false);
+        lock.readLock().lock();
+        try {
+            List<MetadataEntity> content = new ArrayList<>(Math.min(limit, 1024));
+            long last = 0;
+            for (Map.Entry<Long, Long> entry : remaining.entrySet()) {
+                if (content.size() == limit) {
+                    return new Page<>(content, MetadataRepositoryImpl.encodeCursor(last));
+                }
+                content.add(read(entry.getValue()));
+                last = entry.getKey();
+            }
+            return new Page<>(content, null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Page<MetadataEntity> findAll(MetadataFilter filter, String cursor, int limit) {
+        if (filter.isEmpty()) {
+            return findAll(cursor, limit);
+        }
+        lock.readLock().lock();
+        try {
+            Page<Long> positions = secondaryIndex.find(filter, cursor, limit);
+            List<MetadataEntity> content = new ArrayList<>(positions.content().size());
+            for (Long position : positions.content()) {
+                content.add(read(locations.get(position)));
+            }
+            return new Page<>(content, positions.nextCursor());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * Entities are decoded one at a time as the stream is consumed.
+     */
+    @Override
+    public Stream<MetadataEntity> streamAll() {
+        return locations.keySet().stream()
+            .map(this::readPosition)
+            .filter(Objects::nonNull);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long count() {
+        return index.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     * Counts the live records in the mapped segments, excluding garbage that has not been compacted yet.
+     */
+    @Override
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            return segments.values().stream().mapToLong(segment -> segment.size - segment.garbage).sum();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * Read from the record header, without decoding the entity.
+     */
+    @Override
+    public OptionalLong findContentHashById(String id) {
+        if (id == null) {
+            return OptionalLong.empty();
+        }
+        lock.readLock().lock();
+        try {
+            Long position = index.get(id);
+            if (position == null) {
+                return OptionalLong.empty();
+            }
+            long location = locations.get(position);
+            return OptionalLong.of(segments.get(segmentId(location)).buffer.getLong(offset(location) + HASH_OFFSET));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Copies the live records out of every full segment whose share of garbage has reached the compaction
+     * threshold, then frees it. Segments are compacted one at a time, each under the write lock.
+     *
+     * @return the number of freed segments
+     */
+    int compact() {
+        List<Segment> candidates;
+        lock.readLock().lock();
+        try {
+            candidates = segments.values().stream()
+                .filter(segment -> segment != active && segment.garbage >= segment.size * compactionThreshold)
+                .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (Segment segment : candidates) {
+            lock.writeLock().lock();
+            try {
+                for (int offset = 0; offset < segment.size; ) {
+                    int length = segment.buffer.getInt(offset);
+                    long position = segment.buffer.getLong(offset + Integer.BYTES);
+                    if (Objects.equals(locations.get(position), location(segment.id, offset))) {
+                        long contentHash = segment.buffer.getLong(offset + HASH_OFFSET);
+                        byte[] payload = new byte[length];
+                        segment.buffer.get(offset + RECORD_HEADER_BYTES, payload);
+                        locations.put(position, append(position, contentHash, payload));
+                    }
+                    offset += RECORD_HEADER_BYTES + length;
+                }
+                segments.remove(segment.id);
+                segment.close();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.debug("Compacted metadata segment {} ({} of {} bytes were garbage)", segment.id, segment.garbage, segment.size);
+        }
+        return candidates.size();
+    }
+
+    /**
+     * Stops compaction and deletes all segment files.
+     */
+    @Override
+    public void close() {
+        compactor.shutdown();
+        lock.writeLock().lock();
+        try {
+            segments.values().forEach(Segment::close);
+            segments.clear();
+            active = null;
+            index.clear();
+            locations.clear();
+            secondaryIndex.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Periodic compaction task; failures are logged and retried on the next run.
+     */
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            log.error("Failed to compact metadata segments", e);
+        }
+    }
+
+    /**
+     * Stores a new entity at the end of the insertion order. Requires the write lock.
+     */
+    private void insert(String id, byte[] payload, MetadataEntity entity) {
+        long position = ++sequence;
+        locations.put(position, append(position, MetadataEntityCodec.contentHash(payload), payload));
+        secondaryIndex.add(position, entity);
+        index.put(id, position);
+        version++;
+    }
+
+    /**
+     * Appends a record to the active segment, starting a new segment if it does not fit. Requires the write lock.
+     *
+     * @return the location of the record
+     */
+    private long append(long position, long contentHash, byte[] payload) {
+        int recordBytes = RECORD_HEADER_BYTES + payload.length;
+        if (active == null || active.size + recordBytes > active.buffer.capacity()) {
+            active = newSegment(Math.max(segmentBytes, recordBytes));
+        }
+        int offset = active.size;
+        active.buffer.putInt(offset, payload.length);
+        active.buffer.putLong(offset + Integer.BYTES, position);
+        active.buffer.putLong(offset + HASH_OFFSET, contentHash);
+        active.buffer.put(offset + RECORD_HEADER_BYTES, payload);
+        active.size += recordBytes;
+        return location(active.id, offset);
+    }
+
+    /**
+     * Marks the record at a location as garbage. Requires the write lock.
+     */
+    private void release(long location) {
+        Segment segment = segments.get(segmentId(location));
+        segment.garbage += RECORD_HEADER_BYTES + segment.buffer.getInt(offset(location));
+    }
+
+    /**
+     * Decodes the entity at a location. Requires the read or write lock.
+     */
+    private MetadataEntity read(long location) {
+        Segment segment = segments.get(segmentId(location));
+        int offset = offset(location);
+        int length = segment.buffer.getInt(offset);
+        try {
+            return MetadataEntityCodec.read(new DataInputStream(new ByteBufferInputStream(
+                segment.buffer.slice(offset + RECORD_HEADER_BYTES, length))));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt metadata record in segment " + segment.id + " at offset " + offset, e);
+        }
+    }
+
+    /**
+     * Decodes the entity with a sequence number, or returns null if it was deleted.
+     */
+    private MetadataEntity readPosition(long position) {
+        lock.readLock().lock();
+        try {
+            Long location = locations.get(position);
+            return location == null ? null : read(location);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Creates and maps a new segment file. Requires the write lock.
+     */
+    private Segment newSegment(int capacity) {
+        int id = nextSegmentId++;
+        try {
+            Path file = Files.createTempFile(directory, "metadata-", ".seg");
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+            Segment segment = new Segment(id, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity));
+            segments.put(id, segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create metadata segment in " + directory, e);
+        }
+    }
+
+    private static byte[] encode(MetadataEntity entity) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try {
+            MetadataEntityCodec.write(new DataOutputStream(bytes), entity);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static long location(int segmentId, int offset) {
+        return ((long) segmentId << 32) | offset;
+    }
+
+    private static int segmentId(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int offset(long location) {
+        return (int) location;
+    }
+
+    /**
+     * Memory-mapped segment file. Records are appended up to the mapped capacity.
+     */
+    private static final class Segment {
+        private final int id;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int size;
+        private long garbage;
+
+        private Segment(int id, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Closes the channel, which deletes the file. The mapping is released once the buffer is collected.
+         */
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Failed to close metadata segment {}", id, e);
+            }
+        }
+    }
+}
+
+/**
+ * Compact binary encoding of {@link MetadataEntity} used by the persistent storage modes.
+ * Strings are written as a length-prefixed UTF-8 array, enums as ordinals, dates as epoch day and times as
+ * nano of day; nullable values carry a presence marker.
+ */
+final class MetadataEntityCodec {
+    private static final int NULL = -1;
+
+    private MetadataEntityCodec() {
+    }
+
+    /**
+     * Writes part of a record.
+     */
+    @FunctionalInterface
+    interface Writer {
+        /**
+         * Writes to the given output.
+         *
+         * @param out the output
+         * @throws IOException if writing fails
+         */
+        void write(DataOutput out) throws IOException;
+    }
+
+    /**
+     * Writes an entity.
+     *
+     * @param out the output
+     * @param entity the entity
+     * @throws IOException if writing fails
+     */
+    static void write(DataOutput out, MetadataEntity entity) throws IOException {
+        writeString(out, entity.getId());
+        writeString(out, entity.getName());
+        writeString(out, entity.getDescription());
+        InfoEntity info = entity.getInfo();
+        out.writeBoolean(info != null);
+        if (info != null) {
+            out.writeByte(info.getState() != null ? info.getState().ordinal() : NULL);
+            out.writeBoolean(info.getCreatedDate() != null);
+            if (info.getCreatedDate() != null) {
+                out.writeLong(info.getCreatedDate().toEpochDay());
+            }
+            out.writeBoolean(info.getCreatedTime() != null);
+            if (info.getCreatedTime() != null) {
+                out.writeLong(info.getCreatedTime().toNanoOfDay());
+            }
+            out.writeBoolean(info.getCreatedDatetime() != null);
+            if (info.getCreatedDatetime() != null) {
+                out.writeLong(info.getCreatedDatetime().toLocalDate().toEpochDay());
+                out.writeLong(info.getCreatedDatetime().toLocalTime().toNanoOfDay());
+            }
+        }
+        List<EntryEntity> entries = entity.getEntries();
+        out.writeInt(entries != null ? entries.size() : NULL);
+        if (entries != null) {
+            for (EntryEntity entry : entries) {
+                writeString(out, entry.getName());
+                out.writeBoolean(entry.getCount() != null);
+                if (entry.getCount() != null) {
+                    out.writeInt(entry.getCount());
+                }
+                out.writeByte(entry.getType() != null ? entry.getType().ordinal() : NULL);
+            }
+        }
+    }
+
+    /**
+     * Hashes the encoding of an entity without buffering it. Equal content always gives the same hash, in every
+     * storage mode and across restarts, which makes it usable as a strong entity tag.
+     *
+     * @param entity the entity
+     * @return the content hash
+     */
+    static long contentHash(MetadataEntity entity) {
+        ContentHash hash = new ContentHash();
+        try {
+            write(new DataOutputStream(hash), entity);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return hash.value();
+    }
+
+    /**
+     * Hashes an entity that is already encoded; gives the same result as {@link #contentHash(MetadataEntity)}.
+     *
+     * @param encoded the output of {@link #write(DataOutput, MetadataEntity)}
+     * @return the content hash
+     */
+    static long contentHash(byte[] encoded) {
+        ContentHash hash = new ContentHash();
+        hash.write(encoded, 0, encoded.length);
+        return hash.value();
+    }
+
+    /**
+     * Reads an entity written by {@link #write(DataOutput, MetadataEntity)}.
+     *
+     * @param in the input
+     * @return the entity
+     * @throws IOException if reading fails
+     */
+    static MetadataEntity read(DataInput in) throws IOException {
+        MetadataEntity entity = new MetadataEntity();
+        entity.setId(readString(in));
+        entity.setName(readString(in));
+        entity.setDescription(readString(in));
+        if (in.readBoolean()) {
+            InfoEntity info = new InfoEntity();
+            byte state = in.readByte();
+            info.setState(state != NULL ? MetadataState.values()[state] : null);
+            if (in.readBoolean()) {
+                info.setCreatedDate(LocalDate.ofEpochDay(in.readLong()));
+            }
+            if (in.readBoolean()) {
+                info.setCreatedTime(LocalTime.ofNanoOfDay(in.readLong()));
+            }
+            if (in.readBoolean()) {
+                info.setCreatedDatetime(LocalDateTime.of(LocalDate.ofEpochDay(in.readLong()), LocalTime.ofNanoOfDay(in.readLong())));
+            }
+            entity.setInfo(info);
+        }
+        int size = in.readInt();
+        if (size != NULL) {
+            List<EntryEntity> entries = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                EntryEntity entry = new EntryEntity();
+                entry.setName(readString(in));
+                if (in.readBoolean()) {
+                    entry.setCount(in.readInt());
+                }
+                byte type = in.readByte();
+                entry.setType(type != NULL ? EntryType.values()[type] : null);
+                entries.add(entry);
+            }
+            entity.setEntries(entries);
+        }
+        return entity;
+    }
+
+    /**
+     * Writes a nullable string as a length-prefixed UTF-8 array.
+     *
+     * @param out the output
+     * @param value the string, may be null
+     * @throws IOException if writing fails
+     */
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutput, String)}.
+     *
+     * @param in the input
+     * @return the string, may be null
+     * @throws IOException if reading fails
+     */
+    static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length == NULL) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 64-bit FNV-1a over the bytes written, finished with the MurmurHash3 mixing step so that small differences
+     * spread over all bits. Fast rather than cryptographic.
+     */
+    private static final class ContentHash extends OutputStream {
+        private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+        private static final long PRIME = 0x100000001b3L;
+
+        private long hash = OFFSET_BASIS;
+
+        @Override
+        public void write(int b) {
+            hash = (hash ^ (b & 0xff)) * PRIME;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            long h = hash;
+            for (int i = offset; i < offset + length; i++) {
+                h = (h ^ (bytes[i] & 0xff)) * PRIME;
+            }
+            hash = h;
+        }
+
+        long value() {
+            long h = hash;
+            h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+            h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+            return h ^ (h >>> 33);
+        }
+    }
+}
+
+/* -- Exception handler -- */
+
+@Slf4j
+@ControllerAdvice
+class GlobalExceptionHandler {
+    /**
+     * Handles MetadataNotFoundException and returns a ProblemDetail response.
+     *
+     * @param e the exception that was thrown
+     * @return ProblemDetail with status 404 (NOT_FOUND) and the exception message
+     */
+    @ExceptionHandler(MetadataNotFoundException.class)
+    public ProblemDetail handleMetadataNotFoundException(MetadataNotFoundException e) {
+        log.warn("Metadata not found: {}", e.getMessage());
+        return ProblemDetail.forStatusAndDetail(HttpStatus.NOT_FOUND, e.getMessage());
+    }
+
+    /**
+     * Handles MetadataAlreadyExistsException and returns a ProblemDetail response.
+     *
+     * @param e the exception that was thrown
+     * @return ProblemDetail with status 400 (BAD_REQUEST) and the exception message
+     */
+    @ExceptionHandler(MetadataAlreadyExistsException.class)
+    public ProblemDetail handleMetadataAlreadyExistsException(MetadataAlreadyExistsException e) {
+        log.warn("Metadata already exists: {}", e.getMessage());
+        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+
+    /**
+     * Handles InvalidCursorException and returns a ProblemDetail response.
+     *
+     * @param e the exception that was thrown
+     * @return ProblemDetail with status 400 (BAD_REQUEST) and the exception message
+     */
+    @ExceptionHandler(InvalidCursorException.class)
+    public ProblemDetail handleInvalidCursorException(InvalidCursorException e) {
+        log.warn("Invalid cursor: {}", e.getMessage());
+        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+
+    /**
+     * Handles InvalidFieldsException and returns a ProblemDetail response.
+     *
+     * @param e the exception that was thrown
+     * @return ProblemDetail with status 400 (BAD_REQUEST) and the exception message
+     */
+    @ExceptionHandler(InvalidFieldsException.class)
+    public ProblemDetail handleInvalidFieldsException(InvalidFieldsException e) {
+        log.warn("Invalid fields: {}", e.getMessage());
+        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+
+    /**
+     * Handles InvalidBulkDocumentException and returns a ProblemDetail response.
+     *
+     * @param e the exception that was thrown
+     * @return ProblemDetail with status 400 (BAD_REQUEST) and the exception message
+     */
+    @ExceptionHandler(InvalidBulkDocumentException.class)
+    public ProblemDetail handleInvalidBulkDocumentException(InvalidBulkDocumentException e) {
+        log.warn("Invalid bulk document: {}", e.getMessage());
+        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+
+    /**
+     * Handles IdempotencyKeyReusedException and returns a ProblemDetail response.
+     *
+     * @param e the exception that was thrown
+     * @return ProblemDetail with status 422 (UNPROCESSABLE_ENTITY) and the exception message
+     */
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ProblemDetail handleIdempotencyKeyReusedException(IdempotencyKeyReusedException e) {
+        log.warn("Idempotency key reused: {}", e.getMessage());
+        return ProblemDetail.forStatusAndDetail(HttpStatus.UNPROCESSABLE_ENTITY, e.getMessage());
+    }
+}
+
+/* -- Bean configuration -- */
+
+@Configuration
+class ObjectMapperConfig {
+    static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    /**
+     * Creates the JSON ObjectMapper, configured by {@link #configure(ObjectMapper)}.
+     *
+     * @return configured ObjectMapper bean
+     */
+    @Bean
+    public ObjectMapper objectMapper() {
+        return configure(new ObjectMapper());
+    }
+
+    /**
+     * Creates the CBOR message converter, configured like the JSON ObjectMapper. Replaces the default CBOR converter.
+     *
+     * @return CBOR message converter bean
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter() {
+        return new MappingJackson2CborHttpMessageConverter(configure(new CBORMapper()));
+    }
+
+    /**
+     * Creates the Smile message converter, configured like the JSON ObjectMapper. Replaces the default Smile converter.
+     *
+     * @return Smile message converter bean
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter() {
+        return new MappingJackson2SmileHttpMessageConverter(configure(new SmileMapper()));
+    }
+
+    /**
+     * Registers JavaTimeModule and disables timestamp serialization.
+     * Enum mapping is handled via @JsonProperty annotations on the enum values. The response classes get the
+     * property filters of {@link MetadataFields}, which write every property unless a request selects fields.
+     * The same setup is applied to every format, so dates and projections look the same in all of them.
+     *
+     * @param objectMapper the mapper of a format
+     * @param <T> the mapper type
+     * @return the configured mapper
+     */
+    static <T extends ObjectMapper> T configure(T objectMapper) {
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        objectMapper.addMixIn(MetadataResponse.class, MetadataFields.ResponseFilter.class);
+        objectMapper.addMixIn(InfoResponse.class, MetadataFields.InfoFilter.class);
+        objectMapper.setFilterProvider(new SimpleFilterProvider().setDefaultFilter(SimpleBeanPropertyFilter.serializeAll()));
+        return objectMapper;
+    }
+}
+
+@Configuration
+class WebConfig implements WebMvcConfigurer {
+    /**
+     * Registers the interceptor recording the Flight Recorder events of the endpoints.
+     *
+     * @param registry the registry of handler interceptors
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new MetadataEventInterceptor());
+    }
+
+    /**
+     * Binds the state and entry type filters by the names used in request and response bodies.
+     *
+     * @param registry the registry of the MVC conversion service
+     */
+    @Override
+    public void addFormatters(FormatterRegistry registry) {
+        registry.addConverter(String.class, MetadataState.class,
+            value -> value.isBlank() ? null : JsonEnumValues.parse(MetadataState.class, value));
+        registry.addConverter(String.class, EntryType.class,
+            value -> value.isBlank() ? null : JsonEnumValues.parse(EntryType.class, value));
+    }
+}
+
+/* -- Metrics layer -- */
+
+/**
+ * Times every call that crosses a layer boundary: controller endpoints, service methods, both mappers and the
+ * repository. Each method gets a {@code metadata.invocation} timer tagged with its layer, class and method that
+ * publishes a percentile histogram, so percentiles can be aggregated across instances. Timers are looked up once per
+ * method, and for failed calls once per method and exception class, and cached, so the cost per call is a map
+ * lookup, two clock reads and the histogram update.
+ * Calls a bean makes on itself bypass the proxy and are not timed separately. Streaming endpoints are timed until
+ * they return the response body, not until it is written.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+class LayerMetricsAspect {
+    static final String TIMER_NAME = "metadata.invocation";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Method, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<Failure, Timer> failureTimers = new ConcurrentHashMap<>();
+
+    /**
+     * Times a controller endpoint.
+     *
+     * @param joinPoint the intercepted call
+     * @return the result of the call
+     * @throws Throwable anything the call throws
+     */
+    @Around("within(org.example.AppController)")
+    public Object timeController(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("controller", joinPoint);
+    }
+
+    /**
+     * Times a service method.
+     *
+     * @param joinPoint the intercepted call
+     * @return the result of the call
+     * @throws Throwable anything the call throws
+     */
+    @Around("within(org.example.MetadataService+)")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("service", joinPoint);
+    }
+
+    /**
+     * Times a mapping between requests, entities and responses.
+     *
+     * @param joinPoint the intercepted call
+     * @return the result of the call
+     * @throws Throwable anything the call throws
+     */
+    @Around("within(org.example.MetadataRequestMapper+) || within(org.example.MetadataResponseMapper+)")
+    public Object timeMapper(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("mapper", joinPoint);
+    }
+
+    /**
+     * Times a repository operation. The size accessors polled by the repository gauges are left out.
+     *
+     * @param joinPoint the intercepted call
+     * @return the result of the call
+     * @throws Throwable anything the call throws
+     */
+    @Around("within(org.example.MetadataRepository+) && !execution(long count()) && !execution(long estimatedBytes())")
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("repository", joinPoint);
+    }
+
+    private Object time(String layer, ProceedingJoinPoint joinPoint) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        long start = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            Timer timer = timers.get(method);
+            if (timer == null) {
+                timer = timers.computeIfAbsent(method, key -> timer(layer, key, "none"));
+            }
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (Throwable e) {
+            long elapsed = System.nanoTime() - start;
+            failureTimers.computeIfAbsent(new Failure(method, e.getClass()),
+                key -> timer(layer, method, key.exception().getSimpleName())).record(elapsed, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    private Timer timer(String layer, Method method, String exception) {
+        return Timer.builder(TIMER_NAME)
+            .description("Time spent in a controller, service, mapper or repository method")
+            .tags("layer", layer, "class", method.getDeclaringClass().getSimpleName(), "method", methodTag(method),
+                "exception", exception)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    /**
+     * Returns the method name, with the parameter types appended if the name is overloaded.
+     */
+    private static String methodTag(Method method) {
+        long overloads = Arrays.stream(method.getDeclaringClass().getMethods())
+            .filter(candidate -> candidate.getName().equals(method.getName()) && !candidate.isBridge())
+            .count();
+        if (overloads <= 1) {
+            return method.getName();
+        }
+        return Arrays.stream(method.getParameterTypes())
+            .map(Class::getSimpleName)
+            .collect(Collectors.joining(",", method.getName() + "(", ")"));
+    }
+
+    /**
+     * Key of the timer of a method's calls that threw a given exception class.
+     *
+     * @param method the method
+     * @param exception the class of the exception
+     */
+    private record Failure(Method method, Class<?> exception) {
+    }
+}
+
+/**
+ * Publishes the size of the active metadata repository.
+ */
+@Configuration
+class RepositoryMetricsConfig {
+    /**
+     * Registers gauges for the number of stored entities and their estimated size in bytes.
+     *
+     * @param metadataRepository the active repository
+     * @return the binder registering the gauges
+     */
+    @Bean
+    public MeterBinder metadataRepositoryMetrics(MetadataRepository metadataRepository) {
+        return registry -> {
+            Gauge.builder("metadata.repository.entities", metadataRepository, MetadataRepository::count)
+                .description("Number of stored metadata entities")
+                .register(registry);
+            Gauge.builder("metadata.repository.estimated", metadataRepository, MetadataRepository::estimatedBytes)
+                .description("Estimated memory held by the stored metadata entities")
+                .baseUnit("bytes")
+                .register(registry);
+        };
+    }
+}
+
+/* -- Flight Recorder events -- */
+
+/**
+ * Base of the Flight Recorder events of {@link AppController} requests, recorded by
+ * {@link MetadataEventInterceptor}, so slow requests can be lined up with GC, lock and I/O events of the same
+ * recording. Events are only created, timed and committed while a recording has them enabled, and their fields are
+ * only filled in then, so they cost next to nothing otherwise.
+ * Stack traces are left out to keep committing cheap.
+ */
+@Category("Metadata")
+@StackTrace(false)
+abstract class MetadataEvent extends Event {
+    @Label("Outcome")
+    @Description("success, notModified, or the simple name of the exception that ended the operation")
+    String outcome = "success";
+
+    /**
+     * Records that the operation ended with a 304 (Not Modified) response.
+     */
+    void notModified() {
+        outcome = "notModified";
+    }
+
+    /**
+     * Records the exception that ended the operation.
+     *
+     * @param e the exception
+     */
+    void fail(Throwable e) {
+        outcome = e.getClass().getSimpleName();
+    }
+
+    /**
+     * Records the number of bytes read from the request body. Ignored by events without a payload size.
+     *
+     * @param bytes the byte count
+     */
+    void bodyRead(long bytes) {
+    }
+}
+
+@Name("org.example.MetadataCreate")
+@Label("Metadata Create")
+@Description("Creation of a metadata entry from an XML document")
+class MetadataCreateEvent extends MetadataEvent {
+    @Label("Metadata ID")
+    String id;
+
+    @Label("Entry Count")
+    int entryCount;
+
+    @Label("Payload Size")
+    @Description("Bytes read from the request body")
+    @DataAmount
+    long payloadBytes;
+
+    @Override
+    void bodyRead(long bytes) {
+        payloadBytes = bytes;
+    }
+}
+
+@Name("org.example.MetadataBulkCreate")
+@Label("Metadata Bulk Create")
+@Description("Creation of metadata entries from a metadata list document")
+class MetadataBulkEvent extends MetadataEvent {
+    @Label("Created")
+    int created;
+
+    @Label("Duplicates")
+    int duplicates;
+
+    @Label("Invalid")
+    int invalid;
+
+    @Label("Payload Size")
+    @Description("Bytes read from the request body")
+    @DataAmount
+    long payloadBytes;
+
+    @Override
+    void bodyRead(long bytes) {
+        payloadBytes = bytes;
+    }
+}
+
+/**
+ * Lookups are the hottest path, so by default only those slower than a millisecond are recorded.
+ */
+@Name("org.example.MetadataFind")
+@Label("Metadata Find")
+@Description("Lookup of a metadata entry by ID")
+@Threshold("1 ms")
+class MetadataFindEvent extends MetadataEvent {
+    @Label("Metadata ID")
+    String id;
+
+    @Label("Entry Count")
+    int entryCount;
+}
+
+@Name("org.example.MetadataFindAll")
+@Label("Metadata Find All")
+@Description("Retrieval of a page of metadata entries, or of all entries as a stream")
+class MetadataFindAllEvent extends MetadataEvent {
+    @Label("Filter")
+    String filter;
+
+    @Label("Limit")
+    int limit;
+
+    @Label("Streamed")
+    boolean streamed;
+
+    @Label("Entry Count")
+    @Description("Number of entries returned")
+    int entryCount;
+}
+
+@Name("org.example.MetadataDelete")
+@Label("Metadata Delete")
+@Description("Deletion of a metadata entry by ID")
+class MetadataDeleteEvent extends MetadataEvent {
+    @Label("Metadata ID")
+    String id;
+}
+
+/* -- Configuration properties -- */
+
+/**
+ * Application settings bound from the {@code metadata} prefix.
+ */
+@Data
+@ConfigurationProperties(prefix = "metadata")
+class MetadataProperties {
+    private Pagination pagination = new Pagination();
+    private Bulk bulk = new Bulk();
+    private Storage storage = new Storage();
+    private Reactive reactive = new Reactive();
+    private ResponseCache responseCache = new ResponseCache();
+    private Idempotency idempotency = new Idempotency();
+    private Ids ids = new Ids();
+    private Xml xml = new Xml();
+    private Compression compression = new Compression();
+
+    /**
+     * Page size settings for list endpoints.
+     */
+    @Data
+    static class Pagination {
+        private int defaultLimit = 100;
+        private int maxLimit = 1000;
+    }
+
+    /**
+     * Batching settings for the bulk create endpoint.
+     */
+    @Data
+    static class Bulk {
+        private int batchSize = 500;
+        private int maxReportedFailures = 1000;
+    }
+
+    /**
+     * Size of the cache of encoded responses for lookups by ID.
+     */
+    @Data
+    static class ResponseCache {
+        private DataSize maxSize = DataSize.ofMegabytes(64);
+    }
+
+    /**
+     * Size and retention of the responses remembered for idempotency keys.
+     */
+    @Data
+    static class Idempotency {
+        private DataSize maxSize = DataSize.ofMegabytes(16);
+        private Duration retention = Duration.ofHours(1);
+    }
+
+    /**
+     * Settings for the reactive endpoints served next to the servlet ones.
+     */
+    @Data
+    static class Reactive {
+        private boolean enabled;
+        private int port = 8081;
+        private DataSize maxBodySize = DataSize.ofMegabytes(1);
+    }
+
+    /**
+     * Binding of XML request bodies.
+     */
+    @Data
+    static class Xml {
+        private boolean fastPath;
+        private DataSize fastPathMaxSize = DataSize.ofMegabytes(1);
+    }
+
+    /**
+     * Compression of responses for clients that send Accept-Encoding.
+     */
+    @Data
+    static class Compression {
+        private boolean enabled = true;
+        private DataSize minResponseSize = DataSize.ofKilobytes(2);
+        private int level = 6;
+        private List<String> mimeTypes = List.of(MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_PROBLEM_JSON_VALUE,
+            MediaType.APPLICATION_XML_VALUE, MediaType.APPLICATION_CBOR_VALUE, ObjectMapperConfig.APPLICATION_SMILE_VALUE);
+        private DataSize cacheSize = DataSize.ofMegabytes(32);
+    }
+
+    /**
+     * Generation of the IDs of metadata created without one.
+     */
+    @Data
+    static class Ids {
+        private IdStrategy strategy = IdStrategy.TIME_ORDERED;
+    }
+
+    /**
+     * Storage engine selection.
+     */
+    @Data
+    static class Storage {
+        private StorageMode mode = StorageMode.MEMORY;
+        private Wal wal = new Wal();
+        private Mapped mapped = new Mapped();
+    }
+
+    /**
+     * Write-ahead log settings for the {@code wal} storage mode.
+     */
+    @Data
+    static class Wal {
+        private Path directory = Path.of("data");
+        private Duration fsyncInterval = Duration.ofMillis(100);
+        private int fsyncBatchSize = 1000;
+        private Duration snapshotInterval = Duration.ofMinutes(10);
     }
-}
-
-/* -- Bean configuration -- */
 
-@Configuration
-class ObjectMapperConfig {
     /**
-     * Configures the Jackson ObjectMapper with JavaTimeModule and disables timestamp serialization.
-     * Enum mapping is handled via @JsonProperty annotations on the enum values.
-     *
-     * @return configured ObjectMapper bean
+     * Segment and compaction settings for the {@code mapped} storage mode.
      */
-    @Bean
-    public ObjectMapper objectMapper() {
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.registerModule(new JavaTimeModule());
-        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-        return objectMapper;
+    @Data
+    static class Mapped {
+        private Path directory = Path.of(System.getProperty("java.io.tmpdir"));
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+        private Duration compactionInterval = Duration.ofSeconds(30);
+        private double compactionThreshold = 0.5;
     }
 }
 
@@ -533,6 +6308,34 @@ interface MetadataResponseMapper {
     @Mapping(target = "entries", source = "entries")
     MetadataResponse toResponse(MetadataEntity entity);
 
+    /**
+     * Maps the requested parts of a MetadataEntity to a MetadataResponse DTO; the other parts are left null.
+     * Entries that are not requested are not mapped at all.
+     *
+     * @param entity the entity to map
+     * @param fields the requested fields
+     * @return the mapped response DTO
+     */
+    default MetadataResponse toResponse(MetadataEntity entity, MetadataFields fields) {
+        MetadataResponse response = new MetadataResponse();
+        if (fields.includes("id")) {
+            response.setId(entity.getId());
+        }
+        if (fields.includes("name")) {
+            response.setName(entity.getName());
+        }
+        if (fields.includes("description")) {
+            response.setDescription(entity.getDescription());
+        }
+        if (fields.includes("info")) {
+            response.setInfo(toInfoResponse(entity.getInfo()));
+        }
+        if (fields.includes("entries")) {
+            response.setEntries(toEntryResponseList(entity.getEntries()));
+        }
+        return response;
+    }
+
     /**
      * Maps a MetadataResponse DTO to a MetadataEntity.
      *
@@ -631,6 +6434,114 @@ class MetadataResponse {
     private List<EntryResponse> entries;
 }
 
+/**
+ * Parts of a {@link MetadataResponse} requested with the {@code fields} parameter, e.g. {@code id,name,info.state}.
+ * Top-level fields are selected by name; {@code info} selects the whole info section and {@code info.<field>} single
+ * fields of it. Entries are only mapped if requested, and the other parts are left out when the response is written
+ * as JSON, through property filters that {@link ObjectMapperConfig} attaches to the response classes.
+ *
+ * @param fields the requested top-level fields
+ * @param infoFields the requested info fields
+ */
+record MetadataFields(Set<String> fields, Set<String> infoFields) {
+    static final String RESPONSE_FILTER = "metadataResponseFields";
+    static final String INFO_FILTER = "infoResponseFields";
+    private static final Set<String> RESPONSE_FIELDS = Set.of("id", "name", "description", "info", "entries");
+    private static final Set<String> INFO_FIELDS = Set.of("state", "createdDate", "createdTime", "createdDatetime");
+    static final MetadataFields ALL = new MetadataFields(RESPONSE_FIELDS, INFO_FIELDS);
+
+    /**
+     * Parses a comma-separated list of fields.
+     *
+     * @param value the fields, or null for all of them
+     * @return the requested fields
+     * @throws InvalidFieldsException if a field is unknown
+     */
+    static MetadataFields parse(String value) {
+        if (value == null || value.isBlank()) {
+            return ALL;
+        }
+        Set<String> fields = new HashSet<>();
+        Set<String> infoFields = new HashSet<>();
+        for (String field : value.split(",")) {
+            String name = field.trim();
+            if (name.startsWith("info.") && INFO_FIELDS.contains(name.substring("info.".length()))) {
+                fields.add("info");
+                infoFields.add(name.substring("info.".length()));
+            } else if (RESPONSE_FIELDS.contains(name)) {
+                fields.add(name);
+                if (name.equals("info")) {
+                    infoFields.addAll(INFO_FIELDS);
+                }
+            } else {
+                throw new InvalidFieldsException(name);
+            }
+        }
+        return new MetadataFields(Set.copyOf(fields), Set.copyOf(infoFields));
+    }
+
+    /**
+     * Tells whether every field is requested.
+     *
+     * @return true if nothing is left out
+     */
+    boolean isAll() {
+        return equals(ALL);
+    }
+
+    /**
+     * Tells whether a top-level field is requested.
+     *
+     * @param field the field name
+     * @return true if the field is requested
+     */
+    boolean includes(String field) {
+        return fields.contains(field);
+    }
+
+    /**
+     * Returns the property filters that leave out the fields that were not requested.
+     *
+     * @return the filters
+     */
+    FilterProvider filters() {
+        return new SimpleFilterProvider()
+            .addFilter(RESPONSE_FILTER, SimpleBeanPropertyFilter.filterOutAllExcept(fields))
+            .addFilter(INFO_FILTER, SimpleBeanPropertyFilter.filterOutAllExcept(infoFields));
+    }
+
+    /**
+     * Mix-in attaching the response filter to {@link MetadataResponse}.
+     */
+    @JsonFilter(RESPONSE_FILTER)
+    interface ResponseFilter {
+    }
+
+    /**
+     * Mix-in attaching the info filter to {@link InfoResponse}.
+     */
+    @JsonFilter(INFO_FILTER)
+    interface InfoFilter {
+    }
+}
+
+@Data
+@NoArgsConstructor
+@Schema(name = "BulkCreateResponse", description = "Bulk create result summary")
+class BulkCreateResponse {
+    @Schema(description = "Number of entries created", example = "998")
+    private int created;
+
+    @Schema(description = "Number of entries skipped because their ID already exists", example = "1")
+    private int duplicates;
+
+    @Schema(description = "Number of elements that could not be read as metadata", example = "1")
+    private int invalid;
+
+    @Schema(description = "IDs of duplicate and invalid entries, capped at the configured maximum")
+    private List<String> failedIds = new ArrayList<>();
+}
+
 @Data
 @Builder
 @NoArgsConstructor
@@ -671,17 +6582,20 @@ class InfoRequest {
     private MetadataState state;
 
     @JacksonXmlProperty(localName = "created-date")
-    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "MM/dd/yyyy")
+    @JsonSerialize(using = MetadataDateTimeFormat.DateSerializer.class)
+    @JsonDeserialize(using = MetadataDateTimeFormat.DateDeserializer.class)
     @Schema(description = "Created date", example = "01/15/2025", type = "string", format = "date")
     private LocalDate createdDate;
 
     @JacksonXmlProperty(localName = "created-time")
-    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm:ss")
+    @JsonSerialize(using = MetadataDateTimeFormat.TimeSerializer.class)
+    @JsonDeserialize(using = MetadataDateTimeFormat.TimeDeserializer.class)
     @Schema(description = "Created time", example = "14:30:00", type = "string", format = "time")
     private LocalTime createdTime;
 
     @JacksonXmlProperty(localName = "created-datetime")
-    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "MM/dd/yyyy HH:mm:ss")
+    @JsonSerialize(using = MetadataDateTimeFormat.DateTimeSerializer.class)
+    @JsonDeserialize(using = MetadataDateTimeFormat.DateTimeDeserializer.class)
     @Schema(description = "Created datetime", example = "01/15/2025 14:30:00", type = "string", format = "date-time")
     private LocalDateTime createdDatetime;
 }
@@ -715,15 +6629,18 @@ class InfoResponse {
     private MetadataState state;
 
     @Schema(description = "Created date", example = "01/15/2025", type = "string", format = "date")
-    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "MM/dd/yyyy")
+    @JsonSerialize(using = MetadataDateTimeFormat.DateSerializer.class)
+    @JsonDeserialize(using = MetadataDateTimeFormat.DateDeserializer.class)
     private LocalDate createdDate;
 
     @Schema(description = "Created time", example = "14:30:00", type = "string", format = "time")
-    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm:ss")
+    @JsonSerialize(using = MetadataDateTimeFormat.TimeSerializer.class)
+    @JsonDeserialize(using = MetadataDateTimeFormat.TimeDeserializer.class)
     private LocalTime createdTime;
 
     @Schema(description = "Created datetime", example = "01/15/2025 14:30:00", type = "string", format = "date-time")
-    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "MM/dd/yyyy HH:mm:ss")
+    @JsonSerialize(using = MetadataDateTimeFormat.DateTimeSerializer.class)
+    @JsonDeserialize(using = MetadataDateTimeFormat.DateTimeDeserializer.class)
     private LocalDateTime createdDatetime;
 }
 
@@ -742,6 +6659,342 @@ class EntryResponse {
     private EntryType type;
 }
 
+/**
+ * Fixed-width text formats of the metadata dates and times: {@code MM/dd/yyyy}, {@code HH:mm:ss} and
+ * {@code MM/dd/yyyy HH:mm:ss}. Values in exactly these shapes are parsed and written with digit arithmetic instead of
+ * a {@link DateTimeFormatter}, which allocates a parse context per call. Anything else, such as out-of-range fields,
+ * longer years or surrounding whitespace, goes through the equivalent formatter, so results and errors are the same.
+ * Recently parsed dates are cached, since many entries share a few creation dates.
+ */
+final class MetadataDateTimeFormat {
+    static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+    static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+    static final DateTimeFormatter DATETIME_FORMAT = DateTimeFormatter.ofPattern("MM/dd/yyyy HH:mm:ss");
+    private static final int DATE_LENGTH = 10;
+    private static final int TIME_LENGTH = 8;
+    private static final int DATETIME_LENGTH = DATE_LENGTH + 1 + TIME_LENGTH;
+
+    // Slots are indexed by day, so dates less than two years apart never share one. Racing writers may replace
+    // each other's entries; LocalDate is immutable, so a reader always sees a complete one.
+    private static final LocalDate[] RECENT_DATES = new LocalDate[1024];
+
+    private MetadataDateTimeFormat() {
+    }
+
+    /**
+     * Parses a {@code MM/dd/yyyy} date.
+     *
+     * @param text the text
+     * @return the date
+     * @throws DateTimeParseException if the text is not a valid date
+     */
+    static LocalDate parseDate(String text) {
+        LocalDate date = tryParseDate(text);
+        return date != null ? date : LocalDate.parse(text, DATE_FORMAT);
+    }
+
+    /**
+     * Parses a {@code HH:mm:ss} time.
+     *
+     * @param text the text
+     * @return the time
+     * @throws DateTimeParseException if the text is not a valid time
+     */
+    static LocalTime parseTime(String text) {
+        LocalTime time = tryParseTime(text);
+        return time != null ? time : LocalTime.parse(text, TIME_FORMAT);
+    }
+
+    /**
+     * Parses a {@code MM/dd/yyyy HH:mm:ss} date and time.
+     *
+     * @param text the text
+     * @return the date and time
+     * @throws DateTimeParseException if the text is not a valid date and time
+     */
+    static LocalDateTime parseDateTime(String text) {
+        LocalDateTime dateTime = tryParseDateTime(text);
+        return dateTime != null ? dateTime : LocalDateTime.parse(text, DATETIME_FORMAT);
+    }
+
+    /**
+     * Parses a date written in exactly the {@code MM/dd/yyyy} shape with valid field values.
+     *
+     * @param text the text
+     * @return the date, or null if the text has to be parsed by {@link #DATE_FORMAT}
+     */
+    static LocalDate tryParseDate(String text) {
+        return text.length() == DATE_LENGTH ? date(text, 0) : null;
+    }
+
+    /**
+     * Parses a time written in exactly the {@code HH:mm:ss} shape with valid field values.
+     *
+     * @param text the text
+     * @return the time, or null if the text has to be parsed by {@link #TIME_FORMAT}
+     */
+    static LocalTime tryParseTime(String text) {
+        return text.length() == TIME_LENGTH ? time(text, 0) : null;
+    }
+
+    /**
+     * Parses a date and time written in exactly the {@code MM/dd/yyyy HH:mm:ss} shape with valid field values.
+     *
+     * @param text the text
+     * @return the date and time, or null if the text has to be parsed by {@link #DATETIME_FORMAT}
+     */
+    static LocalDateTime tryParseDateTime(String text) {
+        if (text.length() != DATETIME_LENGTH || text.charAt(DATE_LENGTH) != ' ') {
+            return null;
+        }
+        LocalDate date = date(text, 0);
+        LocalTime time = date != null ? time(text, DATE_LENGTH + 1) : null;
+        return time != null ? LocalDateTime.of(date, time) : null;
+    }
+
+    /**
+     * Writes a date as {@code MM/dd/yyyy}.
+     *
+     * @param date the date
+     * @return the text, or null if the year does not have four digits and the date has to be written by
+     *     {@link #DATE_FORMAT}
+     */
+    static char[] formatDate(LocalDate date) {
+        if (date.getYear() < 1 || date.getYear() > 9999) {
+            return null;
+        }
+        char[] text = new char[DATE_LENGTH];
+        writeDate(date, text, 0);
+        return text;
+    }
+
+    /**
+     * Writes a time as {@code HH:mm:ss}.
+     *
+     * @param time the time
+     * @return the text
+     */
+    static char[] formatTime(LocalTime time) {
+        char[] text = new char[TIME_LENGTH];
+        writeTime(time, text, 0);
+        return text;
+    }
+
+    /**
+     * Writes a date and time as {@code MM/dd/yyyy HH:mm:ss}.
+     *
+     * @param dateTime the date and time
+     * @return the text, or null if the year does not have four digits and the value has to be written by
+     *     {@link #DATETIME_FORMAT}
+     */
+    static char[] formatDateTime(LocalDateTime dateTime) {
+        if (dateTime.getYear() < 1 || dateTime.getYear() > 9999) {
+            return null;
+        }
+        char[] text = new char[DATETIME_LENGTH];
+        writeDate(dateTime.toLocalDate(), text, 0);
+        text[DATE_LENGTH] = ' ';
+        writeTime(dateTime.toLocalTime(), text, DATE_LENGTH + 1);
+        return text;
+    }
+
+    /**
+     * Reads a {@code MM/dd/yyyy} date at an offset, returning a cached instance for recently seen dates.
+     *
+     * @return the date, or null if the text is not in the fixed shape or a field is out of range
+     */
+    private static LocalDate date(String text, int offset) {
+        int month = digits(text, offset, 2);
+        int day = digits(text, offset + 3, 2);
+        int year = digits(text, offset + 6, 4);
+        if (text.charAt(offset + 2) != '/' || text.charAt(offset + 5) != '/' || month < 1 || month > 12
+            || day < 1 || year < 1 || day > 28 && day > Month.of(month).length(Year.isLeap(year))) {
+            return null;
+        }
+        int slot = (year * 372 + month * 31 + day) & (RECENT_DATES.length - 1);
+        LocalDate date = RECENT_DATES[slot];
+        if (date == null || date.getDayOfMonth() != day || date.getMonthValue() != month || date.getYear() != year) {
+            date = LocalDate.of(year, month, day);
+            RECENT_DATES[slot] = date;
+        }
+        return date;
+    }
+
+    /**
+     * Reads a {@code HH:mm:ss} time at an offset.
+     *
+     * @return the time, or null if the text is not in the fixed shape or a field is out of range
+     */
+    private static LocalTime time(String text, int offset) {
+        int hour = digits(text, offset, 2);
+        int minute = digits(text, offset + 3, 2);
+        int second = digits(text, offset + 6, 2);
+        if (text.charAt(offset + 2) != ':' || text.charAt(offset + 5) != ':' || hour < 0 || hour > 23
+            || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return null;
+        }
+        return LocalTime.of(hour, minute, second);
+    }
+
+    /**
+     * Reads a fixed number of ASCII digits.
+     *
+     * @return the value, or -1 if one of the characters is not a digit
+     */
+    private static int digits(String text, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static void writeDate(LocalDate date, char[] text, int offset) {
+        writeDigits(date.getMonthValue(), text, offset, 2);
+        text[offset + 2] = '/';
+        writeDigits(date.getDayOfMonth(), text, offset + 3, 2);
+        text[offset + 5] = '/';
+        writeDigits(date.getYear(), text, offset + 6, 4);
+    }
+
+    private static void writeTime(LocalTime time, char[] text, int offset) {
+        writeDigits(time.getHour(), text, offset, 2);
+        text[offset + 2] = ':';
+        writeDigits(time.getMinute(), text, offset + 3, 2);
+        text[offset + 5] = ':';
+        writeDigits(time.getSecond(), text, offset + 6, 2);
+    }
+
+    private static void writeDigits(int value, char[] text, int offset, int count) {
+        for (int i = offset + count - 1; i >= offset; i--) {
+            text[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /**
+     * Reads {@code MM/dd/yyyy} dates. Values the fast parser does not take, including empty values and values of
+     * other JSON types, are handled by the Jackson deserializer for the pattern.
+     */
+    static final class DateDeserializer extends LocalDateDeserializer {
+        DateDeserializer() {
+            super(DATE_FORMAT);
+        }
+
+        /**
+         * Keeps this deserializer for every property, since the format is fixed; the base class would replace it
+         * with a plain copy configured from the property's format annotations.
+         */
+        @Override
+        public JsonDeserializer<?> createContextual(DeserializationContext context, BeanProperty property) {
+            return this;
+        }
+
+        @Override
+        public LocalDate deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            LocalDate date = parser.hasToken(JsonToken.VALUE_STRING) ? tryParseDate(parser.getText()) : null;
+            return date != null ? date : super.deserialize(parser, context);
+        }
+    }
+
+    /**
+     * Reads {@code HH:mm:ss} times, falling back to the Jackson deserializer for the pattern.
+     */
+    static final class TimeDeserializer extends LocalTimeDeserializer {
+        TimeDeserializer() {
+            super(TIME_FORMAT);
+        }
+
+        @Override
+        public JsonDeserializer<?> createContextual(DeserializationContext context, BeanProperty property) {
+            return this;
+        }
+
+        @Override
+        public LocalTime deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            LocalTime time = parser.hasToken(JsonToken.VALUE_STRING) ? tryParseTime(parser.getText()) : null;
+            return time != null ? time : super.deserialize(parser, context);
+        }
+    }
+
+    /**
+     * Reads {@code MM/dd/yyyy HH:mm:ss} dates and times, falling back to the Jackson deserializer for the pattern.
+     */
+    static final class DateTimeDeserializer extends LocalDateTimeDeserializer {
+        DateTimeDeserializer() {
+            super(DATETIME_FORMAT);
+        }
+
+        @Override
+        public JsonDeserializer<?> createContextual(DeserializationContext context, BeanProperty property) {
+            return this;
+        }
+
+        @Override
+        public LocalDateTime deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            LocalDateTime dateTime = parser.hasToken(JsonToken.VALUE_STRING) ? tryParseDateTime(parser.getText()) : null;
+            return dateTime != null ? dateTime : super.deserialize(parser, context);
+        }
+    }
+
+    /**
+     * Writes dates as {@code MM/dd/yyyy} strings.
+     */
+    static final class DateSerializer extends StdSerializer<LocalDate> {
+        DateSerializer() {
+            super(LocalDate.class);
+        }
+
+        @Override
+        public void serialize(LocalDate value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            char[] text = formatDate(value);
+            if (text != null) {
+                generator.writeString(text, 0, text.length);
+            } else {
+                generator.writeString(DATE_FORMAT.format(value));
+            }
+        }
+    }
+
+    /**
+     * Writes times as {@code HH:mm:ss} strings.
+     */
+    static final class TimeSerializer extends StdSerializer<LocalTime> {
+        TimeSerializer() {
+            super(LocalTime.class);
+        }
+
+        @Override
+        public void serialize(LocalTime value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeString(formatTime(value), 0, TIME_LENGTH);
+        }
+    }
+
+    /**
+     * Writes dates and times as {@code MM/dd/yyyy HH:mm:ss} strings.
+     */
+    static final class DateTimeSerializer extends StdSerializer<LocalDateTime> {
+        DateTimeSerializer() {
+            super(LocalDateTime.class);
+        }
+
+        @Override
+        public void serialize(LocalDateTime value, JsonGenerator generator, SerializerProvider provider)
+            throws IOException {
+            char[] text = formatDateTime(value);
+            if (text != null) {
+                generator.writeString(text, 0, text.length);
+            } else {
+                generator.writeString(DATETIME_FORMAT.format(value));
+            }
+        }
+    }
+}
+
 /* -- Enum layer -- */
 
 /**
@@ -778,6 +7031,88 @@ enum EntryType {
     BASIC
 }
 
+/**
+ * Reads enum constants from query parameters by their {@code @JsonProperty} names, so filters take the same
+ * values as request and response bodies, e.g. {@code active} for {@link MetadataState#ACTIVE}. The constant names
+ * are still accepted.
+ */
+final class JsonEnumValues {
+    private static final ClassValue<Map<String, Enum<?>>> VALUES = new ClassValue<>() {
+        @Override
+        protected Map<String, Enum<?>> computeValue(Class<?> type) {
+            Map<String, Enum<?>> values = new HashMap<>();
+            for (Object constant : type.getEnumConstants()) {
+                Enum<?> value = (Enum<?>) constant;
+                values.put(value.name(), value);
+                try {
+                    JsonProperty property = type.getField(value.name()).getAnnotation(JsonProperty.class);
+                    if (property != null) {
+                        values.put(property.value(), value);
+                    }
+                } catch (NoSuchFieldException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return Map.copyOf(values);
+        }
+    };
+
+    private JsonEnumValues() {
+    }
+
+    /**
+     * Looks up a constant by its JSON name or its constant name.
+     *
+     * @param type the enum type
+     * @param value the name
+     * @param <E> the enum type
+     * @return the constant
+     * @throws IllegalArgumentException if no constant has the name
+     */
+    static <E extends Enum<E>> E parse(Class<E> type, String value) {
+        Enum<?> constant = VALUES.get(type).get(value);
+        if (constant == null) {
+            throw new IllegalArgumentException("No " + type.getSimpleName() + " named " + value);
+        }
+        return type.cast(constant);
+    }
+}
+
+/**
+ * How the IDs of metadata created without one are generated.
+ */
+enum IdStrategy {
+    /**
+     * Random version 4 UUIDs.
+     */
+    RANDOM,
+
+    /**
+     * Version 7 UUIDs, ordered by creation time.
+     */
+    TIME_ORDERED
+}
+
+/**
+ * Storage engine used by the metadata repository.
+ */
+enum StorageMode {
+    /**
+     * Keeps everything in memory; data is lost on restart.
+     */
+    MEMORY,
+
+    /**
+     * Keeps everything in memory and makes changes durable in a write-ahead log.
+     */
+    WAL,
+
+    /**
+     * Keeps encoded entities in memory-mapped segment files off the heap; data is lost on restart.
+     */
+    MAPPED
+}
+
 /* -- Exception layer -- */
 
 @ResponseStatus(HttpStatus.NOT_FOUND)
@@ -802,4 +7137,52 @@ class MetadataAlreadyExistsException extends RuntimeException {
     public MetadataAlreadyExistsException(String id) {
         super("Metadata with id " + id + " already exists");
     }
-}
\ No newline at end of file
+}
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+class InvalidCursorException extends RuntimeException {
+    /**
+     * Constructs a new InvalidCursorException with the given cursor.
+     *
+     * @param cursor the cursor that could not be decoded
+     */
+    public InvalidCursorException(String cursor) {
+        super("Cursor " + cursor + " is invalid");
+    }
+}
+
+@ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+class IdempotencyKeyReusedException extends RuntimeException {
+    /**
+     * Constructs a new IdempotencyKeyReusedException with the given key.
+     *
+     * @param key the idempotency key that was already used for a different request
+     */
+    public IdempotencyKeyReusedException(String key) {
+        super("Idempotency key " + key + " was already used for a different request");
+    }
+}
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+class InvalidFieldsException extends RuntimeException {
+    /**
+     * Constructs a new InvalidFieldsException with the given field.
+     *
+     * @param field the requested field that does not exist
+     */
+    public InvalidFieldsException(String field) {
+        super("Field " + field + " is unknown");
+    }
+}
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+class InvalidBulkDocumentException extends RuntimeException {
+    /**
+     * Constructs a new InvalidBulkDocumentException with the given message.
+     *
+     * @param message the reason the document was rejected
+     */
+    public InvalidBulkDocumentException(String message) {
+        super(message);
+    }
+}
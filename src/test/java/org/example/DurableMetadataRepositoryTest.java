@@ -0,0 +1,343 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DisplayName("DurableMetadataRepository Unit Tests")
+class DurableMetadataRepositoryTest {
+    @TempDir
+    private Path directory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private MetadataProperties metadataProperties;
+    private DurableMetadataRepository metadataRepository;
+
+    @BeforeEach
+    void setUp() {
+        metadataProperties = new MetadataProperties();
+        metadataProperties.getStorage().setMode(StorageMode.WAL);
+        metadataProperties.getStorage().getWal().setDirectory(directory);
+        metadataProperties.getStorage().getWal().setFsyncInterval(Duration.ofMillis(10));
+        metadataProperties.getStorage().getWal().setSnapshotInterval(Duration.ZERO);
+        metadataRepository = new DurableMetadataRepository(metadataProperties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        metadataRepository.close();
+    }
+
+    @Test
+    @DisplayName("Should encode and decode every entity field")
+    void shouldEncodeAndDecodeEveryEntityField() throws IOException {
+        // Given
+        MetadataEntity full = createEntity("codec-full");
+        MetadataEntity sparse = new MetadataEntity("codec-sparse", null, null, new InfoEntity(), null);
+        sparse.setEntries(new ArrayList<>(List.of(new EntryEntity(null, null, null))));
+
+        // When & Then
+        assertEquals(full, roundTrip(full));
+        assertEquals(sparse, roundTrip(sparse));
+        assertEquals(new MetadataEntity("codec-empty", null, null, null, null), roundTrip(new MetadataEntity("codec-empty", null, null, null, null)));
+    }
+
+    @Test
+    @DisplayName("Should recover saves and deletes in order after reopening")
+    void shouldRecoverAfterReopening() throws IOException {
+        // Given
+        metadataRepository.save(createEntity("wal-1"));
+        metadataRepository.save(createEntity("wal-2"));
+        assertTrue(metadataRepository.saveIfAbsent(createEntity("wal-3")).isEmpty());
+        assertTrue(metadataRepository.saveIfAbsent(createEntity("wal-3")).isPresent());
+        assertEquals(1, metadataRepository.saveAllIfAbsent(List.of(createEntity("wal-4"), createEntity("wal-1"))).size());
+        metadataRepository.deleteById("wal-2");
+        metadataRepository.deleteById("missing");
+        MetadataEntity replacement = createEntity("wal-1");
+        replacement.setName("Replaced");
+        metadataRepository.save(replacement);
+        long contentHash = metadataRepository.findContentHashById("wal-1").orElseThrow();
+
+        // When
+        reopen();
+
+        // Then
+        assertEquals(List.of("wal-1", "wal-3", "wal-4"), ids(metadataRepository.findAll()));
+        assertEquals("Replaced", metadataRepository.findById("wal-1").orElseThrow().getName());
+        assertEquals(createEntity("wal-3"), metadataRepository.findById("wal-3").orElseThrow());
+        assertEquals(contentHash, metadataRepository.findContentHashById("wal-1").orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Should discard a torn record left by a crash during an append")
+    void shouldDiscardTornRecord() throws IOException {
+        // Given
+        metadataRepository.save(createEntity("torn-1"));
+        metadataRepository.save(createEntity("torn-2"));
+        metadataRepository.close();
+        long intact = Files.size(logFile());
+        byte[] record = WriteAheadLog.saveRecord(createEntity("torn-3"));
+        Files.write(logFile(), Arrays.copyOf(record, record.length / 2), StandardOpenOption.APPEND);
+
+        // When
+        metadataRepository = new DurableMetadataRepository(metadataProperties, meterRegistry);
+
+        // Then
+        assertEquals(List.of("torn-1", "torn-2"), ids(metadataRepository.findAll()));
+        assertEquals(intact, Files.size(logFile()));
+
+        // And appends after recovery are readable
+        metadataRepository.save(createEntity("torn-4"));
+        reopen();
+        assertEquals(List.of("torn-1", "torn-2", "torn-4"), ids(metadataRepository.findAll()));
+    }
+
+    @Test
+    @DisplayName("Should discard a record with a bad checksum and everything after it")
+    void shouldDiscardCorruptRecord() throws IOException {
+        // Given
+        metadataRepository.save(createEntity("crc-1"));
+        metadataRepository.close();
+        long intact = Files.size(logFile());
+        byte[] record = WriteAheadLog.saveRecord(createEntity("crc-2"));
+        record[record.length - 1] ^= 0x5A;
+        Files.write(logFile(), record, StandardOpenOption.APPEND);
+        Files.write(logFile(), WriteAheadLog.saveRecord(createEntity("crc-3")), StandardOpenOption.APPEND);
+
+        // When
+        metadataRepository = new DurableMetadataRepository(metadataProperties, meterRegistry);
+
+        // Then
+        assertEquals(List.of("crc-1"), ids(metadataRepository.findAll()));
+        assertEquals(intact, Files.size(logFile()));
+    }
+
+    @Test
+    @DisplayName("Should recover from a snapshot plus the log written after it")
+    void shouldRecoverFromSnapshotAndLogTail() throws IOException {
+        // Given
+        metadataRepository.save(createEntity("snap-1"));
+        metadataRepository.save(createEntity("snap-2"));
+        metadataRepository.save(createEntity("snap-3"));
+        metadataRepository.deleteById("snap-2");
+        assertTrue(metadataRepository.snapshot());
+        metadataRepository.deleteById("snap-1");
+        metadataRepository.save(createEntity("snap-4"));
+
+        // When
+        reopen();
+
+        // Then
+        assertEquals(List.of("snap-3", "snap-4"), ids(metadataRepository.findAll()));
+        assertEquals(createEntity("snap-3"), metadataRepository.findById("snap-3").orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Should load a snapshot that spans several mappings")
+    void shouldLoadSnapshotLargerThanOneMapping() throws IOException {
+        // Given
+        SnapshotStore snapshotStore = new SnapshotStore(directory, 64);
+        List<MetadataEntity> entities = Stream.iterate(1, i -> i + 1).limit(20).map(i -> createEntity("chunk-" + i)).toList();
+        SnapshotStore.Written written = snapshotStore.write(5, entities.stream());
+
+        // When
+        List<MetadataEntity> loaded = new ArrayList<>();
+        long generation = snapshotStore.loadLatest(loaded::add);
+
+        // Then
+        assertTrue(written.bytes() > 10 * 64);
+        assertEquals(20, written.entities());
+        assertEquals(5, generation);
+        assertEquals(entities, loaded);
+    }
+
+    @Test
+    @DisplayName("Should delete the log segments and snapshots a new snapshot replaces")
+    void shouldCompactLogOnSnapshot() throws IOException {
+        // Given
+        metadataRepository.save(createEntity("compact-1"));
+        assertTrue(metadataRepository.snapshot());
+        metadataRepository.save(createEntity("compact-2"));
+
+        // When
+        assertTrue(metadataRepository.snapshot());
+        boolean idle = metadataRepository.snapshot();
+
+        // Then
+        assertFalse(idle);
+        assertEquals(List.of(
+            WriteAheadLog.segmentFile(directory, 3).getFileName().toString(),
+            "snapshot-0000000000000000003.bin"
+        ), files());
+        reopen();
+        assertEquals(List.of("compact-1", "compact-2"), ids(metadataRepository.findAll()));
+    }
+
+    @Test
+    @DisplayName("Should record snapshot and recovery metrics")
+    void shouldRecordSnapshotAndRecoveryMetrics() throws IOException {
+        // Given
+        metadataRepository.save(createEntity("metrics-1"));
+
+        // When
+        metadataRepository.snapshot();
+
+        // Then
+        assertEquals(1, meterRegistry.get("metadata.snapshot.duration").timer().count());
+        assertTrue(meterRegistry.get("metadata.snapshot.size").summary().totalAmount() > 0);
+        assertEquals(1, meterRegistry.get("metadata.recovery.duration").tag("phase", "snapshot").timer().count());
+        assertEquals(1, meterRegistry.get("metadata.recovery.duration").tag("phase", "log").timer().count());
+    }
+
+    @Test
+    @DisplayName("Should recover every acknowledged write after the process is killed mid-write")
+    void shouldRecoverAfterProcessIsKilled() throws Exception {
+        // Given - a separate JVM writing as fast as it can
+        metadataRepository.close();
+        Process process = new ProcessBuilder(
+            Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+            "-cp", System.getProperty("java.class.path"),
+            WalWriterProcess.class.getName(),
+            directory.toString()
+        ).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+
+        // When - kill it without warning once it has acknowledged enough writes
+        Set<String> saved = new HashSet<>();
+        Set<String> deleting = new HashSet<>();
+        Set<String> deleted = new HashSet<>();
+        try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = output.readLine()) != null) {
+                String[] parts = line.split(" ", 2);
+                switch (parts[0]) {
+                    case "saved" -> saved.add(parts[1]);
+                    case "deleting" -> deleting.add(parts[1]);
+                    case "deleted" -> deleted.add(parts[1]);
+                    default -> {
+                        // Log output
+                    }
+                }
+                if (saved.size() == 2_000) {
+                    // SIGKILL through the handle, which keeps the output readable until the pipe is drained
+                    process.toHandle().destroyForcibly();
+                }
+            }
+        } finally {
+            process.destroyForcibly();
+            assertTrue(process.waitFor(30, TimeUnit.SECONDS));
+        }
+
+        // Then - acknowledged writes are all there; a delete that was in flight may or may not have made it
+        metadataRepository = new DurableMetadataRepository(metadataProperties, meterRegistry);
+        assertTrue(saved.size() >= 2_000);
+        for (String id : saved) {
+            if (deleted.contains(id)) {
+                assertTrue(metadataRepository.findById(id).isEmpty(), id);
+            } else if (!deleting.contains(id)) {
+                assertTrue(metadataRepository.findById(id).isPresent(), id);
+            }
+        }
+    }
+
+    /**
+     * Closes and reopens the repository on the same directory.
+     *
+     * @throws IOException if closing fails
+     */
+    private void reopen() throws IOException {
+        metadataRepository.close();
+        metadataRepository = new DurableMetadataRepository(metadataProperties, meterRegistry);
+    }
+
+    private Path logFile() {
+        return WriteAheadLog.segmentFile(directory, 1);
+    }
+
+    private List<String> files() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    private static List<String> ids(List<MetadataEntity> entities) {
+        return entities.stream().map(MetadataEntity::getId).toList();
+    }
+
+    private static MetadataEntity roundTrip(MetadataEntity entity) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MetadataEntityCodec.write(new DataOutputStream(bytes), entity);
+        return MetadataEntityCodec.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    /**
+     * Creates a fully populated metadata entity with the given ID.
+     *
+     * @param id the metadata ID
+     * @return the entity
+     */
+    static MetadataEntity createEntity(String id) {
+        InfoEntity info = new InfoEntity(
+            MetadataState.ACTIVE,
+            LocalDate.of(2025, 1, 15),
+            LocalTime.of(14, 30, 0),
+            LocalDateTime.of(2025, 1, 15, 14, 30, 0)
+        );
+        List<EntryEntity> entries = new ArrayList<>(List.of(
+            new EntryEntity("Entry 1", 10, EntryType.STANDARD),
+            new EntryEntity("Entry 2 é中", 5, EntryType.PREMIUM)
+        ));
+        return new MetadataEntity(id, "Name " + id, "Description", info, entries);
+    }
+
+    /**
+     * Writes metadata in a loop and acknowledges each completed write on standard output, until killed.
+     * Snapshots run frequently, so the kill can also land in the middle of one.
+     */
+    static class WalWriterProcess {
+        public static void main(String[] args) {
+            MetadataProperties metadataProperties = new MetadataProperties();
+            metadataProperties.getStorage().getWal().setDirectory(Path.of(args[0]));
+            metadataProperties.getStorage().getWal().setSnapshotInterval(Duration.ofMillis(20));
+            DurableMetadataRepository repository = new DurableMetadataRepository(metadataProperties, new SimpleMeterRegistry());
+            for (int i = 0; ; i++) {
+                String id = "process-" + i;
+                repository.save(createEntity(id));
+                System.out.println("saved " + id);
+                if (i % 10 == 9) {
+                    System.out.println("deleting process-" + (i - 5));
+                    repository.deleteById("process-" + (i - 5));
+                    System.out.println("deleted process-" + (i - 5));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DisplayName("LayerMetricsAspect Unit Tests")
+class LayerMetricsAspectTest {
+    private SimpleMeterRegistry meterRegistry;
+    private MetadataRepository metadataRepository;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new MetadataRepositoryImpl());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(new LayerMetricsAspect(meterRegistry));
+        metadataRepository = proxyFactory.getProxy();
+    }
+
+    @Test
+    @DisplayName("Should time each repository method with its layer, class and method tags")
+    void shouldTimeRepositoryMethods() {
+        // When
+        metadataRepository.save(DurableMetadataRepositoryTest.createEntity("timed-1"));
+        metadataRepository.findById("timed-1");
+        metadataRepository.findById("missing");
+        metadataRepository.findAll(null, 10);
+        metadataRepository.count();
+
+        // Then
+        assertEquals(1, timer("save").count());
+        assertEquals(2, timer("findById").count());
+        assertEquals(1, timer("findAll(String,int)").count());
+        assertNull(meterRegistry.find(LayerMetricsAspect.TIMER_NAME).tag("method", "findAll()").timer());
+        assertNull(meterRegistry.find(LayerMetricsAspect.TIMER_NAME).tag("method", "count").timer());
+    }
+
+    @Test
+    @DisplayName("Should time failed calls under the exception they threw")
+    void shouldTagFailedCallsWithException() {
+        // When
+        assertThrows(InvalidCursorException.class, () -> metadataRepository.findAll("not a cursor", 10));
+        assertThrows(InvalidCursorException.class, () -> metadataRepository.findAll("still not a cursor", 10));
+
+        // Then
+        Timer failed = meterRegistry.get(LayerMetricsAspect.TIMER_NAME)
+            .tags("method", "findAll(String,int)", "exception", "InvalidCursorException")
+            .timer();
+        assertEquals(2, failed.count());
+        assertNull(meterRegistry.find(LayerMetricsAspect.TIMER_NAME).tags("exception", "none").timer());
+    }
+
+    private Timer timer(String method) {
+        return meterRegistry.get(LayerMetricsAspect.TIMER_NAME)
+            .tags("layer", "repository", "class", "MetadataRepositoryImpl", "method", method, "exception", "none")
+            .timer();
+    }
+}
@@ -0,0 +1,227 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+@DisplayName("MappedMetadataRepository Unit Tests")
+class MappedMetadataRepositoryTest {
+    @TempDir
+    private Path directory;
+
+    private MetadataProperties metadataProperties;
+    private MappedMetadataRepository metadataRepository;
+
+    @BeforeEach
+    void setUp() {
+        metadataProperties = new MetadataProperties();
+        metadataProperties.getStorage().setMode(StorageMode.MAPPED);
+        metadataProperties.getStorage().getMapped().setDirectory(directory);
+        metadataProperties.getStorage().getMapped().setSegmentSize(DataSize.ofKilobytes(4));
+        metadataProperties.getStorage().getMapped().setCompactionInterval(Duration.ZERO);
+        metadataRepository = new MappedMetadataRepository(metadataProperties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        metadataRepository.close();
+    }
+
+    @Test
+    @DisplayName("Should store, replace and delete metadata by ID")
+    void shouldStoreReplaceAndDeleteMetadata() {
+        // Given
+        MetadataEntity entity = DurableMetadataRepositoryTest.createEntity("mapped-1");
+        MetadataEntity replacement = DurableMetadataRepositoryTest.createEntity("mapped-1");
+        replacement.setName("Replaced");
+
+        // When
+        metadataRepository.save(entity);
+        metadataRepository.save(DurableMetadataRepositoryTest.createEntity("mapped-2"));
+        metadataRepository.save(replacement);
+        metadataRepository.deleteById("mapped-2");
+        metadataRepository.deleteById("missing");
+        metadataRepository.deleteById(null);
+
+        // Then
+        assertEquals(replacement, metadataRepository.findById("mapped-1").orElseThrow());
+        assertNotSame(replacement, metadataRepository.findById("mapped-1").orElseThrow());
+        assertTrue(metadataRepository.findById("mapped-2").isEmpty());
+        assertTrue(metadataRepository.findById(null).isEmpty());
+        assertEquals(List.of("mapped-1"), ids(metadataRepository.findAll()));
+        assertEquals(1, metadataRepository.count());
+    }
+
+    @Test
+    @DisplayName("Should save only when ID is absent")
+    void shouldSaveOnlyWhenIdIsAbsent() {
+        // Given
+        MetadataEntity first = DurableMetadataRepositoryTest.createEntity("mapped-1");
+        MetadataEntity duplicate = DurableMetadataRepositoryTest.createEntity("mapped-1");
+        duplicate.setName("Duplicate");
+
+        // When
+        Optional<MetadataEntity> firstResult = metadataRepository.saveIfAbsent(first);
+        Optional<MetadataEntity> duplicateResult = metadataRepository.saveIfAbsent(duplicate);
+        List<MetadataEntity> duplicates = metadataRepository.saveAllIfAbsent(List.of(
+            DurableMetadataRepositoryTest.createEntity("mapped-2"), duplicate
+        ));
+
+        // Then
+        assertTrue(firstResult.isEmpty());
+        assertEquals(first, duplicateResult.orElseThrow());
+        assertEquals(List.of(duplicate), duplicates);
+        assertEquals(List.of("mapped-1", "mapped-2"), ids(metadataRepository.findAll()));
+    }
+
+    @Test
+    @DisplayName("Should page and stream through metadata in insertion order across segments")
+    void shouldPageAndStreamInInsertionOrder() {
+        // Given - records spread over several 4 KB segments
+        for (int i = 0; i < 50; i++) {
+            metadataRepository.save(DurableMetadataRepositoryTest.createEntity("page-" + i));
+        }
+        metadataRepository.deleteById("page-1");
+
+        // When
+        Page<MetadataEntity> first = metadataRepository.findAll(null, 2);
+        Page<MetadataEntity> second = metadataRepository.findAll(first.nextCursor(), 2);
+
+        // Then
+        assertEquals(List.of("page-0", "page-2"), ids(first.content()));
+        assertEquals(List.of("page-3", "page-4"), ids(second.content()));
+        assertEquals(49, metadataRepository.streamAll().count());
+        assertEquals(ids(metadataRepository.findAll()), metadataRepository.streamAll().map(MetadataEntity::getId).toList());
+        assertThrows(InvalidCursorException.class, () -> metadataRepository.findAll("not a cursor", 10));
+    }
+
+    @Test
+    @DisplayName("Should filter by state and entry type and follow replacements")
+    void shouldFilterByStateAndEntryType() {
+        // Given
+        for (int i = 0; i < 4; i++) {
+            MetadataEntity entity = DurableMetadataRepositoryTest.createEntity("filter-" + i);
+            entity.getInfo().setState(i % 2 == 0 ? MetadataState.ACTIVE : MetadataState.INACTIVE);
+            metadataRepository.save(entity);
+        }
+        MetadataEntity replacement = DurableMetadataRepositoryTest.createEntity("filter-1");
+        replacement.getEntries().clear();
+        metadataRepository.save(replacement);
+        metadataRepository.deleteById("filter-2");
+
+        // When
+        Page<MetadataEntity> active = metadataRepository.findAll(new MetadataFilter(MetadataState.ACTIVE, null), null, 1);
+        Page<MetadataEntity> premium = metadataRepository.findAll(new MetadataFilter(null, EntryType.PREMIUM), null, 10);
+
+        // Then
+        assertEquals(List.of("filter-0"), ids(active.content()));
+        assertEquals(List.of("filter-1"), ids(metadataRepository.findAll(new MetadataFilter(MetadataState.ACTIVE, null), active.nextCursor(), 1).content()));
+        assertEquals(List.of("filter-0", "filter-3"), ids(premium.content()));
+    }
+
+    @Test
+    @DisplayName("Should find metadata in a time range and follow replacements")
+    void shouldFindMetadataInTimeRange() {
+        // Given
+        LocalDateTime start = LocalDateTime.of(2025, 1, 15, 0, 0);
+        for (int i = 0; i < 4; i++) {
+            MetadataEntity entity = DurableMetadataRepositoryTest.createEntity("range-" + i);
+            entity.getInfo().setCreatedDatetime(start.plusHours(3 - i));
+            metadataRepository.save(entity);
+        }
+        MetadataEntity moved = DurableMetadataRepositoryTest.createEntity("range-3");
+        moved.getInfo().setCreatedDatetime(start.plusDays(1));
+        metadataRepository.save(moved);
+
+        // When
+        Page<MetadataEntity> result = metadataRepository.findAll(new MetadataFilter(null, null, start, start.plusHours(3)), null, 10);
+
+        // Then
+        assertEquals(List.of("range-2", "range-1"), ids(result.content()));
+    }
+
+    @Test
+    @DisplayName("Should store a record larger than a segment")
+    void shouldStoreRecordLargerThanSegment() {
+        // Given
+        MetadataEntity entity = DurableMetadataRepositoryTest.createEntity("large");
+        entity.setDescription("x".repeat(10_000));
+
+        // When
+        metadataRepository.save(entity);
+
+        // Then
+        assertEquals(entity, metadataRepository.findById("large").orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Should free mostly garbage segments and keep their live records")
+    void shouldCompactGarbageSegments() {
+        // Given - overwrite every record many times so older segments are almost all garbage
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 10; i++) {
+                MetadataEntity entity = DurableMetadataRepositoryTest.createEntity("compact-" + i);
+                entity.setName("Round " + round);
+                metadataRepository.save(entity);
+            }
+        }
+        metadataRepository.deleteById("compact-9");
+        long liveBytes = metadataRepository.estimatedBytes();
+
+        // When
+        int freed = metadataRepository.compact();
+
+        // Then
+        assertTrue(freed > 0);
+        assertEquals(0, metadataRepository.compact());
+        assertEquals(9, metadataRepository.count());
+        assertTrue(liveBytes > 0);
+        assertEquals(liveBytes, metadataRepository.estimatedBytes());
+        List<MetadataEntity> result = metadataRepository.findAll();
+        assertEquals(9, result.size());
+        for (int i = 0; i < 9; i++) {
+            assertEquals("compact-" + i, result.get(i).getId());
+            assertEquals("Round 19", result.get(i).getName());
+            assertEquals(MetadataEntityCodec.contentHash(result.get(i)),
+                metadataRepository.findContentHashById("compact-" + i).orElseThrow());
+        }
+    }
+
+    @Test
+    @DisplayName("Should store the same content hashes as the in-memory store and bump the version on every change")
+    void shouldTrackContentHashesAndVersion() {
+        // Given
+        MetadataRepositoryImpl inMemory = new MetadataRepositoryImpl();
+        MetadataEntity entity = DurableMetadataRepositoryTest.createEntity("mapped-1");
+        inMemory.save(entity);
+        long initial = metadataRepository.version();
+
+        // When
+        metadataRepository.save(entity);
+        long saved = metadataRepository.version();
+        metadataRepository.saveIfAbsent(entity);
+
+        // Then
+        assertNotEquals(initial, saved);
+        assertEquals(saved, metadataRepository.version());
+        assertEquals(inMemory.findContentHashById("mapped-1"), metadataRepository.findContentHashById("mapped-1"));
+        metadataRepository.deleteById("mapped-1");
+        assertTrue(metadataRepository.findContentHashById("mapped-1").isEmpty());
+        assertNotEquals(saved, metadataRepository.version());
+    }
+
+    private static List<String> ids(List<MetadataEntity> entities) {
+        return entities.stream().map(MetadataEntity::getId).toList();
+    }
+}
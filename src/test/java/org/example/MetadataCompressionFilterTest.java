@@ -0,0 +1,278 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+
+@DisplayName("MetadataCompressionFilter Unit Tests")
+class MetadataCompressionFilterTest {
+    private static final String LARGE_JSON = "[" + "{\"name\":\"Entry\",\"count\":10,\"type\":\"standard\"},".repeat(100)
+        + "{}]";
+
+    private SimpleMeterRegistry meterRegistry;
+    private MetadataCompressionFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new MetadataCompressionFilter(new MetadataProperties(), meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should pick gzip or deflate from Accept-Encoding by quality value")
+    void shouldNegotiateEncoding() {
+        // When / Then
+        assertEquals("gzip", MetadataCompressionFilter.negotiate("gzip, deflate, br"));
+        assertEquals("gzip", MetadataCompressionFilter.negotiate("deflate, GZIP"));
+        assertEquals("deflate", MetadataCompressionFilter.negotiate("gzip;q=0.5, deflate"));
+        assertEquals("deflate", MetadataCompressionFilter.negotiate("gzip;q=0, *"));
+        assertEquals("gzip", MetadataCompressionFilter.negotiate("x-gzip"));
+        assertEquals("gzip", MetadataCompressionFilter.negotiate("*;q=0.1"));
+        assertNull(MetadataCompressionFilter.negotiate("identity"));
+        assertNull(MetadataCompressionFilter.negotiate("br, *;q=0"));
+        assertNull(MetadataCompressionFilter.negotiate("gzip;q=0, deflate;q=0.0"));
+        assertNull(MetadataCompressionFilter.negotiate("gzip;q=bogus"));
+        assertNull(MetadataCompressionFilter.negotiate(""));
+    }
+
+    @Test
+    @DisplayName("Should compress large responses of compressible types and pass others through")
+    void shouldCompressLargeResponses() throws Exception {
+        // When
+        MockHttpServletResponse gzip = filter("gzip, deflate", MediaType.APPLICATION_JSON_VALUE, LARGE_JSON, "\"v1\"");
+        MockHttpServletResponse deflate = filter("deflate", MediaType.APPLICATION_JSON_VALUE, LARGE_JSON, null);
+        MockHttpServletResponse small = filter("gzip", MediaType.APPLICATION_JSON_VALUE, "{\"id\":\"small\"}", "\"v1\"");
+        MockHttpServletResponse streamed = filter("gzip", MediaType.APPLICATION_NDJSON_VALUE, LARGE_JSON, null);
+        MockHttpServletResponse identity = filter(null, MediaType.APPLICATION_JSON_VALUE, LARGE_JSON, "\"v1\"");
+
+        // Then
+        assertEquals("gzip", gzip.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, gzip.getHeader(HttpHeaders.VARY));
+        assertEquals("W/\"v1\"", gzip.getHeader(HttpHeaders.ETAG));
+        assertEquals(gzip.getContentAsByteArray().length, gzip.getContentLength());
+        assertTrue(gzip.getContentLength() < LARGE_JSON.length() / 10);
+        assertEquals(LARGE_JSON, inflate(new GZIPInputStream(new ByteArrayInputStream(gzip.getContentAsByteArray()))));
+        assertEquals("deflate", deflate.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(LARGE_JSON, inflate(new InflaterInputStream(new ByteArrayInputStream(deflate.getContentAsByteArray()))));
+        for (MockHttpServletResponse plain : new MockHttpServletResponse[]{small, streamed, identity}) {
+            assertNull(plain.getHeader(HttpHeaders.CONTENT_ENCODING));
+            assertEquals(HttpHeaders.ACCEPT_ENCODING, plain.getHeader(HttpHeaders.VARY));
+        }
+        assertEquals("{\"id\":\"small\"}", small.getContentAsString());
+        assertEquals(small.getContentAsByteArray().length, small.getContentLength());
+        assertEquals("W/\"v1\"", small.getHeader(HttpHeaders.ETAG));
+        assertEquals("\"v1\"", identity.getHeader(HttpHeaders.ETAG));
+        assertEquals(LARGE_JSON, streamed.getContentAsString());
+        assertEquals(LARGE_JSON, identity.getContentAsString());
+        assertEquals(1, meterRegistry.get("metadata.compression").tag("encoding", "gzip").timer().count());
+        assertEquals(1, meterRegistry.get("metadata.compression").tag("encoding", "deflate").timer().count());
+        double ratio = meterRegistry.get("metadata.compression.ratio").tag("encoding", "gzip").summary().mean();
+        assertEquals((double) gzip.getContentLength() / LARGE_JSON.length(), ratio, 1e-9);
+    }
+
+    @Test
+    @DisplayName("Should serve cached compressed copies until the ETag changes")
+    void shouldReuseCompressedResponses() throws Exception {
+        // When
+        MockHttpServletResponse first = filter("gzip", MediaType.APPLICATION_JSON_VALUE, LARGE_JSON, "\"v1\"");
+        MockHttpServletResponse repeated = filter("gzip", MediaType.APPLICATION_JSON_VALUE, LARGE_JSON, "\"v1\"");
+        MockHttpServletResponse changed = filter("gzip", MediaType.APPLICATION_JSON_VALUE, LARGE_JSON.replace("10", "11"), "\"v2\"");
+
+        // Then
+        assertArrayEquals(first.getContentAsByteArray(), repeated.getContentAsByteArray());
+        assertEquals("W/\"v1\"", repeated.getHeader(HttpHeaders.ETAG));
+        assertEquals(LARGE_JSON.replace("10", "11"),
+            inflate(new GZIPInputStream(new ByteArrayInputStream(changed.getContentAsByteArray()))));
+        assertEquals(2, meterRegistry.get("metadata.compression").tag("encoding", "gzip").timer().count());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", MetadataCompressionFilter.CACHE_NAME)
+            .tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Should weaken the ETag of a 304 to a client that accepts an encoding")
+    void shouldWeakenEtagOfNotModified() throws Exception {
+        // Given
+        FilterChain notModified = (req, res) -> {
+            HttpServletResponse servletResponse = (HttpServletResponse) res;
+            servletResponse.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            servletResponse.setHeader(HttpHeaders.ETAG, "\"v1\"");
+        };
+
+        // When
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("gzip"), response, notModified);
+
+        // Then
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+        assertEquals("W/\"v1\"", response.getHeader(HttpHeaders.ETAG));
+        assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    @DisplayName("Should leave the length off compressible responses without a body")
+    void shouldOmitContentLengthWithoutBody() throws Exception {
+        // Given
+        FilterChain notModified = (req, res) -> {
+            HttpServletResponse servletResponse = (HttpServletResponse) res;
+            servletResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            servletResponse.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            servletResponse.setHeader(HttpHeaders.ETAG, "\"v1\"");
+        };
+        FilterChain head = (req, res) -> {
+            res.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            res.getOutputStream().write("{}".getBytes(StandardCharsets.UTF_8));
+        };
+        MockHttpServletRequest headRequest = request("gzip");
+        headRequest.setMethod("HEAD");
+
+        // When
+        MockHttpServletResponse unchanged = new MockHttpServletResponse();
+        filter.doFilter(request("gzip"), unchanged, notModified);
+        MockHttpServletResponse headers = new MockHttpServletResponse();
+        filter.doFilter(headRequest, headers, head);
+
+        // Then
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, unchanged.getStatus());
+        assertEquals("W/\"v1\"", unchanged.getHeader(HttpHeaders.ETAG));
+        assertNull(unchanged.getHeader(HttpHeaders.CONTENT_LENGTH));
+        assertEquals(0, unchanged.getContentAsByteArray().length);
+        assertNull(headers.getHeader(HttpHeaders.CONTENT_LENGTH));
+        assertNull(headers.getHeader(HttpHeaders.VARY));
+    }
+
+    @Test
+    @DisplayName("Should send bodies written through a write listener as they are")
+    void shouldPassThroughNonBlockingWrites() throws Exception {
+        // Given
+        FilterChain nonBlocking = (req, res) -> {
+            HttpServletResponse servletResponse = (HttpServletResponse) res;
+            servletResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            ServletOutputStream out = servletResponse.getOutputStream();
+            out.write(LARGE_JSON.substring(0, 1).getBytes(StandardCharsets.UTF_8));
+            out.setWriteListener(new WriteListener() {
+                @Override
+                public void onWritePossible() throws IOException {
+                    assertTrue(out.isReady());
+                    out.write(LARGE_JSON.substring(1).getBytes(StandardCharsets.UTF_8));
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    fail(t);
+                }
+            });
+        };
+        MockHttpServletResponse response = new MockHttpServletResponse() {
+            @Override
+            public ServletOutputStream getOutputStream() {
+                return new ListeningOutputStream(super.getOutputStream());
+            }
+        };
+
+        // When
+        filter.doFilter(request("gzip"), response, nonBlocking);
+
+        // Then
+        assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(LARGE_JSON, response.getContentAsString());
+        assertEquals(0, meterRegistry.get("metadata.compression").tag("encoding", "gzip").timer().count());
+    }
+
+    /**
+     * Runs a GET request through the filter to a handler that writes a body.
+     *
+     * @param acceptEncoding the Accept-Encoding header, or null
+     * @param contentType the content type of the body
+     * @param body the body
+     * @param etag the ETag of the body, or null
+     * @return the response
+     */
+    private MockHttpServletResponse filter(String acceptEncoding, String contentType, String body, String etag)
+        throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain handler = (req, res) -> {
+            HttpServletResponse servletResponse = (HttpServletResponse) res;
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            servletResponse.setContentType(contentType);
+            if (etag != null) {
+                servletResponse.setHeader(HttpHeaders.ETAG, etag);
+            }
+            servletResponse.setContentLength(bytes.length);
+            servletResponse.getOutputStream().write(bytes);
+            servletResponse.flushBuffer();
+        };
+        filter.doFilter(request(acceptEncoding), response, handler);
+        return response;
+    }
+
+    /**
+     * Creates a GET request for a listing.
+     *
+     * @param acceptEncoding the Accept-Encoding header, or null
+     * @return the request
+     */
+    private static MockHttpServletRequest request(String acceptEncoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/metadata");
+        request.setQueryString("limit=100");
+        if (acceptEncoding != null) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        return request;
+    }
+
+    private static String inflate(InputStream in) throws IOException {
+        try (in) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Output stream of a container that is always ready and calls a write listener as soon as it is set.
+     */
+    private static final class ListeningOutputStream extends ServletOutputStream {
+        private final ServletOutputStream out;
+
+        ListeningOutputStream(ServletOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            try {
+                writeListener.onWritePossible();
+            } catch (IOException e) {
+                writeListener.onError(e);
+            }
+        }
+    }
+}
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.core.io.Resource;
@@ -14,19 +15,40 @@ import org.springframework.http.*;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.util.StreamUtils;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 
 @Tag("integration")
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles("test")
+@AutoConfigureObservability(tracing = false)
 @DisplayName("Metadata Controller Integration Tests")
 class MetadataControllerIntegrationTest {
     private static final DateTimeFormatter DATE_CREATED_FORMATTER = DateTimeFormatter.ofPattern("MM/dd/yyyy");
@@ -43,6 +65,9 @@ class MetadataControllerIntegrationTest {
     @Autowired
     private ResourceLoader resourceLoader;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     private static final String BASE_URL = "/api/metadata";
 
     @Test
@@ -75,6 +100,72 @@ class MetadataControllerIntegrationTest {
         assertTrue(location.toString().contains("/api/metadata/012345678-9012-3456-7890-123456789012"));
     }
 
+    @Test
+    @DisplayName("Should create metadata in bulk and summarize the results")
+    void shouldCreateMetadataInBulk() {
+        // Given
+        createTestMetadata("test-bulk-existing", "Existing", MetadataState.ACTIVE);
+        String xmlRequest = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <metadata-list>
+                <metadata id="test-bulk-1">
+                    <name>Bulk 1</name>
+                    <info>
+                        <state>inactive</state>
+                    </info>
+                </metadata>
+                <metadata id="test-bulk-existing">
+                    <name>Duplicate</name>
+                </metadata>
+                <metadata id="test-bulk-invalid">
+                    <info>
+                        <created-date>invalid</created-date>
+                    </info>
+                </metadata>
+                <metadata id="test-bulk-2">
+                    <name>Bulk 2</name>
+                </metadata>
+            </metadata-list>
+            """;
+        HttpEntity<String> request = new HttpEntity<>(xmlRequest, createXmlHeaders());
+
+        // When
+        ResponseEntity<BulkCreateResponse> response = restTemplate.postForEntity(
+            BASE_URL + "/bulk",
+            request,
+            BulkCreateResponse.class
+        );
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        BulkCreateResponse body = response.getBody();
+        assertNotNull(body);
+        assertEquals(2, body.getCreated());
+        assertEquals(1, body.getDuplicates());
+        assertEquals(1, body.getInvalid());
+        assertTrue(body.getFailedIds().containsAll(List.of("test-bulk-existing", "test-bulk-invalid")));
+        ResponseEntity<MetadataResponse> created = restTemplate.getForEntity(BASE_URL + "/test-bulk-1", MetadataResponse.class);
+        assertEquals(HttpStatus.OK, created.getStatusCode());
+        assertNotNull(created.getBody());
+        assertEquals(MetadataState.INACTIVE, created.getBody().getInfo().getState());
+        ResponseEntity<MetadataResponse> existing = restTemplate.getForEntity(BASE_URL + "/test-bulk-existing", MetadataResponse.class);
+        assertNotNull(existing.getBody());
+        assertEquals("Existing", existing.getBody().getName());
+    }
+
+    @Test
+    @DisplayName("Should return 400 for a malformed bulk document")
+    void shouldReturn400ForMalformedBulkDocument() {
+        // Given
+        HttpEntity<String> request = new HttpEntity<>("<metadata-list><metadata>", createXmlHeaders());
+
+        // When
+        ResponseEntity<String> response = restTemplate.postForEntity(BASE_URL + "/bulk", request, String.class);
+
+        // Then
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
     @Test
     @DisplayName("Should retrieve all metadata")
     void shouldFindAllMetadata() {
@@ -96,6 +187,162 @@ class MetadataControllerIntegrationTest {
         assertTrue(body.length >= 2);
     }
 
+    @Test
+    @DisplayName("Should page through metadata using the next cursor")
+    void shouldPageThroughMetadata() {
+        // Given
+        for (int i = 0; i < 3; i++) {
+            createTestMetadata("test-page-" + i, "Page " + i, MetadataState.ACTIVE);
+        }
+
+        // When - follow the cursor until the last page
+        List<String> ids = new ArrayList<>();
+        String url = BASE_URL + "?limit=2";
+        int pages = 0;
+        while (url != null) {
+            ResponseEntity<MetadataResponse[]> response = restTemplate.getForEntity(url, MetadataResponse[].class);
+            assertEquals(HttpStatus.OK, response.getStatusCode());
+            MetadataResponse[] body = response.getBody();
+            assertNotNull(body);
+            assertTrue(body.length <= 2);
+            for (MetadataResponse metadata : body) {
+                ids.add(metadata.getId());
+            }
+            String cursor = response.getHeaders().getFirst("X-Next-Cursor");
+            url = cursor != null ? BASE_URL + "?limit=2&cursor=" + cursor : null;
+            pages++;
+        }
+
+        // Then
+        assertTrue(pages >= 2);
+        assertEquals(ids.size(), ids.stream().distinct().count());
+        int first = ids.indexOf("test-page-0");
+        assertTrue(first >= 0);
+        assertEquals(List.of("test-page-0", "test-page-1", "test-page-2"), ids.subList(first, first + 3));
+    }
+
+    @Test
+    @DisplayName("Should filter metadata by state")
+    void shouldFilterMetadataByState() {
+        // Given
+        createTestMetadata("test-filter-active", "Active", MetadataState.ACTIVE);
+        createTestMetadata("test-filter-inactive", "Inactive", MetadataState.INACTIVE);
+
+        // When
+        ResponseEntity<MetadataResponse[]> response = restTemplate.getForEntity(
+            BASE_URL + "?state=inactive", MetadataResponse[].class);
+        ResponseEntity<MetadataResponse[]> constantName = restTemplate.getForEntity(
+            BASE_URL + "?state=INACTIVE", MetadataResponse[].class);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        MetadataResponse[] body = response.getBody();
+        assertNotNull(body);
+        List<String> ids = Arrays.stream(body).map(MetadataResponse::getId).toList();
+        assertTrue(ids.contains("test-filter-inactive"));
+        assertFalse(ids.contains("test-filter-active"));
+        assertTrue(Arrays.stream(body).allMatch(metadata -> metadata.getInfo().getState() == MetadataState.INACTIVE));
+        assertArrayEquals(body, constantName.getBody());
+    }
+
+    @Test
+    @DisplayName("Should filter metadata by creation time range")
+    void shouldFilterMetadataByCreationTime() {
+        // Given
+        createTestMetadata("test-range", "Range", MetadataState.ACTIVE);
+
+        // When
+        ResponseEntity<MetadataResponse[]> inside = restTemplate.getForEntity(
+            BASE_URL + "?from=" + CREATED_DATETIME + "&to=" + CREATED_DATETIME.plusSeconds(1), MetadataResponse[].class);
+        ResponseEntity<MetadataResponse[]> outside = restTemplate.getForEntity(
+            BASE_URL + "?from=" + CREATED_DATETIME.plusSeconds(1), MetadataResponse[].class);
+
+        // Then
+        assertEquals(HttpStatus.OK, inside.getStatusCode());
+        assertNotNull(inside.getBody());
+        assertTrue(Arrays.stream(inside.getBody()).anyMatch(metadata -> metadata.getId().equals("test-range")));
+        assertTrue(Arrays.stream(inside.getBody()).allMatch(metadata -> metadata.getInfo().getCreatedDatetime().equals(CREATED_DATETIME)));
+        assertNotNull(outside.getBody());
+        assertEquals(0, outside.getBody().length);
+    }
+
+    @Test
+    @DisplayName("Should return 400 for an unknown filter value")
+    void shouldReturn400ForUnknownFilterValue() {
+        // When
+        ResponseEntity<String> response = restTemplate.getForEntity(BASE_URL + "?entryType=GOLD", String.class);
+
+        // Then
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Should return 400 for an invalid cursor")
+    void shouldReturn400ForInvalidCursor() {
+        // When
+        ResponseEntity<String> response = restTemplate.getForEntity(BASE_URL + "?cursor=invalid", String.class);
+
+        // Then
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Should stream all metadata as NDJSON")
+    void shouldStreamAllMetadataAsNdjson() throws IOException {
+        // Given
+        createTestMetadata("test-stream-1", "Stream 1", MetadataState.ACTIVE);
+        createTestMetadata("test-stream-2", "Stream 2", MetadataState.INACTIVE);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_NDJSON));
+
+        // When
+        ResponseEntity<String> response = restTemplate.exchange(
+            BASE_URL,
+            HttpMethod.GET,
+            new HttpEntity<>(headers),
+            String.class
+        );
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getHeaders().getContentType());
+        assertTrue(MediaType.APPLICATION_NDJSON.isCompatibleWith(response.getHeaders().getContentType()));
+        String body = response.getBody();
+        assertNotNull(body);
+        assertTrue(body.endsWith("\n"));
+        List<String> ids = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            ids.add(objectMapper.readValue(line, MetadataResponse.class).getId());
+        }
+        assertTrue(ids.indexOf("test-stream-1") >= 0);
+        assertTrue(ids.indexOf("test-stream-2") > ids.indexOf("test-stream-1"));
+    }
+
+    @Test
+    @DisplayName("Should return a JSON page when any media type is accepted")
+    void shouldReturnJsonPageForWildcardAccept() {
+        // Given
+        createTestMetadata("test-wildcard", "Wildcard", MetadataState.ACTIVE);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.ALL));
+
+        // When
+        ResponseEntity<String> response = restTemplate.exchange(
+            BASE_URL,
+            HttpMethod.GET,
+            new HttpEntity<>(headers),
+            String.class
+        );
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(response.getHeaders().getContentType());
+        assertTrue(MediaType.APPLICATION_JSON.isCompatibleWith(response.getHeaders().getContentType()));
+        String body = response.getBody();
+        assertNotNull(body);
+        assertTrue(body.startsWith("["));
+    }
+
     @Test
     @DisplayName("Should retrieve metadata by ID")
     void shouldFindMetadataById() {
@@ -196,6 +443,36 @@ class MetadataControllerIntegrationTest {
         assertTrue(body.contains("already exists") || body.contains(testId));
     }
 
+    @Test
+    @DisplayName("Should answer retries with the same Idempotency-Key with the first response")
+    void shouldReplayResponseForIdempotencyKey() {
+        // Given - no ID, so every request that runs generates a new one
+        MetadataRequest metadata = MetadataRequest.builder()
+            .name("Idempotent")
+            .entries(new ArrayList<>())
+            .build();
+        HttpHeaders headers = createXmlHeaders();
+        headers.set("Idempotency-Key", "test-idempotency-key");
+        HttpEntity<String> request = new HttpEntity<>(createTestMetadataXml(metadata), headers);
+        metadata.setName("Different");
+        HttpEntity<String> different = new HttpEntity<>(createTestMetadataXml(metadata), headers);
+
+        // When
+        ResponseEntity<String> first = restTemplate.postForEntity(BASE_URL, request, String.class);
+        ResponseEntity<String> retry = restTemplate.postForEntity(BASE_URL, request, String.class);
+        ResponseEntity<String> reused = restTemplate.postForEntity(BASE_URL, different, String.class);
+
+        // Then
+        assertEquals(HttpStatus.CREATED, first.getStatusCode());
+        assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        assertNotNull(first.getHeaders().getLocation());
+        assertEquals(first.getHeaders().getLocation(), retry.getHeaders().getLocation());
+        assertEquals(first.getBody(), retry.getBody());
+        assertEquals(MediaType.APPLICATION_JSON, retry.getHeaders().getContentType());
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, reused.getStatusCode());
+        assertTrue(reused.getBody().contains("test-idempotency-key"));
+    }
+
     @Test
     @DisplayName("Should parse enum state from XML correctly")
     void shouldParseEnumStateFromXml() {
@@ -232,6 +509,301 @@ class MetadataControllerIntegrationTest {
         }
     }
 
+    @Test
+    @DisplayName("Should expose layer timers and repository gauges in Prometheus format")
+    void shouldExposeLayerMetricsInPrometheusFormat() {
+        // Given
+        createTestMetadata("test-metrics", "Metrics Test", MetadataState.ACTIVE);
+        restTemplate.getForEntity(BASE_URL + "/test-metrics", String.class);
+
+        // When
+        ResponseEntity<String> response = restTemplate.getForEntity("/actuator/prometheus", String.class);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        String body = response.getBody();
+        assertNotNull(body);
+        for (String layer : List.of("controller", "service", "mapper", "repository")) {
+            assertTrue(body.contains("layer=\"" + layer + "\""), layer);
+        }
+        assertTrue(body.contains("metadata_invocation_seconds_bucket{"));
+        assertTrue(body.contains("method=\"create\""));
+        assertTrue(body.contains("metadata_repository_entities "));
+        assertTrue(body.contains("metadata_repository_estimated_bytes "));
+    }
+
+    @Test
+    @DisplayName("Should serve lookups from the response cache until the metadata is deleted")
+    void shouldServeLookupsFromResponseCache() {
+        // Given
+        createTestMetadata("test-cache", "Cache Test", MetadataState.ACTIVE);
+
+        // When
+        ResponseEntity<String> first = restTemplate.getForEntity(BASE_URL + "/test-cache", String.class);
+        ResponseEntity<String> second = restTemplate.getForEntity(BASE_URL + "/test-cache", String.class);
+        restTemplate.delete(BASE_URL + "/test-cache");
+        ResponseEntity<String> deleted = restTemplate.getForEntity(BASE_URL + "/test-cache", String.class);
+        ResponseEntity<String> metrics = restTemplate.getForEntity("/actuator/prometheus", String.class);
+
+        // Then
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertEquals(MediaType.APPLICATION_JSON, first.getHeaders().getContentType());
+        assertEquals(first.getBody(), second.getBody());
+        assertTrue(first.getBody().contains("\"createdDatetime\":\"11/13/2025 12:00:00\""));
+        assertEquals(HttpStatus.NOT_FOUND, deleted.getStatusCode());
+        String body = metrics.getBody();
+        assertNotNull(body);
+        assertTrue(body.contains("cache_gets_total{cache=\"metadata.json\""));
+        assertTrue(body.contains("cache_evictions_total{cache=\"metadata.json\""));
+    }
+
+    @Test
+    @DisplayName("Should only return the requested fields")
+    void shouldReturnRequestedFields() throws IOException {
+        // Given
+        createTestMetadata("test-fields", "Fields Test", MetadataState.ACTIVE);
+
+        // When
+        ResponseEntity<String> single = restTemplate.getForEntity(BASE_URL + "/test-fields?fields=id,name,info.state", String.class);
+        ResponseEntity<String> page = restTemplate.getForEntity(BASE_URL + "?limit=5&fields=id,entries", String.class);
+        ResponseEntity<String> invalid = restTemplate.getForEntity(BASE_URL + "?fields=id,secret", String.class);
+
+        // Then
+        assertEquals(HttpStatus.OK, single.getStatusCode());
+        var json = objectMapper.readTree(single.getBody());
+        assertEquals(List.of("id", "name", "info"), iterableToList(json.fieldNames()));
+        assertEquals(List.of("state"), iterableToList(json.get("info").fieldNames()));
+        assertEquals("active", json.get("info").get("state").asText());
+        assertEquals(HttpStatus.OK, page.getStatusCode());
+        var entries = objectMapper.readTree(page.getBody());
+        assertFalse(entries.isEmpty());
+        for (var entry : entries) {
+            assertEquals(List.of("id", "entries"), iterableToList(entry.fieldNames()));
+        }
+        assertEquals(HttpStatus.BAD_REQUEST, invalid.getStatusCode());
+        assertTrue(invalid.getBody().contains("secret"));
+    }
+
+    @Test
+    @DisplayName("Should return metadata as CBOR or Smile to clients that accept them")
+    void shouldNegotiateBinaryFormats() throws IOException {
+        // Given
+        createTestMetadata("test-binary", "Binary Test", MetadataState.ACTIVE);
+        ObjectMapper cborMapper = ObjectMapperConfig.configure(new CBORMapper());
+
+        // When
+        ResponseEntity<byte[]> json = getAccepting(BASE_URL + "/test-binary", MediaType.APPLICATION_JSON);
+        ResponseEntity<byte[]> cbor = getAccepting(BASE_URL + "/test-binary", MediaType.APPLICATION_CBOR);
+        ResponseEntity<byte[]> smile = getAccepting(BASE_URL + "/test-binary",
+            MediaType.parseMediaType(ObjectMapperConfig.APPLICATION_SMILE_VALUE));
+        ResponseEntity<byte[]> page = getAccepting(BASE_URL + "?limit=5&fields=id,info.createdDate", MediaType.APPLICATION_CBOR);
+        ResponseEntity<byte[]> missing = getAccepting(BASE_URL + "/missing", MediaType.APPLICATION_CBOR);
+
+        // Then
+        MetadataResponse expected = objectMapper.readValue(json.getBody(), MetadataResponse.class);
+        assertEquals(MediaType.APPLICATION_CBOR, cbor.getHeaders().getContentType());
+        assertEquals(expected, cborMapper.readValue(cbor.getBody(), MetadataResponse.class));
+        assertEquals(expected, ObjectMapperConfig.configure(new SmileMapper()).readValue(smile.getBody(), MetadataResponse.class));
+        String etag = json.getHeaders().getETag();
+        assertEquals(etag.substring(0, etag.length() - 1) + "-cbor\"", cbor.getHeaders().getETag());
+        assertEquals(etag.substring(0, etag.length() - 1) + "-smile\"", smile.getHeaders().getETag());
+        for (ResponseEntity<byte[]> response : List.of(json, cbor, smile, page)) {
+            assertTrue(response.getHeaders().getVary().contains(HttpHeaders.ACCEPT));
+        }
+        assertTrue(cbor.getBody().length < json.getBody().length);
+        assertEquals(HttpStatus.OK, page.getStatusCode());
+        var entries = cborMapper.readTree(page.getBody());
+        assertFalse(entries.isEmpty());
+        for (var entry : entries) {
+            assertEquals(List.of("id", "info"), iterableToList(entry.fieldNames()));
+            assertEquals(List.of("createdDate"), iterableToList(entry.get("info").fieldNames()));
+        }
+        assertEquals(DATE_CREATED_FORMATTER.format(CREATED_DATE), cborMapper.readTree(cbor.getBody())
+            .get("info").get("createdDate").asText());
+        assertEquals(HttpStatus.NOT_FOUND, missing.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Should look up metadata as XML for clients that accept XML and as JSON for any other client")
+    void shouldNegotiateXmlLookups() {
+        // Given
+        createTestMetadata("test-xml-lookup", "XML Lookup Test", MetadataState.ACTIVE);
+
+        // When
+        ResponseEntity<byte[]> xml = getAccepting(BASE_URL + "/test-xml-lookup", MediaType.APPLICATION_XML);
+        ResponseEntity<byte[]> any = getAccepting(BASE_URL + "/test-xml-lookup", MediaType.ALL);
+        ResponseEntity<byte[]> projected = getAccepting(BASE_URL + "/test-xml-lookup?fields=id", MediaType.APPLICATION_XML);
+
+        // Then
+        assertEquals(HttpStatus.OK, xml.getStatusCode());
+        assertTrue(MediaType.APPLICATION_XML.isCompatibleWith(xml.getHeaders().getContentType()));
+        String body = new String(xml.getBody(), StandardCharsets.UTF_8);
+        assertTrue(body.contains("<id>test-xml-lookup</id>"));
+        assertTrue(body.contains("<name>XML Lookup Test</name>"));
+        assertEquals(MediaType.APPLICATION_JSON, any.getHeaders().getContentType());
+        String projectedBody = new String(projected.getBody(), StandardCharsets.UTF_8);
+        assertTrue(projectedBody.contains("<id>test-xml-lookup</id>"));
+        assertFalse(projectedBody.contains("<name>"));
+    }
+
+    @Test
+    @DisplayName("Should only answer conditional requests with 304 for the format the ETag was issued for")
+    void shouldQualifyEtagsByFormat() {
+        // Given
+        createTestMetadata("test-format-etag", "Format ETag Test", MetadataState.ACTIVE);
+        String jsonEtag = getAccepting(BASE_URL + "/test-format-etag", MediaType.APPLICATION_JSON).getHeaders().getETag();
+        String cborEtag = getAccepting(BASE_URL + "/test-format-etag", MediaType.APPLICATION_CBOR).getHeaders().getETag();
+        String xmlPageEtag = getAccepting(BASE_URL + "?limit=1", MediaType.APPLICATION_XML).getHeaders().getETag();
+
+        // When
+        ResponseEntity<byte[]> cborForJsonTag = getIfNoneMatch(BASE_URL + "/test-format-etag", jsonEtag, MediaType.APPLICATION_CBOR);
+        ResponseEntity<byte[]> cborForCborTag = getIfNoneMatch(BASE_URL + "/test-format-etag", cborEtag, MediaType.APPLICATION_CBOR);
+        ResponseEntity<byte[]> jsonForCborTag = getIfNoneMatch(BASE_URL + "/test-format-etag", cborEtag, MediaType.APPLICATION_JSON);
+        ResponseEntity<byte[]> xmlPage = getIfNoneMatch(BASE_URL + "?limit=1", xmlPageEtag, MediaType.APPLICATION_XML);
+        ResponseEntity<byte[]> jsonPage = getIfNoneMatch(BASE_URL + "?limit=1", xmlPageEtag, MediaType.APPLICATION_JSON);
+
+        // Then
+        assertNotEquals(jsonEtag, cborEtag);
+        assertEquals(HttpStatus.OK, cborForJsonTag.getStatusCode());
+        assertEquals(HttpStatus.NOT_MODIFIED, cborForCborTag.getStatusCode());
+        assertTrue(cborForCborTag.getHeaders().getVary().contains(HttpHeaders.ACCEPT));
+        assertEquals(HttpStatus.OK, jsonForCborTag.getStatusCode());
+        assertTrue(xmlPageEtag.endsWith("-xml\""));
+        assertEquals(HttpStatus.NOT_MODIFIED, xmlPage.getStatusCode());
+        assertEquals(HttpStatus.OK, jsonPage.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Should answer conditional lookups with 304 until the metadata changes")
+    void shouldAnswerConditionalLookups() {
+        // Given
+        createTestMetadata("test-etag", "ETag Test", MetadataState.ACTIVE);
+        ResponseEntity<String> first = restTemplate.getForEntity(BASE_URL + "/test-etag", String.class);
+        String etag = first.getHeaders().getETag();
+
+        // When
+        ResponseEntity<String> unchanged = getIfNoneMatch(BASE_URL + "/test-etag", etag);
+        restTemplate.delete(BASE_URL + "/test-etag");
+        createTestMetadata("test-etag", "ETag Test Changed", MetadataState.ACTIVE);
+        ResponseEntity<String> changed = getIfNoneMatch(BASE_URL + "/test-etag", etag);
+        restTemplate.delete(BASE_URL + "/test-etag");
+        ResponseEntity<String> deleted = getIfNoneMatch(BASE_URL + "/test-etag", etag);
+
+        // Then
+        assertNotNull(etag);
+        // The rest template's client accepts gzip, so even this small response carries the weak tag
+        assertTrue(etag.startsWith("W/\""));
+        assertEquals(HttpStatus.NOT_MODIFIED, unchanged.getStatusCode());
+        assertEquals(etag, unchanged.getHeaders().getETag());
+        assertNull(unchanged.getBody());
+        assertEquals(HttpStatus.OK, changed.getStatusCode());
+        assertNotEquals(etag, changed.getHeaders().getETag());
+        assertTrue(changed.getBody().contains("ETag Test Changed"));
+        assertEquals(HttpStatus.NOT_FOUND, deleted.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Should answer conditional listings with 304 until metadata is created or deleted")
+    void shouldAnswerConditionalListings() {
+        // Given
+        createTestMetadata("test-listing-etag", "Listing ETag Test", MetadataState.ACTIVE);
+        ResponseEntity<String> first = restTemplate.getForEntity(BASE_URL + "?limit=1", String.class);
+        String etag = first.getHeaders().getETag();
+
+        // When
+        ResponseEntity<String> unchanged = getIfNoneMatch(BASE_URL + "?limit=1", etag);
+        restTemplate.delete(BASE_URL + "/test-listing-etag");
+        ResponseEntity<String> changed = getIfNoneMatch(BASE_URL + "?limit=1", etag);
+
+        // Then
+        assertNotNull(etag);
+        assertEquals(HttpStatus.NOT_MODIFIED, unchanged.getStatusCode());
+        assertNull(unchanged.getBody());
+        assertEquals(HttpStatus.OK, changed.getStatusCode());
+        assertNotEquals(etag, changed.getHeaders().getETag());
+    }
+
+    @Test
+    @DisplayName("Should gzip large listings for clients that accept it and answer conditional requests for them")
+    void shouldCompressLargeListings() throws Exception {
+        // Given
+        for (int i = 0; i < 10; i++) {
+            createTestMetadata("test-compression-" + i, "Compression Test " + i, MetadataState.ACTIVE);
+        }
+        // The rest template's client asks for gzip and decompresses by itself, which would hide the encoding
+        HttpClient client = HttpClient.newHttpClient();
+        URI uri = URI.create(restTemplate.getRootUri() + BASE_URL + "?limit=50");
+        HttpRequest request = HttpRequest.newBuilder(uri).header(HttpHeaders.ACCEPT_ENCODING, "gzip").build();
+
+        // When
+        HttpResponse<byte[]> plain = client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofByteArray());
+        HttpResponse<byte[]> gzip = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        HttpResponse<byte[]> repeated = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        HttpResponse<byte[]> unchanged = client.send(HttpRequest.newBuilder(request, (name, value) -> true)
+            .header(HttpHeaders.IF_NONE_MATCH, gzip.headers().firstValue(HttpHeaders.ETAG).orElseThrow())
+            .build(), HttpResponse.BodyHandlers.ofByteArray());
+
+        // Then
+        assertEquals(Optional.empty(), plain.headers().firstValue(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(Optional.of("gzip"), gzip.headers().firstValue(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(Optional.of(HttpHeaders.ACCEPT_ENCODING), gzip.headers().firstValue(HttpHeaders.VARY));
+        assertEquals(plain.headers().firstValue(HttpHeaders.ETAG).map(etag -> "W/" + etag), gzip.headers().firstValue(HttpHeaders.ETAG));
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(gzip.body()))) {
+            assertArrayEquals(plain.body(), in.readAllBytes());
+        }
+        assertTrue(gzip.body().length * 4 < plain.body().length);
+        assertArrayEquals(gzip.body(), repeated.body());
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), unchanged.statusCode());
+        assertEquals(gzip.headers().firstValue(HttpHeaders.ETAG), unchanged.headers().firstValue(HttpHeaders.ETAG));
+        assertEquals(Optional.empty(), unchanged.headers().firstValue(HttpHeaders.CONTENT_LENGTH));
+    }
+
+    @Test
+    @DisplayName("Should emit Flight Recorder events for create, find, find all and delete")
+    void shouldEmitFlightRecorderEvents() throws IOException {
+        // Given
+        Path file = Files.createTempFile("metadata-", ".jfr");
+        String duplicate = createTestMetadataXml(MetadataRequest.builder().id("test-jfr").entries(new ArrayList<>()).build());
+        try (Recording recording = new Recording()) {
+            for (String event : List.of("MetadataCreate", "MetadataFind", "MetadataFindAll", "MetadataDelete")) {
+                recording.enable("org.example." + event).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+
+            // When
+            createTestMetadata("test-jfr", "JFR Test", MetadataState.ACTIVE);
+            restTemplate.postForEntity(BASE_URL, new HttpEntity<>(duplicate, createXmlHeaders()), String.class);
+            String etag = restTemplate.getForEntity(BASE_URL + "/test-jfr", String.class).getHeaders().getETag();
+            getIfNoneMatch(BASE_URL + "/test-jfr", etag);
+            restTemplate.getForEntity(BASE_URL + "/test-jfr-missing", String.class);
+            restTemplate.getForEntity(BASE_URL + "?limit=1", String.class);
+            restTemplate.delete(BASE_URL + "/test-jfr");
+            recording.stop();
+            recording.dump(file);
+        }
+
+        // Then
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+        List<RecordedEvent> creates = events.stream()
+            .filter(event -> event.getEventType().getName().equals("org.example.MetadataCreate"))
+            .filter(event -> "test-jfr".equals(event.getString("id")))
+            .sorted(Comparator.comparing(RecordedEvent::getStartTime))
+            .toList();
+        assertEquals(List.of("success", "MetadataAlreadyExistsException"),
+            creates.stream().map(event -> event.getString("outcome")).toList());
+        assertEquals(duplicate.getBytes(StandardCharsets.UTF_8).length, creates.get(1).getLong("payloadBytes"));
+        assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("org.example.MetadataFind")
+            && "test-jfr".equals(event.getString("id")) && "notModified".equals(event.getString("outcome"))));
+        assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("org.example.MetadataFind")
+            && "test-jfr-missing".equals(event.getString("id"))
+            && "MetadataNotFoundException".equals(event.getString("outcome"))));
+        assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("org.example.MetadataFindAll")
+            && event.getInt("limit") == 1 && event.getInt("entryCount") == 1));
+        assertTrue(events.stream().anyMatch(event -> event.getEventType().getName().equals("org.example.MetadataDelete")
+            && "test-jfr".equals(event.getString("id"))));
+    }
+
     /**
      * Loads an XML file from the classpath resources.
      *
@@ -400,4 +972,57 @@ class MetadataControllerIntegrationTest {
     private void createTestMetadata(String id, String name, MetadataState state) {
         createTestMetadataWithResponse(id, name, state);
     }
+
+    /**
+     * Sends a GET request accepting a single media type.
+     *
+     * @param url the URL
+     * @param mediaType the accepted media type
+     * @return the response with the raw body
+     */
+    private ResponseEntity<byte[]> getAccepting(String url, MediaType mediaType) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(mediaType));
+        return restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+    }
+
+    /**
+     * Sends a conditional GET request.
+     *
+     * @param url the URL
+     * @param etag the quoted entity tag to send in If-None-Match
+     * @return the response
+     */
+    private ResponseEntity<String> getIfNoneMatch(String url, String etag) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(etag);
+        return restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+    }
+
+    /**
+     * Sends a conditional GET request accepting one media type.
+     *
+     * @param url the URL
+     * @param etag the quoted entity tag to send in If-None-Match
+     * @param mediaType the media type to accept
+     * @return the response
+     */
+    private ResponseEntity<byte[]> getIfNoneMatch(String url, String etag, MediaType mediaType) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(etag);
+        headers.setAccept(List.of(mediaType));
+        return restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+    }
+
+    /**
+     * Collects the remaining elements of an iterator, e.g. the field names of a JSON object in order.
+     *
+     * @param iterator the iterator
+     * @return the elements
+     */
+    private static List<String> iterableToList(Iterator<String> iterator) {
+        List<String> names = new ArrayList<>();
+        iterator.forEachRemaining(names::add);
+        return names;
+    }
 }
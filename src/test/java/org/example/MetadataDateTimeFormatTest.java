@@ -0,0 +1,141 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+@DisplayName("MetadataDateTimeFormat Unit Tests")
+class MetadataDateTimeFormatTest {
+    private static final List<String> DATES = List.of("01/15/2025", "02/29/2024", "02/29/2025", "02/30/2025",
+        "04/31/2025", "12/31/9999", "01/01/0001", "00/10/2025", "13/01/2025", "01/00/2025", "01/32/2025", "1/5/2025",
+        "01/15/20250", "01/15/0000", "01-15-2025", " 01/15/2025", "01/15/2025 ", "0x/15/2025", "01/1５/2025", "");
+    private static final List<String> TIMES = List.of("14:30:00", "00:00:00", "23:59:59", "24:00:00", "24:00:01",
+        "23:60:00", "23:59:60", "1:02:03", "14:30", "14:30:00.5", "14-30-00", " 14:30:00", "");
+    private static final List<String> DATETIMES = List.of("01/15/2025 14:30:00", "02/30/2025 23:59:59",
+        "12/31/2025 24:00:00", "01/15/2025T14:30:00", "01/15/2025  14:30:00", "01/15/2025 14:30", "01/15/2025", "");
+
+    private ObjectMapper reference;
+    private ObjectMapper xmlMapper;
+
+    @BeforeEach
+    void setUp() {
+        reference = Jackson2ObjectMapperBuilder.xml().mixIn(InfoRequest.class, PatternFormats.class).build();
+        xmlMapper = Jackson2ObjectMapperBuilder.xml().build();
+    }
+
+    @Test
+    @DisplayName("Should parse and write every date and time like the formatters")
+    void shouldMatchFormattersOnEveryValue() {
+        // When / Then
+        for (LocalDate date = LocalDate.of(1999, 1, 1); date.getYear() < 2031; date = date.plusDays(1)) {
+            String text = MetadataDateTimeFormat.DATE_FORMAT.format(date);
+            assertEquals(text, new String(MetadataDateTimeFormat.formatDate(date)));
+            assertEquals(date, MetadataDateTimeFormat.tryParseDate(text));
+        }
+        for (LocalTime time = LocalTime.MIDNIGHT; ; time = time.plusSeconds(1)) {
+            String text = MetadataDateTimeFormat.TIME_FORMAT.format(time);
+            assertEquals(text, new String(MetadataDateTimeFormat.formatTime(time)));
+            assertEquals(time, MetadataDateTimeFormat.tryParseTime(text));
+            if (time.equals(LocalTime.MAX.withNano(0))) {
+                break;
+            }
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            LocalDateTime dateTime = LocalDateTime.of(LocalDate.ofEpochDay(random.nextInt(3_000_000) - 700_000),
+                LocalTime.ofSecondOfDay(random.nextInt(86_400)).withNano(random.nextInt(2) * 500_000_000));
+            char[] text = MetadataDateTimeFormat.formatDateTime(dateTime);
+            String expected = MetadataDateTimeFormat.DATETIME_FORMAT.format(dateTime);
+            if (text != null) {
+                assertEquals(expected, new String(text));
+            }
+            assertEquals(LocalDateTime.parse(expected, MetadataDateTimeFormat.DATETIME_FORMAT),
+                MetadataDateTimeFormat.parseDateTime(expected));
+        }
+    }
+
+    @Test
+    @DisplayName("Should bind request dates and times exactly like the JsonFormat patterns")
+    void shouldMatchJsonFormatPatterns() {
+        // When / Then
+        for (String date : DATES) {
+            assertSameBinding("<info><created-date>" + date + "</created-date></info>");
+        }
+        for (String time : TIMES) {
+            assertSameBinding("<info><created-time>" + time + "</created-time></info>");
+        }
+        for (String dateTime : DATETIMES) {
+            assertSameBinding("<info><created-datetime>" + dateTime + "</created-datetime></info>");
+        }
+        assertSameBinding("<info><created-date/><created-time/><created-datetime/></info>");
+    }
+
+    @Test
+    @DisplayName("Should reuse recently parsed dates and write responses in the patterns")
+    void shouldCacheDatesAndWriteResponses() throws Exception {
+        // Given
+        InfoResponse info = new InfoResponse(MetadataState.ACTIVE, LocalDate.of(2025, 1, 5), LocalTime.of(9, 5, 7),
+            LocalDateTime.of(10_000, 1, 15, 14, 30));
+
+        // When
+        InfoRequest first = xmlMapper.readValue("<info><created-date>01/05/2025</created-date></info>", InfoRequest.class);
+        InfoRequest second = xmlMapper.readValue("<info><created-date>01/05/2025</created-date></info>", InfoRequest.class);
+        String json = new ObjectMapperConfig().objectMapper().writeValueAsString(info);
+
+        // Then
+        assertSame(first.getCreatedDate(), second.getCreatedDate());
+        assertEquals("{\"state\":\"active\",\"createdDate\":\"01/05/2025\",\"createdTime\":\"09:05:07\","
+            + "\"createdDatetime\":\"" + MetadataDateTimeFormat.DATETIME_FORMAT.format(info.getCreatedDatetime()) + "\"}",
+            json);
+        assertEquals(info, new ObjectMapperConfig().objectMapper().readValue(json, InfoResponse.class));
+    }
+
+    private void assertSameBinding(String xml) {
+        Object expected;
+        try {
+            expected = reference.readValue(xml, InfoRequest.class);
+        } catch (Exception e) {
+            Exception actual = assertThrows(Exception.class, () -> xmlMapper.readValue(xml, InfoRequest.class), xml);
+            assertEquals(e.getClass(), actual.getClass(), xml);
+            assertEquals(e.getMessage(), actual.getMessage(), xml);
+            return;
+        }
+        assertEquals(expected, assertDoesNotThrow(() -> xmlMapper.readValue(xml, InfoRequest.class), xml), xml);
+    }
+
+    /**
+     * The {@code @JsonFormat} patterns {@link InfoRequest} used before the fixed-format deserializers.
+     */
+    abstract static class PatternFormats {
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "MM/dd/yyyy")
+        @JsonSerialize(using = JsonSerializer.None.class)
+        @JsonDeserialize(using = JsonDeserializer.None.class)
+        LocalDate createdDate;
+
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm:ss")
+        @JsonSerialize(using = JsonSerializer.None.class)
+        @JsonDeserialize(using = JsonDeserializer.None.class)
+        LocalTime createdTime;
+
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "MM/dd/yyyy HH:mm:ss")
+        @JsonSerialize(using = JsonSerializer.None.class)
+        @JsonDeserialize(using = JsonDeserializer.None.class)
+        LocalDateTime createdDatetime;
+    }
+}
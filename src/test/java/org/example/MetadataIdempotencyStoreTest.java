@@ -0,0 +1,167 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DisplayName("MetadataIdempotencyStore Unit Tests")
+class MetadataIdempotencyStoreTest {
+    private static final byte[] FINGERPRINT = {1, 2, 3};
+    private static final byte[] OTHER_FINGERPRINT = {1, 2, 4};
+
+    private MetadataProperties metadataProperties;
+    private SimpleMeterRegistry meterRegistry;
+    private MetadataIdempotencyStore store;
+    private AtomicInteger requests;
+
+    @BeforeEach
+    void setUp() {
+        metadataProperties = new MetadataProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        store = new MetadataIdempotencyStore(metadataProperties, meterRegistry);
+        requests = new AtomicInteger();
+    }
+
+    @Test
+    @DisplayName("Should run a request once and return its response to retries with the same key")
+    void shouldReplayStoredResponse() {
+        // When
+        IdempotentResponse first = store.execute("key-1", FINGERPRINT, () -> respond("created-1"));
+        IdempotentResponse retry = store.execute("key-1", FINGERPRINT, () -> respond("created-2"));
+        IdempotentResponse other = store.execute("key-2", FINGERPRINT, () -> respond("created-3"));
+
+        // Then
+        assertSame(first, retry);
+        assertEquals(URI.create("/api/metadata/created-1"), retry.location());
+        assertEquals(URI.create("/api/metadata/created-3"), other.location());
+        assertEquals(2, requests.get());
+        assertEquals(1, meterRegistry.get("cache.gets").tags("cache", MetadataIdempotencyStore.CACHE_NAME, "result", "hit")
+            .functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Should reject a key reused for a different request")
+    void shouldRejectReusedKey() {
+        // Given
+        store.execute("key-1", FINGERPRINT, () -> respond("created-1"));
+
+        // When / Then
+        assertThrows(IdempotencyKeyReusedException.class, () -> store.execute("key-1", OTHER_FINGERPRINT, () -> respond("created-2")));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    @DisplayName("Should not remember failed requests")
+    void shouldNotRememberFailures() {
+        // When
+        assertThrows(MetadataAlreadyExistsException.class, () -> store.execute("key-1", FINGERPRINT, () -> {
+            requests.incrementAndGet();
+            throw new MetadataAlreadyExistsException("created-1");
+        }));
+        IdempotentResponse retry = store.execute("key-1", FINGERPRINT, () -> respond("created-1"));
+
+        // Then
+        assertEquals(URI.create("/api/metadata/created-1"), retry.location());
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    @DisplayName("Should make concurrent requests with the same key wait for the first response")
+    void shouldWaitForRequestInProgress() throws Exception {
+        // Given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // When
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<IdempotentResponse> first = executor.submit(() -> store.execute("key-1", FINGERPRINT, () -> {
+                started.countDown();
+                awaitQuietly(release);
+                return respond("created-1");
+            }));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            Future<IdempotentResponse> retry = executor.submit(() -> store.execute("key-1", FINGERPRINT, () -> respond("created-2")));
+            Thread.sleep(50);
+            assertFalse(retry.isDone());
+            release.countDown();
+
+            // Then
+            assertSame(first.get(10, TimeUnit.SECONDS), retry.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    @DisplayName("Should fail concurrent requests with the first request's exception and release the key")
+    void shouldFailWaitingRequestsAndReleaseKey() throws Exception {
+        // Given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // When
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<IdempotentResponse> first = executor.submit(() -> store.execute("key-1", FINGERPRINT, () -> {
+                started.countDown();
+                awaitQuietly(release);
+                throw new MetadataAlreadyExistsException("created-1");
+            }));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            Future<IdempotentResponse> waiting = executor.submit(() -> store.execute("key-1", FINGERPRINT, () -> respond("created-2")));
+            Thread.sleep(50);
+            release.countDown();
+
+            // Then
+            ExecutionException failure = assertThrows(ExecutionException.class, () -> first.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(MetadataAlreadyExistsException.class, failure.getCause());
+            ExecutionException waitingFailure = assertThrows(ExecutionException.class, () -> waiting.get(10, TimeUnit.SECONDS));
+            assertSame(failure.getCause(), waitingFailure.getCause());
+        }
+        IdempotentResponse retry = store.execute("key-1", FINGERPRINT, () -> respond("created-3"));
+        assertEquals(URI.create("/api/metadata/created-3"), retry.location());
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    @DisplayName("Should forget responses after the retention period")
+    void shouldExpireResponses() throws InterruptedException {
+        // Given
+        metadataProperties.getIdempotency().setRetention(Duration.ofMillis(50));
+        store = new MetadataIdempotencyStore(metadataProperties, new SimpleMeterRegistry());
+        store.execute("key-1", FINGERPRINT, () -> respond("created-1"));
+
+        // When
+        Thread.sleep(100);
+        IdempotentResponse retry = store.execute("key-1", FINGERPRINT, () -> respond("created-2"));
+
+        // Then
+        assertEquals(URI.create("/api/metadata/created-2"), retry.location());
+        assertEquals(2, requests.get());
+    }
+
+    private IdempotentResponse respond(String id) {
+        requests.incrementAndGet();
+        return new IdempotentResponse(FINGERPRINT, 201, URI.create("/api/metadata/" + id), ("{\"id\":\"" + id + "\"}").getBytes());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
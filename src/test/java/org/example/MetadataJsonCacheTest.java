@@ -0,0 +1,109 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DisplayName("MetadataJsonCache Unit Tests")
+class MetadataJsonCacheTest {
+    private SimpleMeterRegistry meterRegistry;
+    private MetadataJsonCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        MetadataProperties metadataProperties = new MetadataProperties();
+        metadataProperties.getResponseCache().setMaxSize(DataSize.ofKilobytes(4));
+        cache = new MetadataJsonCache(new ObjectMapperConfig().objectMapper(), metadataProperties, meterRegistry);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    @DisplayName("Should count hits and misses and not cache missing entries")
+    void shouldRecordHitsAndMisses() {
+        // When
+        EncodedMetadata first = cache.get("cached-1", this::load);
+        EncodedMetadata second = cache.get("cached-1", this::load);
+        EncodedMetadata missing = cache.get("missing", id -> Optional.empty());
+
+        // Then
+        assertSame(first, second);
+        assertNull(missing);
+        assertEquals(1, loads.get());
+        assertEquals(1, gets("hit"));
+        assertEquals(2, gets("miss"));
+        assertTrue(new String(first.json()).contains("\"id\":\"cached-1\""));
+        assertEquals(2, first.entryCount());
+        assertEquals("cached-1-tag", first.etag());
+    }
+
+    @Test
+    @DisplayName("Should replace entries on put and drop them on invalidate")
+    void shouldPutAndInvalidate() {
+        // Given
+        cache.write("cached-1", () -> {
+            cache.put(new TaggedMetadata(response("cached-1"), "cached-1-tag"));
+            return null;
+        });
+
+        // When / Then
+        assertNotNull(cache.get("cached-1", this::load));
+        assertEquals(0, loads.get());
+        cache.write("cached-1", () -> {
+            cache.invalidate("cached-1");
+            return null;
+        });
+        assertNotNull(cache.get("cached-1", this::load));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    @DisplayName("Should evict entries to stay within the configured size")
+    void shouldEvictBeyondMaximumSize() throws InterruptedException {
+        // When
+        for (int i = 0; i < 100; i++) {
+            cache.get("cached-" + i, this::load);
+        }
+
+        // Then: eviction runs asynchronously after the writes
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (evictions() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(evictions() > 0);
+        assertTrue(meterRegistry.get("cache.size").tag("cache", MetadataJsonCache.CACHE_NAME)
+            .gauge().value() < 100);
+    }
+
+    private Optional<TaggedMetadata> load(String id) {
+        loads.incrementAndGet();
+        return Optional.of(new TaggedMetadata(response(id), id + "-tag"));
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tags("cache", MetadataJsonCache.CACHE_NAME, "result", result)
+            .functionCounter().count();
+    }
+
+    private double evictions() {
+        return meterRegistry.get("cache.evictions").tag("cache", MetadataJsonCache.CACHE_NAME).functionCounter().count();
+    }
+
+    private static MetadataResponse response(String id) {
+        ArrayList<EntryResponse> entries = new ArrayList<>();
+        entries.add(new EntryResponse("Entry 1", 10, EntryType.STANDARD));
+        entries.add(new EntryResponse("Entry 2", 5, EntryType.PREMIUM));
+        return new MetadataResponse(id, "Name " + id, "Description", null, entries);
+    }
+}
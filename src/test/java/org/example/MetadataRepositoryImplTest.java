@@ -0,0 +1,577 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("MetadataRepository Unit Tests")
+class MetadataRepositoryImplTest {
+    private static final int THREADS = 8;
+    private static final int RECORDS_PER_THREAD = 5_000;
+
+    private MetadataRepositoryImpl metadataRepository;
+
+    @BeforeEach
+    void setUp() {
+        metadataRepository = new MetadataRepositoryImpl();
+    }
+
+    @Test
+    @DisplayName("Should find saved metadata by ID")
+    void shouldFindSavedMetadataById() {
+        // Given
+        MetadataEntity entity = createEntity("repo-1");
+
+        // When
+        metadataRepository.save(entity);
+
+        // Then
+        assertEquals(entity, metadataRepository.findById("repo-1").orElseThrow());
+        assertTrue(metadataRepository.findById("missing").isEmpty());
+        assertTrue(metadataRepository.findById(null).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should delete metadata by ID idempotently")
+    void shouldDeleteMetadataById() {
+        // Given
+        metadataRepository.save(createEntity("repo-1"));
+
+        // When
+        metadataRepository.deleteById("repo-1");
+        metadataRepository.deleteById("repo-1");
+        metadataRepository.deleteById(null);
+
+        // Then
+        assertTrue(metadataRepository.findById("repo-1").isEmpty());
+        assertTrue(metadataRepository.findAll().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should return all metadata in insertion order")
+    void shouldReturnAllMetadataInInsertionOrder() {
+        // Given
+        metadataRepository.save(createEntity("c"));
+        metadataRepository.save(createEntity("a"));
+        metadataRepository.save(createEntity("b"));
+        metadataRepository.deleteById("a");
+        metadataRepository.save(createEntity("a"));
+
+        // When
+        List<MetadataEntity> result = metadataRepository.findAll();
+
+        // Then
+        assertEquals(List.of("c", "b", "a"), result.stream().map(MetadataEntity::getId).toList());
+    }
+
+    @Test
+    @DisplayName("Should keep position when replacing metadata with the same ID")
+    void shouldKeepPositionWhenReplacingMetadata() {
+        // Given
+        metadataRepository.save(createEntity("first"));
+        metadataRepository.save(createEntity("second"));
+        MetadataEntity replacement = createEntity("first");
+        replacement.setName("Replaced");
+
+        // When
+        metadataRepository.save(replacement);
+
+        // Then
+        List<MetadataEntity> result = metadataRepository.findAll();
+        assertEquals(2, result.size());
+        assertEquals("Replaced", result.get(0).getName());
+        assertEquals("Replaced", metadataRepository.findById("first").orElseThrow().getName());
+    }
+
+    @Test
+    @DisplayName("Should track count and estimated size through saves, replacements and deletes")
+    void shouldTrackCountAndEstimatedBytes() {
+        // Given
+        MetadataEntity replacement = createEntity("first");
+        replacement.setDescription("x".repeat(1_000));
+
+        // When
+        metadataRepository.save(createEntity("first"));
+        metadataRepository.save(createEntity("second"));
+        long before = metadataRepository.estimatedBytes();
+        metadataRepository.save(replacement);
+
+        // Then
+        assertEquals(2, metadataRepository.count());
+        assertTrue(before > 0);
+        assertEquals(before - MetadataRepositoryImpl.estimateBytes(createEntity("first"))
+            + MetadataRepositoryImpl.estimateBytes(replacement), metadataRepository.estimatedBytes());
+        metadataRepository.deleteById("first");
+        metadataRepository.deleteById("second");
+        assertEquals(0, metadataRepository.count());
+        assertEquals(0, metadataRepository.estimatedBytes());
+    }
+
+    @Test
+    @DisplayName("Should keep content hashes of saved metadata and bump the version on every change")
+    void shouldTrackContentHashesAndVersion() {
+        // Given
+        MetadataEntity replacement = createEntity("first");
+        replacement.setName("Replaced");
+        long initial = metadataRepository.version();
+
+        // When
+        metadataRepository.save(createEntity("first"));
+        metadataRepository.save(createEntity("second"));
+        long saved = metadataRepository.version();
+        long original = metadataRepository.findContentHashById("first").orElseThrow();
+        metadataRepository.saveIfAbsent(createEntity("second"));
+        metadataRepository.deleteById("missing");
+
+        // Then
+        assertNotEquals(initial, saved);
+        assertEquals(saved, metadataRepository.version());
+        assertEquals(MetadataEntityCodec.contentHash(createEntity("first")), original);
+        assertNotEquals(original, metadataRepository.findContentHashById("second").orElseThrow());
+        metadataRepository.save(replacement);
+        assertNotEquals(original, metadataRepository.findContentHashById("first").orElseThrow());
+        assertNotEquals(saved, metadataRepository.version());
+        long replaced = metadataRepository.version();
+        metadataRepository.deleteById("first");
+        assertTrue(metadataRepository.findContentHashById("first").isEmpty());
+        assertTrue(metadataRepository.findContentHashById(null).isEmpty());
+        assertNotEquals(replaced, metadataRepository.version());
+    }
+
+    @Test
+    @DisplayName("Should page through metadata in insertion order")
+    void shouldPageThroughMetadataInInsertionOrder() {
+        // Given
+        for (int i = 0; i < 5; i++) {
+            metadataRepository.save(createEntity("page-" + i));
+        }
+
+        // When
+        Page<MetadataEntity> first = metadataRepository.findAll(null, 2);
+        metadataRepository.deleteById("page-2");
+        Page<MetadataEntity> second = metadataRepository.findAll(first.nextCursor(), 2);
+
+        // Then
+        assertEquals(List.of("page-0", "page-1"), first.content().stream().map(MetadataEntity::getId).toList());
+        assertNotNull(first.nextCursor());
+        assertEquals(List.of("page-3", "page-4"), second.content().stream().map(MetadataEntity::getId).toList());
+        assertNull(second.nextCursor());
+    }
+
+    @Test
+    @DisplayName("Should not return a next cursor for the last page")
+    void shouldNotReturnNextCursorForLastPage() {
+        // Given
+        metadataRepository.save(createEntity("page-0"));
+        metadataRepository.save(createEntity("page-1"));
+
+        // When
+        Page<MetadataEntity> result = metadataRepository.findAll(null, 5);
+
+        // Then
+        assertEquals(2, result.content().size());
+        assertNull(result.nextCursor());
+    }
+
+    @Test
+    @DisplayName("Should reject an invalid cursor")
+    void shouldRejectInvalidCursor() {
+        assertThrows(InvalidCursorException.class, () -> metadataRepository.findAll("not a cursor", 10));
+    }
+
+    @Test
+    @DisplayName("Should filter by state and entry type through the secondary indexes")
+    void shouldFilterByStateAndEntryType() {
+        // Given
+        metadataRepository.save(createEntity("f-0", MetadataState.ACTIVE, EntryType.PREMIUM));
+        metadataRepository.save(createEntity("f-1", MetadataState.INACTIVE, EntryType.PREMIUM));
+        metadataRepository.save(createEntity("f-2", MetadataState.ACTIVE, EntryType.BASIC, EntryType.STANDARD));
+        metadataRepository.save(createEntity("f-3", MetadataState.ACTIVE, EntryType.STANDARD, EntryType.PREMIUM));
+        metadataRepository.save(createEntity("f-4", MetadataState.ACTIVE));
+
+        // When & Then
+        assertEquals(List.of("f-0", "f-2", "f-3", "f-4"), ids(metadataRepository.findAll(new MetadataFilter(MetadataState.ACTIVE, null), null, 10)));
+        assertEquals(List.of("f-0", "f-1", "f-3"), ids(metadataRepository.findAll(new MetadataFilter(null, EntryType.PREMIUM), null, 10)));
+        assertEquals(List.of("f-0", "f-3"), ids(metadataRepository.findAll(new MetadataFilter(MetadataState.ACTIVE, EntryType.PREMIUM), null, 10)));
+        assertEquals(List.of(), ids(metadataRepository.findAll(new MetadataFilter(MetadataState.UNKNOWN, null), null, 10)));
+        assertEquals(5, metadataRepository.findAll(MetadataFilter.NONE, null, 10).content().size());
+    }
+
+    @Test
+    @DisplayName("Should page through filtered metadata and follow replacements and deletes")
+    void shouldPageThroughFilteredMetadata() {
+        // Given
+        for (int i = 0; i < 6; i++) {
+            metadataRepository.save(createEntity("fp-" + i, i % 2 == 0 ? MetadataState.ACTIVE : MetadataState.INACTIVE));
+        }
+        metadataRepository.save(createEntity("fp-1", MetadataState.ACTIVE));
+        metadataRepository.deleteById("fp-4");
+        MetadataFilter active = new MetadataFilter(MetadataState.ACTIVE, null);
+
+        // When
+        Page<MetadataEntity> first = metadataRepository.findAll(active, null, 2);
+        Page<MetadataEntity> second = metadataRepository.findAll(active, first.nextCursor(), 2);
+
+        // Then
+        assertEquals(List.of("fp-0", "fp-1"), ids(first));
+        assertNotNull(first.nextCursor());
+        assertEquals(List.of("fp-2"), ids(second));
+        assertNull(second.nextCursor());
+        assertEquals(List.of("fp-3", "fp-5"), ids(metadataRepository.findAll(new MetadataFilter(MetadataState.INACTIVE, null), null, 10)));
+    }
+
+    @Test
+    @DisplayName("Should find sparse filter matches across index chunks")
+    void shouldFindSparseMatchesAcrossIndexChunks() {
+        // Given - matches spread over several 1024-position bitmap chunks, one chunk emptied by deletes
+        for (int i = 0; i < 5_000; i++) {
+            metadataRepository.save(createEntity("sparse-" + i, i % 1_100 == 0 ? MetadataState.ACTIVE : MetadataState.INACTIVE));
+        }
+        metadataRepository.deleteById("sparse-1100");
+
+        // When
+        Page<MetadataEntity> result = metadataRepository.findAll(new MetadataFilter(MetadataState.ACTIVE, null), null, 10);
+
+        // Then
+        assertEquals(List.of("sparse-0", "sparse-2200", "sparse-3300", "sparse-4400"), ids(result));
+    }
+
+    @Test
+    @DisplayName("Should find metadata created in a time range ordered by creation time")
+    void shouldFindMetadataInTimeRange() {
+        // Given - inserted out of creation time order
+        LocalDateTime noon = LocalDateTime.of(2025, 1, 15, 12, 0);
+        metadataRepository.save(createEntity("t-late", MetadataState.ACTIVE, noon.plusHours(2)));
+        metadataRepository.save(createEntity("t-start", MetadataState.INACTIVE, noon));
+        metadataRepository.save(createEntity("t-before", MetadataState.ACTIVE, noon.minusNanos(1)));
+        metadataRepository.save(createEntity("t-end", MetadataState.ACTIVE, noon.plusHours(3)));
+        metadataRepository.save(createEntity("t-mid", MetadataState.ACTIVE, noon.plusHours(1)));
+        metadataRepository.save(createEntity("t-tie", MetadataState.ACTIVE, noon.plusHours(1)));
+        metadataRepository.save(createEntity("t-none", MetadataState.ACTIVE, (LocalDateTime) null));
+
+        // When & Then - from is inclusive, to is exclusive, ties keep insertion order
+        MetadataFilter range = new MetadataFilter(null, null, noon, noon.plusHours(3));
+        assertEquals(List.of("t-start", "t-mid", "t-tie", "t-late"), ids(metadataRepository.findAll(range, null, 10)));
+        assertEquals(List.of("t-mid", "t-tie", "t-late", "t-end"),
+            ids(metadataRepository.findAll(new MetadataFilter(MetadataState.ACTIVE, null, noon, null), null, 10)));
+        assertEquals(List.of("t-before", "t-start"),
+            ids(metadataRepository.findAll(new MetadataFilter(null, null, null, noon.plusHours(1)), null, 10)));
+    }
+
+    @Test
+    @DisplayName("Should page through a time range and follow replacements and deletes")
+    void shouldPageThroughTimeRange() {
+        // Given
+        LocalDateTime start = LocalDateTime.of(2025, 1, 15, 0, 0);
+        for (int i = 0; i < 5; i++) {
+            metadataRepository.save(createEntity("tp-" + i, MetadataState.ACTIVE, start.plusMinutes(i)));
+        }
+        metadataRepository.save(createEntity("tp-0", MetadataState.ACTIVE, start.plusMinutes(10)));
+        metadataRepository.deleteById("tp-2");
+        MetadataFilter range = new MetadataFilter(null, null, start, start.plusDays(1));
+
+        // When
+        Page<MetadataEntity> first = metadataRepository.findAll(range, null, 2);
+        Page<MetadataEntity> second = metadataRepository.findAll(range, first.nextCursor(), 2);
+
+        // Then
+        assertEquals(List.of("tp-1", "tp-3"), ids(first));
+        assertEquals(List.of("tp-4", "tp-0"), ids(second));
+        assertNull(second.nextCursor());
+        assertThrows(InvalidCursorException.class, () -> metadataRepository.findAll(new MetadataFilter(MetadataState.ACTIVE, null), first.nextCursor(), 2));
+    }
+
+    @Test
+    @DisplayName("Should save only when ID is absent")
+    void shouldSaveOnlyWhenIdIsAbsent() {
+        // Given
+        MetadataEntity first = createEntity("repo-1");
+        MetadataEntity duplicate = createEntity("repo-1");
+
+        // When
+        Optional<MetadataEntity> firstResult = metadataRepository.saveIfAbsent(first);
+        Optional<MetadataEntity> duplicateResult = metadataRepository.saveIfAbsent(duplicate);
+
+        // Then
+        assertTrue(firstResult.isEmpty());
+        assertEquals(first, duplicateResult.orElseThrow());
+        assertEquals(first, metadataRepository.findById("repo-1").orElseThrow());
+        assertEquals(1, metadataRepository.findAll().size());
+    }
+
+    @Test
+    @DisplayName("Should return copies that do not share state with the stored entity")
+    void shouldReturnIndependentCopies() {
+        // Given
+        MetadataEntity entity = parsedEntity(1);
+        entity.getEntries().add(new EntryEntity(null, null, null));
+        entity.getInfo().setCreatedDatetime(entity.getInfo().getCreatedDatetime().withNano(123_456_789));
+        MetadataEntity sparse = new MetadataEntity("sparse", null, null, new InfoEntity(), null);
+        metadataRepository.save(entity);
+        metadataRepository.save(sparse);
+
+        // When
+        MetadataEntity found = metadataRepository.findById(entity.getId()).orElseThrow();
+        found.setName("Changed");
+        found.getEntries().clear();
+
+        // Then
+        assertEquals(entity, metadataRepository.findById(entity.getId()).orElseThrow());
+        assertEquals(sparse, metadataRepository.findById("sparse").orElseThrow());
+        assertNotSame(metadataRepository.findById("sparse").orElseThrow(), metadataRepository.findById("sparse").orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Should share equal entry names within a repository only")
+    void shouldShareEntryNamesWithinRepository() {
+        // Given
+        MetadataRepositoryImpl other = new MetadataRepositoryImpl();
+        metadataRepository.save(parsedEntity(1));
+        metadataRepository.save(parsedEntity(101));
+        other.save(parsedEntity(201));
+
+        // When
+        MetadataEntity first = metadataRepository.findById(parsedEntity(1).getId()).orElseThrow();
+        MetadataEntity second = metadataRepository.findById(parsedEntity(101).getId()).orElseThrow();
+        MetadataEntity elsewhere = other.findById(parsedEntity(201).getId()).orElseThrow();
+
+        // Then
+        assertSame(first.getEntries().get(0).getName(), second.getEntries().get(0).getName());
+        assertSame(first.getEntries().get(1).getName(), second.getEntries().get(1).getName());
+        assertEquals(first.getName(), second.getName());
+        assertNotSame(first.getName(), second.getName());
+        assertNotSame(first.getEntries().get(0).getName(), elsewhere.getEntries().get(0).getName());
+    }
+
+    @Test
+    @DisplayName("Should save a batch and return the duplicates")
+    void shouldSaveBatchAndReturnDuplicates() {
+        // Given
+        metadataRepository.save(createEntity("existing"));
+        MetadataEntity existing = createEntity("existing");
+        MetadataEntity repeated = createEntity("new");
+
+        // When
+        List<MetadataEntity> duplicates = metadataRepository.saveAllIfAbsent(
+            List.of(createEntity("new"), existing, repeated)
+        );
+
+        // Then
+        assertEquals(List.of(existing, repeated), duplicates);
+        assertEquals(List.of("existing", "new"), metadataRepository.findAll().stream().map(MetadataEntity::getId).toList());
+    }
+
+    @Test
+    @DisplayName("Should let exactly one concurrent saveIfAbsent win per ID")
+    void shouldLetExactlyOneConcurrentSaveIfAbsentWin() throws Exception {
+        // Given
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger winners = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        // When - every thread races to create the same IDs
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < RECORDS_PER_THREAD; i++) {
+                    if (metadataRepository.saveIfAbsent(createEntity("shared-" + i)).isEmpty()) {
+                        winners.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Then
+        assertEquals(RECORDS_PER_THREAD, winners.get());
+        assertEquals(RECORDS_PER_THREAD, metadataRepository.findAll().size());
+    }
+
+    @Test
+    @DisplayName("Should not lose updates under concurrent saves and deletes")
+    void shouldNotLoseUpdatesUnderConcurrentAccess() throws Exception {
+        // Given
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // When - every thread saves its own records, deletes the odd ones and reads constantly
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < RECORDS_PER_THREAD; i++) {
+                    String id = thread + "-" + i;
+                    metadataRepository.save(createEntity(id));
+                    assertTrue(metadataRepository.findById(id).isPresent());
+                    if (i % 2 == 1) {
+                        metadataRepository.deleteById(id);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Then
+        List<MetadataEntity> result = metadataRepository.findAll();
+        assertEquals(THREADS * RECORDS_PER_THREAD / 2, result.size());
+        for (int t = 0; t < THREADS; t++) {
+            for (int i = 0; i < RECORDS_PER_THREAD; i++) {
+                String id = t + "-" + i;
+                assertEquals(i % 2 == 0, metadataRepository.findById(id).isPresent(), id);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should not pin carrier threads while virtual threads wait for the index lock")
+    void shouldNotPinCarrierThreads() throws Exception {
+        // Given - platform threads keep the secondary index read-locked so virtual writers have to wait for it
+        Path file = Files.createTempFile("pinned-", ".jfr");
+        AtomicBoolean reading = new AtomicBoolean(true);
+        ExecutorService readers = Executors.newFixedThreadPool(THREADS);
+        for (int i = 0; i < 100; i++) {
+            metadataRepository.save(createEntity("pinned-" + i, MetadataState.ACTIVE, EntryType.PREMIUM));
+        }
+
+        // When
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.start();
+            for (int t = 0; t < THREADS; t++) {
+                readers.submit(() -> {
+                    while (reading.get()) {
+                        metadataRepository.findAll(new MetadataFilter(MetadataState.ACTIVE, EntryType.PREMIUM), null, 100);
+                    }
+                });
+            }
+            try (ExecutorService writers = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int t = 0; t < 1_000; t++) {
+                    int thread = t;
+                    writers.submit(() -> {
+                        for (int i = 0; i < 20; i++) {
+                            String id = "pinned-" + (thread + i) % 100;
+                            metadataRepository.save(createEntity(id, MetadataState.ACTIVE, EntryType.PREMIUM));
+                            metadataRepository.saveIfAbsent(createEntity(id + "-copy", MetadataState.INACTIVE));
+                            metadataRepository.deleteById(id + "-copy");
+                        }
+                    });
+                }
+            }
+            reading.set(false);
+            readers.shutdown();
+            assertTrue(readers.awaitTermination(60, TimeUnit.SECONDS));
+            recording.stop();
+            recording.dump(file);
+        }
+
+        // Then
+        List<RecordedEvent> pinned = RecordingFile.readAllEvents(file).stream()
+            .filter(event -> event.getEventType().getName().equals("jdk.VirtualThreadPinned"))
+            .toList();
+        Files.delete(file);
+        assertTrue(pinned.isEmpty(), () -> pinned.size() + " pinned parks, first at " + pinned.get(0).getStackTrace());
+        assertEquals(100, metadataRepository.count());
+    }
+
+    /**
+     * Creates a metadata entity with the given ID, state and one entry per entry type.
+     *
+     * @param id the metadata ID
+     * @param state the metadata state
+     * @param entryTypes the entry types
+     * @return the entity
+     */
+    private MetadataEntity createEntity(String id, MetadataState state, EntryType... entryTypes) {
+        MetadataEntity entity = createEntity(id);
+        entity.setInfo(new InfoEntity(state, null, null, null));
+        for (EntryType entryType : entryTypes) {
+            entity.getEntries().add(new EntryEntity("Entry", 1, entryType));
+        }
+        return entity;
+    }
+
+    /**
+     * Creates a metadata entity with the given ID, state and creation time.
+     *
+     * @param id the metadata ID
+     * @param state the metadata state
+     * @param createdDatetime the creation time
+     * @return the entity
+     */
+    private MetadataEntity createEntity(String id, MetadataState state, LocalDateTime createdDatetime) {
+        MetadataEntity entity = createEntity(id);
+        entity.setInfo(new InfoEntity(state, null, null, createdDatetime));
+        return entity;
+    }
+
+    private static List<String> ids(Page<MetadataEntity> page) {
+        return page.content().stream().map(MetadataEntity::getId).toList();
+    }
+
+    /**
+     * Creates a minimal metadata entity with the given ID.
+     *
+     * @param id the metadata ID
+     * @return the entity
+     */
+    private MetadataEntity createEntity(String id) {
+        return new MetadataEntity(id, "Name " + id, "Description", null, new ArrayList<>());
+    }
+
+    /**
+     * Creates an entity the way binding a request document does, with its own copy of every string and an entry
+     * list sized by the mapper.
+     *
+     * @param i the number of the entity
+     * @return the entity
+     */
+    private static MetadataEntity parsedEntity(int i) {
+        InfoEntity info = new InfoEntity(MetadataState.ACTIVE, LocalDate.of(2025, 1, 15).plusDays(i % 365),
+            LocalTime.ofSecondOfDay(i % 86_400), LocalDateTime.of(2025, 1, 15, 0, 0).plusMinutes(i));
+        List<EntryEntity> entries = new ArrayList<>(2);
+        entries.add(new EntryEntity(parsed("Entry 1"), 100 + i % 1000, EntryType.STANDARD));
+        entries.add(new EntryEntity(parsed("Entry 2"), 5, EntryType.PREMIUM));
+        return new MetadataEntity(UUID.nameUUIDFromBytes(Integer.toString(i).getBytes()).toString(),
+            parsed("Metadata " + i % 100), parsed("Imported from the nightly feed"), info, entries);
+    }
+
+    private static String parsed(String value) {
+        return new String(value.toCharArray());
+    }
+}
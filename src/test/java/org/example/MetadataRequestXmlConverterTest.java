@@ -0,0 +1,251 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.xml.MappingJackson2XmlHttpMessageConverter;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.util.unit.DataSize;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DisplayName("MetadataRequestXmlConverter Unit Tests")
+class MetadataRequestXmlConverterTest {
+    private static final String[] TEXTS = {"Entry 1", "  padded  ", "", " ", "a &amp; b", "<![CDATA[x<y]]>", "é中",
+        "a<!-- note -->b", "line\nbreak"};
+    private static final String[] STATES = {"active", "inactive", "unknown", "ACTIVE", "", " active", "bogus", "1"};
+    private static final String[] DATES = {"01/15/2025", "02/30/2025", "12/31/1999", "2025-01-15", "", "13/01/2025",
+        "01/15/2025 "};
+    private static final String[] TIMES = {"14:30:00", "00:00:00", "24:00:00", "14:30", ""};
+    private static final String[] DATETIMES = {"01/15/2025 14:30:00", "11/13/2025 00:00:59", "01/15/2025T14:30:00", ""};
+    private static final String[] COUNTS = {"10", "0", "-5", "2147483647", "123456789", "007", "+3", "1.5",
+        "99999999999", "", " 4", "abc"};
+    private static final String[] TYPES = {"standard", "premium", "basic", "PREMIUM", "", "gold"};
+    private static final int VALID_STATES = 3;
+    private static final int VALID_DATES = 3;
+    private static final int VALID_TIMES = 2;
+    private static final int VALID_DATETIMES = 2;
+    private static final int VALID_COUNTS = 5;
+    private static final int VALID_TYPES = 3;
+    private static final String[] SPACES = {"", "\n", "\n    ", "<!-- comment -->", " "};
+
+    private SimpleMeterRegistry meterRegistry;
+    private MetadataRequestXmlConverter converter;
+    private MappingJackson2XmlHttpMessageConverter generic;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        converter = new MetadataRequestXmlConverter(new Jackson2ObjectMapperBuilder(), new MetadataProperties(), meterRegistry);
+        generic = new MappingJackson2XmlHttpMessageConverter(new Jackson2ObjectMapperBuilder().createXmlMapper(true).build());
+    }
+
+    @Test
+    @DisplayName("Should bind generated documents exactly like the generic converter")
+    void shouldMatchGenericConverter() throws Exception {
+        // Given
+        Random random = new Random(42);
+        int documents = 5000;
+
+        // When / Then
+        for (int i = 0; i < documents; i++) {
+            String xml = document(random);
+            Object expected;
+            try {
+                expected = generic.read(MetadataRequest.class, message(xml));
+            } catch (HttpMessageNotReadableException e) {
+                HttpMessageNotReadableException actual = assertThrows(HttpMessageNotReadableException.class,
+                    () -> converter.read(MetadataRequest.class, message(xml)), xml);
+                assertEquals(e.getMessage(), actual.getMessage(), xml);
+                continue;
+            }
+            assertEquals(expected, converter.read(MetadataRequest.class, message(xml)), xml);
+        }
+        double fast = reads("fast");
+        assertEquals(documents, fast + reads("generic"));
+        assertTrue(fast > documents / 4, "fast path reads: " + fast);
+    }
+
+    @Test
+    @DisplayName("Should read the known shape itself and hand anything else to the generic converter")
+    void shouldFallBackOnUnknownShapes() throws Exception {
+        // Given
+        String known = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <metadata id="fast-1">
+                <name>Fast Metadata</name>
+                <description>Read from a StAX stream</description>
+                <info>
+                    <state>active</state>
+                    <created-date>01/15/2025</created-date>
+                    <created-time>14:30:00</created-time>
+                    <created-datetime>01/15/2025 14:30:00</created-datetime>
+                </info>
+                <entries>
+                    <entry><name>Entry 1</name><count>10</count><type>standard</type></entry>
+                    <entry><name>Entry 2</name><count>5</count><type>premium</type></entry>
+                    <entry><name>Entry 3</name><count>0</count><type>basic</type></entry>
+                </entries>
+            </metadata>
+            """;
+        String unknown = known.replace("<name>", "<color>red</color><name>");
+
+        // When
+        MetadataRequest fast = (MetadataRequest) converter.read(MetadataRequest.class, message(known));
+        MetadataRequest fallback = (MetadataRequest) converter.read(MetadataRequest.class, message(unknown));
+
+        // Then
+        assertEquals(generic.read(MetadataRequest.class, message(known)), fast);
+        assertEquals(3, fast.getEntries().size());
+        assertEquals(EntryType.PREMIUM, fast.getEntries().get(1).getType());
+        assertEquals(fast, fallback);
+        assertNotNull(converter.read(known.getBytes(StandardCharsets.UTF_8)));
+        assertNull(converter.read(unknown.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(1, reads("fast"));
+        assertEquals(1, reads("generic"));
+        assertFalse(converter.canWrite(MetadataRequest.class, MediaType.APPLICATION_XML));
+        assertFalse(converter.canRead(MetadataResponse.class, MediaType.APPLICATION_XML));
+    }
+
+    @Test
+    @DisplayName("Should stream bodies over the size limit to the generic converter without buffering them")
+    void shouldStreamLargeBodiesToGenericConverter() throws Exception {
+        // Given
+        MetadataProperties metadataProperties = new MetadataProperties();
+        metadataProperties.getXml().setFastPathMaxSize(DataSize.ofBytes(64));
+        converter = new MetadataRequestXmlConverter(new Jackson2ObjectMapperBuilder(), metadataProperties, meterRegistry);
+        String xml = """
+            <metadata id="large-1">
+                <name>Large Metadata</name>
+                <entries><entry><name>Entry 1</name><count>10</count><type>standard</type></entry></entries>
+            </metadata>
+            """;
+        MockHttpInputMessage declared = message(xml);
+        declared.getHeaders().setContentLength(xml.getBytes(StandardCharsets.UTF_8).length);
+
+        // When
+        MetadataRequest chunked = (MetadataRequest) converter.read(MetadataRequest.class, message(xml));
+        MetadataRequest sized = (MetadataRequest) converter.read(MetadataRequest.class, declared);
+
+        // Then
+        assertEquals(generic.read(MetadataRequest.class, message(xml)), chunked);
+        assertEquals(chunked, sized);
+        assertNotNull(converter.read(xml.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(0, reads("fast"));
+        assertEquals(2, reads("generic"));
+    }
+
+    private double reads(String path) {
+        return meterRegistry.get("metadata.xml.reads").tag("path", path).counter().count();
+    }
+
+    private static MockHttpInputMessage message(String xml) {
+        MockHttpInputMessage message = new MockHttpInputMessage(xml.getBytes(StandardCharsets.UTF_8));
+        message.getHeaders().setContentType(MediaType.APPLICATION_XML);
+        return message;
+    }
+
+    /**
+     * Builds a metadata document from random parts. Most documents have the known shape; the others have unknown,
+     * repeated or misplaced elements, extra attributes, values that need coercion or fail to parse, or are cut off.
+     */
+    private static String document(Random random) {
+        List<String> children = new ArrayList<>();
+        maybeAdd(random, children, "name", pick(random, TEXTS));
+        maybeAdd(random, children, "description", pick(random, TEXTS));
+        if (random.nextInt(4) > 0) {
+            List<String> info = new ArrayList<>();
+            maybeAdd(random, info, "state", pick(random, STATES, VALID_STATES));
+            maybeAdd(random, info, "created-date", pick(random, DATES, VALID_DATES));
+            maybeAdd(random, info, "created-time", pick(random, TIMES, VALID_TIMES));
+            maybeAdd(random, info, "created-datetime", pick(random, DATETIMES, VALID_DATETIMES));
+            children.add(element(random, "info", info));
+        }
+        if (random.nextInt(4) > 0) {
+            List<String> entries = new ArrayList<>();
+            for (int i = random.nextInt(4); i > 0; i--) {
+                List<String> entry = new ArrayList<>();
+                maybeAdd(random, entry, "name", pick(random, TEXTS));
+                maybeAdd(random, entry, "count", pick(random, COUNTS, VALID_COUNTS));
+                maybeAdd(random, entry, "type", pick(random, TYPES, VALID_TYPES));
+                entries.add(element(random, random.nextInt(30) == 0 ? "item" : "entry", entry));
+            }
+            children.add(element(random, "entries", entries));
+        }
+        if (random.nextInt(20) == 0) {
+            children.add(leaf("extra", "1"));
+        }
+        if (random.nextInt(20) == 0 && !children.isEmpty()) {
+            children.add(children.get(random.nextInt(children.size())));
+        }
+        Collections.shuffle(children, random);
+
+        StringBuilder xml = new StringBuilder();
+        if (random.nextBoolean()) {
+            xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        }
+        String root = random.nextInt(40) == 0 ? "meta" : "metadata";
+        xml.append('<').append(root);
+        if (random.nextInt(10) > 0) {
+            xml.append(" id=\"").append(random.nextInt(10) == 0 ? "a &amp; b" : "id-" + random.nextInt(1000)).append('"');
+        }
+        if (random.nextInt(30) == 0) {
+            xml.append(" version=\"2\"");
+        }
+        xml.append('>');
+        for (String child : children) {
+            xml.append(pick(random, SPACES)).append(child);
+        }
+        xml.append(pick(random, SPACES)).append("</").append(root).append('>');
+        if (random.nextInt(40) == 0) {
+            xml.setLength(random.nextInt(xml.length()));
+        }
+        return xml.toString();
+    }
+
+    private static void maybeAdd(Random random, List<String> children, String name, String value) {
+        if (random.nextInt(5) > 0) {
+            children.add(value.isEmpty() && random.nextBoolean() ? "<" + name + "/>" : leaf(name, value));
+        }
+        if (random.nextInt(50) == 0) {
+            children.add(leaf("unknown", "1"));
+        }
+    }
+
+    private static String leaf(String name, String value) {
+        return "<" + name + ">" + value + "</" + name + ">";
+    }
+
+    private static String element(Random random, String name, List<String> children) {
+        if (children.isEmpty() && random.nextBoolean()) {
+            return "<" + name + "/>";
+        }
+        StringBuilder xml = new StringBuilder("<").append(name).append('>');
+        for (String child : children) {
+            xml.append(pick(random, SPACES)).append(child);
+        }
+        return xml.append(pick(random, SPACES)).append("</").append(name).append('>').toString();
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    /**
+     * Picks one of the first, valid values nine times out of ten, and any value otherwise.
+     */
+    private static String pick(Random random, String[] values, int valid) {
+        return values[random.nextInt(10) > 0 ? random.nextInt(valid) : random.nextInt(values.length)];
+    }
+}
@@ -4,11 +4,17 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -16,8 +22,11 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @ExtendWith(MockitoExtension.class)
 @DisplayName("MetadataService Unit Tests")
 class MetadataServiceImplTest {
@@ -34,6 +43,19 @@ class MetadataServiceImplTest {
     @Mock
     private MetadataResponseMapper metadataResponseMapper;
 
+    @Mock
+    private MetadataXmlBulkReader metadataXmlBulkReader;
+
+    @Spy
+    private MetadataProperties metadataProperties = new MetadataProperties();
+
+    @Spy
+    private MetadataJsonCache metadataJsonCache = new MetadataJsonCache(
+        new ObjectMapperConfig().objectMapper(), new MetadataProperties(), new SimpleMeterRegistry());
+
+    @Spy
+    private IdGenerator idGenerator = new TimeOrderedIdGenerator();
+
     @InjectMocks
     private MetadataServiceImpl metadataService;
 
@@ -90,9 +112,8 @@ class MetadataServiceImplTest {
     @DisplayName("Should create metadata successfully when ID is provided")
     void shouldCreateMetadataWithProvidedId() {
         // Given
-        when(metadataRepository.findById("test-id-123")).thenReturn(Optional.empty());
         when(metadataRequestMapper.toEntity(testRequest)).thenReturn(testEntity);
-        when(metadataRepository.save(testEntity)).thenReturn(testEntity);
+        when(metadataRepository.saveIfAbsent(testEntity)).thenReturn(Optional.empty());
         when(metadataResponseMapper.toResponse(testEntity)).thenReturn(testResponse);
 
         // When
@@ -102,10 +123,11 @@ class MetadataServiceImplTest {
         assertNotNull(result);
         assertEquals("test-id-123", result.getId());
         assertEquals("Test Metadata", result.getName());
-        verify(metadataRepository).findById("test-id-123");
         verify(metadataRequestMapper).toEntity(testRequest);
-        verify(metadataRepository).save(testEntity);
+        verify(metadataRepository).saveIfAbsent(testEntity);
+        verify(metadataRepository, never()).findById(any());
         verify(metadataResponseMapper).toResponse(testEntity);
+        verify(metadataJsonCache).put(new TaggedMetadata(testResponse, HexFormat.of().toHexDigits(MetadataEntityCodec.contentHash(testEntity))));
     }
 
     @Test
@@ -113,9 +135,8 @@ class MetadataServiceImplTest {
     void shouldGenerateIdWhenIdIsNull() {
         // Given
         testRequest.setId(null);
-        when(metadataRepository.findById(null)).thenReturn(Optional.empty());
         when(metadataRequestMapper.toEntity(any(MetadataRequest.class))).thenReturn(testEntity);
-        when(metadataRepository.save(any(MetadataEntity.class))).thenReturn(testEntity);
+        when(metadataRepository.saveIfAbsent(any(MetadataEntity.class))).thenReturn(Optional.empty());
         when(metadataResponseMapper.toResponse(any(MetadataEntity.class))).thenReturn(testResponse);
 
         // When
@@ -125,8 +146,8 @@ class MetadataServiceImplTest {
         assertNotNull(result);
         assertNotNull(testRequest.getId()); // ID should be generated
         assertFalse(testRequest.getId().isEmpty());
-        verify(metadataRepository).findById(null);
-        verify(metadataRepository).save(any(MetadataEntity.class));
+        verify(idGenerator).nextId();
+        verify(metadataRepository).saveIfAbsent(any(MetadataEntity.class));
     }
 
     @Test
@@ -134,9 +155,8 @@ class MetadataServiceImplTest {
     void shouldGenerateIdWhenIdIsEmpty() {
         // Given
         testRequest.setId("");
-        when(metadataRepository.findById("")).thenReturn(Optional.empty());
         when(metadataRequestMapper.toEntity(any(MetadataRequest.class))).thenReturn(testEntity);
-        when(metadataRepository.save(any(MetadataEntity.class))).thenReturn(testEntity);
+        when(metadataRepository.saveIfAbsent(any(MetadataEntity.class))).thenReturn(Optional.empty());
         when(metadataResponseMapper.toResponse(any(MetadataEntity.class))).thenReturn(testResponse);
 
         // When
@@ -146,15 +166,15 @@ class MetadataServiceImplTest {
         assertNotNull(result);
         assertNotNull(testRequest.getId());
         assertFalse(testRequest.getId().isEmpty());
-        verify(metadataRepository).findById("");
-        verify(metadataRepository).save(any(MetadataEntity.class));
+        verify(metadataRepository).saveIfAbsent(any(MetadataEntity.class));
     }
 
     @Test
     @DisplayName("Should throw exception when metadata with same ID already exists")
     void shouldThrowExceptionWhenMetadataAlreadyExists() {
         // Given
-        when(metadataRepository.findById("test-id-123")).thenReturn(Optional.of(testEntity));
+        when(metadataRequestMapper.toEntity(testRequest)).thenReturn(testEntity);
+        when(metadataRepository.saveIfAbsent(testEntity)).thenReturn(Optional.of(testEntity));
 
         // When & Then
         MetadataAlreadyExistsException exception = assertThrows(
@@ -163,8 +183,48 @@ class MetadataServiceImplTest {
         );
 
         assertEquals("Metadata with id test-id-123 already exists", exception.getMessage());
-        verify(metadataRepository).findById("test-id-123");
-        verify(metadataRepository, never()).save(any());
+        verify(metadataRepository).saveIfAbsent(testEntity);
+        verify(metadataResponseMapper, never()).toResponse(any());
+    }
+
+    @Test
+    @DisplayName("Should store bulk metadata in batches and summarize the results")
+    @SuppressWarnings("unchecked")
+    void shouldCreateAllInBatches() {
+        // Given
+        metadataProperties.getBulk().setBatchSize(2);
+        InputStream xml = new ByteArrayInputStream(new byte[0]);
+        MetadataRequest second = MetadataRequest.builder().id("second").build();
+        MetadataRequest third = MetadataRequest.builder().build();
+        doAnswer(invocation -> {
+            Consumer<MetadataRequest> onItem = invocation.getArgument(1);
+            Consumer<String> onInvalid = invocation.getArgument(2);
+            onItem.accept(testRequest);
+            onInvalid.accept("broken");
+            onItem.accept(second);
+            onItem.accept(third);
+            return null;
+        }).when(metadataXmlBulkReader).read(eq(xml), any(Consumer.class), any(Consumer.class));
+        when(metadataRequestMapper.toEntity(any(MetadataRequest.class)))
+            .thenAnswer(invocation -> new MetadataEntity(
+                invocation.<MetadataRequest>getArgument(0).getId(), null, null, null, new ArrayList<>()
+            ));
+        when(metadataRepository.saveAllIfAbsent(anyList()))
+            .thenAnswer(invocation -> invocation.<List<MetadataEntity>>getArgument(0).stream()
+                .filter(entity -> entity.getId().equals("second"))
+                .toList());
+
+        // When
+        BulkCreateResponse result = metadataService.createAll(xml);
+
+        // Then
+        assertEquals(2, result.getCreated());
+        assertEquals(1, result.getDuplicates());
+        assertEquals(1, result.getInvalid());
+        assertEquals(List.of("broken", "second"), result.getFailedIds());
+        assertNotNull(third.getId()); // ID should be generated
+        verify(metadataRepository, times(2)).saveAllIfAbsent(anyList());
+        verify(metadataResponseMapper, never()).toResponse(any());
     }
 
     @Test
@@ -199,6 +259,117 @@ class MetadataServiceImplTest {
         verify(metadataResponseMapper, never()).toResponse(any());
     }
 
+    @Test
+    @DisplayName("Should encode metadata as JSON once and serve later lookups from the cache")
+    void shouldServeEncodedMetadataFromCache() throws Exception {
+        // Given
+        when(metadataRepository.findById("test-id-123")).thenReturn(Optional.of(testEntity));
+        when(metadataResponseMapper.toResponse(testEntity)).thenReturn(testResponse);
+
+        // When
+        Optional<EncodedMetadata> first = metadataService.findJsonById("test-id-123");
+        Optional<EncodedMetadata> second = metadataService.findJsonById("test-id-123");
+
+        // Then
+        assertTrue(first.isPresent());
+        assertSame(first.get(), second.get());
+        MetadataResponse decoded = new ObjectMapperConfig().objectMapper().readValue(first.get().json(), MetadataResponse.class);
+        assertEquals(testResponse, decoded);
+        assertEquals(HexFormat.of().toHexDigits(MetadataEntityCodec.contentHash(testEntity)), first.get().etag());
+        verify(metadataRepository, times(1)).findById("test-id-123");
+        verify(metadataResponseMapper, times(1)).toResponse(testEntity);
+    }
+
+    @Test
+    @DisplayName("Should not cache lookups of missing metadata")
+    void shouldNotCacheMissingMetadata() {
+        // Given
+        when(metadataRepository.findById("test-id-123"))
+            .thenReturn(Optional.empty())
+            .thenReturn(Optional.of(testEntity));
+        when(metadataResponseMapper.toResponse(testEntity)).thenReturn(testResponse);
+
+        // When / Then
+        assertTrue(metadataService.findJsonById("test-id-123").isEmpty());
+        assertTrue(metadataService.findJsonById("test-id-123").isPresent());
+    }
+
+    @Test
+    @DisplayName("Should derive entity tags from stored content hashes and the repository version")
+    void shouldDeriveEtagsWithoutReadingMetadata() {
+        // Given
+        when(metadataRepository.findContentHashById("test-id-123")).thenReturn(OptionalLong.of(0x1234abcdL));
+        when(metadataRepository.findContentHashById("non-existent-id")).thenReturn(OptionalLong.empty());
+        when(metadataRepository.version()).thenReturn(1L, 1L, 2L);
+
+        // When
+        String first = metadataService.listingEtag();
+        String unchanged = metadataService.listingEtag();
+        String changed = metadataService.listingEtag();
+
+        // Then
+        assertEquals(Optional.of("000000001234abcd"), metadataService.findEtagById("test-id-123"));
+        assertTrue(metadataService.findEtagById("non-existent-id").isEmpty());
+        assertEquals(first, unchanged);
+        assertNotEquals(first, changed);
+        verify(metadataRepository, never()).findById(any());
+        verify(metadataResponseMapper, never()).toResponse(any());
+    }
+
+    @Test
+    @DisplayName("Should map only the requested fields and skip the entries when they are not requested")
+    void shouldMapOnlyRequestedFields() {
+        // Given
+        MetadataFields fields = MetadataFields.parse("id, info.state");
+        when(metadataRepository.findById("test-id-123")).thenReturn(Optional.of(testEntity));
+        when(metadataResponseMapper.toResponse(testEntity, fields)).thenCallRealMethod();
+        when(metadataResponseMapper.toInfoResponse(testEntity.getInfo())).thenReturn(testResponse.getInfo());
+
+        // When
+        MetadataResponse result = metadataService.findById("test-id-123", fields).orElseThrow();
+
+        // Then
+        assertEquals("test-id-123", result.getId());
+        assertNull(result.getName());
+        assertNull(result.getEntries());
+        assertSame(testResponse.getInfo(), result.getInfo());
+        verify(metadataResponseMapper, never()).toResponse(testEntity);
+        verify(metadataResponseMapper, never()).toEntryResponseList(any());
+    }
+
+    @Test
+    @DisplayName("Should use the full mapping when every field is requested")
+    void shouldMapAllFieldsWithFullMapping() {
+        // Given
+        when(metadataRepository.findById("test-id-123")).thenReturn(Optional.of(testEntity));
+        when(metadataResponseMapper.toResponse(testEntity)).thenReturn(testResponse);
+
+        // When
+        MetadataResponse result = metadataService.findById("test-id-123",
+            MetadataFields.parse("id,name,description,info,entries")).orElseThrow();
+
+        // Then
+        assertSame(testResponse, result);
+        assertThrows(InvalidFieldsException.class, () -> MetadataFields.parse("id,info.missing"));
+    }
+
+    @Test
+    @DisplayName("Should map a page of metadata and keep the cursor")
+    void shouldMapPageOfMetadata() {
+        // Given
+        MetadataFilter filter = new MetadataFilter(MetadataState.ACTIVE, null);
+        when(metadataRepository.findAll(filter, "cursor-1", 10)).thenReturn(new Page<>(List.of(testEntity), "cursor-2"));
+        when(metadataResponseMapper.toResponse(testEntity)).thenReturn(testResponse);
+
+        // When
+        Page<MetadataResponse> result = metadataService.findAll(filter, "cursor-1", 10);
+
+        // Then
+        assertEquals(List.of(testResponse), result.content());
+        assertEquals("cursor-2", result.nextCursor());
+        verify(metadataRepository).findAll(filter, "cursor-1", 10);
+    }
+
     @Test
     @DisplayName("Should delete metadata by ID")
     void shouldDeleteMetadataById() {
@@ -207,6 +378,24 @@ class MetadataServiceImplTest {
 
         // Then
         verify(metadataRepository).deleteById("test-id-123");
+        verify(metadataJsonCache).invalidate("test-id-123");
+    }
+
+    @Test
+    @DisplayName("Should serve a fresh encoding after the cached metadata was deleted and recreated")
+    void shouldReloadCachedMetadataAfterDelete() {
+        // Given
+        when(metadataRepository.findById("test-id-123")).thenReturn(Optional.of(testEntity));
+        when(metadataResponseMapper.toResponse(testEntity)).thenReturn(testResponse);
+        EncodedMetadata cached = metadataService.findJsonById("test-id-123").orElseThrow();
+
+        // When
+        metadataService.deleteById("test-id-123");
+        EncodedMetadata reloaded = metadataService.findJsonById("test-id-123").orElseThrow();
+
+        // Then
+        assertNotSame(cached, reloaded);
+        verify(metadataRepository, times(2)).findById("test-id-123");
     }
 }
 
@@ -0,0 +1,131 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+@DisplayName("MetadataXmlBulkReader Unit Tests")
+class MetadataXmlBulkReaderTest {
+    private MetadataXmlBulkReader reader;
+    private List<MetadataRequest> items;
+    private List<String> invalidIds;
+
+    @BeforeEach
+    void setUp() {
+        reader = new MetadataXmlBulkReader(new Jackson2ObjectMapperBuilder());
+        items = new ArrayList<>();
+        invalidIds = new ArrayList<>();
+    }
+
+    @Test
+    @DisplayName("Should read every metadata element in document order")
+    void shouldReadEveryMetadataElement() {
+        // Given
+        String xml = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <metadata-list>
+                <metadata id="bulk-1">
+                    <name>First</name>
+                    <info>
+                        <state>active</state>
+                        <created-date>01/15/2025</created-date>
+                    </info>
+                    <entries>
+                        <entry>
+                            <name>Entry 1</name>
+                            <count>10</count>
+                            <type>standard</type>
+                        </entry>
+                    </entries>
+                </metadata>
+                <!-- comments between elements are ignored -->
+                <metadata id="bulk-2">
+                    <name>Second</name>
+                </metadata>
+            </metadata-list>
+            """;
+
+        // When
+        read(xml);
+
+        // Then
+        assertEquals(List.of("bulk-1", "bulk-2"), items.stream().map(MetadataRequest::getId).toList());
+        MetadataRequest first = items.get(0);
+        assertEquals(MetadataState.ACTIVE, first.getInfo().getState());
+        assertEquals(LocalDate.of(2025, 1, 15), first.getInfo().getCreatedDate());
+        assertEquals(1, first.getEntries().size());
+        assertEquals(EntryType.STANDARD, first.getEntries().get(0).getType());
+        assertTrue(invalidIds.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should report invalid elements and continue with the next one")
+    void shouldReportInvalidElementsAndContinue() {
+        // Given
+        String xml = """
+            <metadata-list>
+                <metadata id="bad-date">
+                    <name>Bad</name>
+                    <info>
+                        <created-date>not a date</created-date>
+                        <created-time>12:00:00</created-time>
+                    </info>
+                    <entries>
+                        <entry><name>Skipped</name></entry>
+                    </entries>
+                </metadata>
+                <unexpected id="other"><metadata id="nested"/></unexpected>
+                <metadata id="good">
+                    <name>Good</name>
+                </metadata>
+            </metadata-list>
+            """;
+
+        // When
+        read(xml);
+
+        // Then
+        assertEquals(List.of("good"), items.stream().map(MetadataRequest::getId).toList());
+        assertEquals(List.of("bad-date", "other"), invalidIds);
+    }
+
+    @Test
+    @DisplayName("Should reject a document with the wrong root element")
+    void shouldRejectWrongRootElement() {
+        assertThrows(InvalidBulkDocumentException.class, () -> read("<metadata id=\"1\"><name>Single</name></metadata>"));
+    }
+
+    @Test
+    @DisplayName("Should reject a malformed document after reading the elements before the error")
+    void shouldRejectMalformedDocument() {
+        // Given
+        String xml = """
+            <metadata-list>
+                <metadata id="before"><name>Before</name></metadata>
+                <metadata id="broken"><name>Broken</metadata>
+            </metadata-list>
+            """;
+
+        // When & Then
+        assertThrows(InvalidBulkDocumentException.class, () -> read(xml));
+        assertEquals(List.of("before"), items.stream().map(MetadataRequest::getId).toList());
+    }
+
+    /**
+     * Reads the given document, collecting items and invalid IDs.
+     *
+     * @param xml the XML document
+     */
+    private void read(String xml) {
+        reader.read(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), items::add, invalidIds::add);
+    }
+}
@@ -0,0 +1,328 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.server.ServerWebInputException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+@DisplayName("ReactiveMetadataHandler Unit Tests")
+class ReactiveMetadataHandlerTest {
+    private static final String XML = """
+        <?xml version="1.0" encoding="UTF-8"?>
+        <metadata id="%s">
+            <name>Reactive Metadata</name>
+            <description>Decoded from buffers</description>
+            <info>
+                <state>active</state>
+                <created-date>01/15/2025</created-date>
+                <created-time>14:30:00</created-time>
+                <created-datetime>01/15/2025 14:30:00</created-datetime>
+            </info>
+            <entries>
+                <entry>
+                    <name>Entry 1</name>
+                    <count>10</count>
+                    <type>standard</type>
+                </entry>
+                <entry>
+                    <name>Entry 2 é中</name>
+                    <count>5</count>
+                    <type>premium</type>
+                </entry>
+            </entries>
+        </metadata>
+        """;
+
+    private final AtomicInteger pulled = new AtomicInteger();
+    private final AtomicBoolean streamClosed = new AtomicBoolean();
+    private final AtomicBoolean staleHashes = new AtomicBoolean();
+    private MetadataRepository metadataRepository;
+    private ReactiveMetadataXmlDecoder decoder;
+    private ReactiveMetadataHandler handler;
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        metadataRepository = new MetadataRepositoryImpl() {
+            @Override
+            public Stream<MetadataEntity> streamAll() {
+                return super.streamAll()
+                    .peek(entity -> pulled.incrementAndGet())
+                    .onClose(() -> streamClosed.set(true));
+            }
+
+            @Override
+            public OptionalLong findContentHashById(String id) {
+                OptionalLong contentHash = super.findContentHashById(id);
+                return staleHashes.get() && contentHash.isPresent() ? OptionalLong.of(~contentHash.getAsLong()) : contentHash;
+            }
+        };
+        ObjectMapper objectMapper = new ObjectMapperConfig().objectMapper();
+        MetadataService metadataService = new MetadataServiceImpl(metadataRepository, new MetadataRequestMapperImpl(),
+            new MetadataResponseMapperImpl(), new MetadataXmlBulkReader(new Jackson2ObjectMapperBuilder()),
+            new MetadataProperties(), new MetadataJsonCache(objectMapper, new MetadataProperties(), new SimpleMeterRegistry()),
+            new TimeOrderedIdGenerator());
+        MetadataProperties metadataProperties = new MetadataProperties();
+        metadataProperties.getReactive().setMaxBodySize(DataSize.ofKilobytes(4));
+        decoder = new ReactiveMetadataXmlDecoder(new Jackson2ObjectMapperBuilder(), metadataProperties);
+        handler = new ReactiveMetadataHandler(metadataService, metadataProperties, decoder);
+        client = WebTestClient.bindToRouterFunction(handler.routes())
+            .handlerStrategies(HandlerStrategies.builder()
+                .codecs(codecs -> codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper)))
+                .build())
+            .configureClient()
+            .codecs(codecs -> codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper)))
+            .build();
+    }
+
+    @Test
+    @DisplayName("Should create metadata from XML that arrives in many small buffers")
+    void shouldCreateMetadataFromBufferedXml() {
+        // Given
+        byte[] xml = XML.formatted("reactive-1").getBytes(StandardCharsets.UTF_8);
+        List<DataBuffer> chunks = new ArrayList<>();
+        for (int offset = 0; offset < xml.length; offset += 7) {
+            byte[] chunk = new byte[Math.min(7, xml.length - offset)];
+            System.arraycopy(xml, offset, chunk, 0, chunk.length);
+            chunks.add(DefaultDataBufferFactory.sharedInstance.wrap(chunk));
+        }
+
+        // When
+        MetadataResponse body = client.post().uri("/api/metadata")
+            .contentType(MediaType.APPLICATION_XML)
+            .body(Flux.fromIterable(chunks), DataBuffer.class)
+            .exchange()
+            .expectStatus().isCreated()
+            .expectHeader().location("/api/metadata/reactive-1")
+            .expectBody(MetadataResponse.class)
+            .returnResult()
+            .getResponseBody();
+
+        // Then
+        assertNotNull(body);
+        assertEquals("reactive-1", body.getId());
+        assertEquals("Reactive Metadata", body.getName());
+        assertEquals(MetadataState.ACTIVE, body.getInfo().getState());
+        assertEquals(2, body.getEntries().size());
+        assertEquals("Entry 2 é中", body.getEntries().get(1).getName());
+        assertTrue(metadataRepository.findById("reactive-1").isPresent());
+    }
+
+    @Test
+    @DisplayName("Should bind each entry as soon as its end tag arrives")
+    void shouldBindEntriesIncrementally() {
+        // Given - an invalid entry, followed by a body that never ends
+        String head = XML.formatted("reactive-1").substring(0, XML.formatted("reactive-1").indexOf("</entry>") + 8)
+            .replace("<count>10</count>", "<count>ten</count>");
+        Flux<DataBuffer> body = Flux.concat(
+            Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(head.getBytes(StandardCharsets.UTF_8))),
+            Flux.never());
+
+        // When / Then
+        StepVerifier.create(decoder.decode(body))
+            .expectError(ServerWebInputException.class)
+            .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    @DisplayName("Should reject duplicate IDs, malformed XML and oversized bodies with ProblemDetail responses")
+    void shouldRejectDuplicateMalformedAndOversizedXml() {
+        // Given
+        create("reactive-1");
+
+        // When / Then
+        client.post().uri("/api/metadata")
+            .contentType(MediaType.APPLICATION_XML)
+            .bodyValue(XML.formatted("reactive-1"))
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectHeader().contentType(MediaType.APPLICATION_PROBLEM_JSON)
+            .expectBody().jsonPath("$.detail").value(detail -> assertTrue(detail.toString().contains("reactive-1")));
+        client.post().uri("/api/metadata")
+            .contentType(MediaType.APPLICATION_XML)
+            .bodyValue("<metadata id=\"broken\"><name>Broken</metadata>")
+            .exchange()
+            .expectStatus().isBadRequest();
+        client.post().uri("/api/metadata")
+            .contentType(MediaType.APPLICATION_XML)
+            .bodyValue("")
+            .exchange()
+            .expectStatus().isBadRequest();
+        client.post().uri("/api/metadata")
+            .contentType(MediaType.APPLICATION_XML)
+            .bodyValue(XML.formatted("reactive-large").replace("Decoded from buffers", "x".repeat(5000)))
+            .exchange()
+            .expectStatus().isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE)
+            .expectHeader().contentType(MediaType.APPLICATION_PROBLEM_JSON);
+        assertEquals(1, metadataRepository.count());
+    }
+
+    @Test
+    @DisplayName("Should get metadata by ID and delete it idempotently")
+    void shouldGetAndDeleteMetadata() {
+        // Given
+        create("reactive-1");
+
+        // When / Then
+        client.get().uri("/api/metadata/reactive-1")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody().jsonPath("$.name").isEqualTo("Reactive Metadata");
+        client.delete().uri("/api/metadata/reactive-1").exchange().expectStatus().isNoContent();
+        client.delete().uri("/api/metadata/reactive-1").exchange().expectStatus().isNoContent();
+        client.get().uri("/api/metadata/reactive-1")
+            .exchange()
+            .expectStatus().isNotFound()
+            .expectBody().jsonPath("$.instance").isEqualTo("/api/metadata/reactive-1");
+    }
+
+    @Test
+    @DisplayName("Should tag a lookup with the ETag of the body it sends")
+    void shouldTagLookupsWithEtagOfBody() {
+        // Given
+        create("reactive-1");
+        String etag = client.get().uri("/api/metadata/reactive-1").exchange()
+            .expectStatus().isOk()
+            .returnResult(String.class).getResponseHeaders().getETag();
+
+        // When - the tag checked against If-None-Match belongs to other content, as after a concurrent change
+        staleHashes.set(true);
+
+        // Then
+        client.get().uri("/api/metadata/reactive-1").ifNoneMatch("\"other\"")
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().valueEquals(HttpHeaders.ETAG, etag);
+    }
+
+    @Test
+    @DisplayName("Should answer conditional lookups and listings with 304 until metadata changes")
+    void shouldAnswerConditionalRequests() {
+        // Given
+        create("reactive-1");
+        String etag = client.get().uri("/api/metadata/reactive-1").exchange()
+            .expectStatus().isOk()
+            .returnResult(String.class).getResponseHeaders().getETag();
+        String listingEtag = client.get().uri("/api/metadata").exchange()
+            .expectStatus().isOk()
+            .returnResult(String.class).getResponseHeaders().getETag();
+
+        // When / Then
+        assertNotNull(etag);
+        client.get().uri("/api/metadata/reactive-1").ifNoneMatch(etag)
+            .exchange()
+            .expectStatus().isNotModified()
+            .expectBody().isEmpty();
+        client.get().uri("/api/metadata").ifNoneMatch(listingEtag)
+            .exchange()
+            .expectStatus().isNotModified();
+        create("reactive-2");
+        client.get().uri("/api/metadata").ifNoneMatch(listingEtag)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBodyList(MetadataResponse.class).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("Should page filtered listings and advertise the next page")
+    void shouldPageListings() {
+        // Given
+        create("reactive-1");
+        create("reactive-2");
+        create("reactive-3");
+
+        // When
+        var firstPage = client.get().uri("/api/metadata?limit=2&state=active")
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().exists(HttpHeaders.LINK)
+            .expectBodyList(MetadataResponse.class).hasSize(2)
+            .returnResult();
+        String cursor = firstPage.getResponseHeaders().getFirst("X-Next-Cursor");
+
+        // Then
+        assertNotNull(cursor);
+        client.get().uri(builder -> builder.path("/api/metadata").queryParam("limit", 2).queryParam("cursor", cursor).build())
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().doesNotExist("X-Next-Cursor")
+            .expectBodyList(MetadataResponse.class).hasSize(1);
+        client.get().uri("/api/metadata?state=BOGUS").exchange().expectStatus().isBadRequest();
+        client.get().uri("/api/metadata?cursor=not-a-cursor").exchange().expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("Should stream all metadata as newline-delimited JSON")
+    void shouldStreamAllMetadata() {
+        // Given
+        create("reactive-1");
+        create("reactive-2");
+
+        // When / Then
+        client.get().uri("/api/metadata")
+            .accept(MediaType.APPLICATION_NDJSON)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentType(MediaType.APPLICATION_NDJSON)
+            .expectBodyList(MetadataResponse.class).hasSize(2);
+        assertTrue(streamClosed.get());
+    }
+
+    @Test
+    @DisplayName("Should only read as many entries as the subscriber requested and close the stream on cancel")
+    void shouldPullStreamedEntriesOnDemand() {
+        // Given
+        for (int i = 0; i < 100; i++) {
+            metadataRepository.save(DurableMetadataRepositoryTest.createEntity("reactive-" + i));
+        }
+
+        // When / Then: one entry is read ahead to find out whether the stream has ended
+        StepVerifier.create(handler.streamAll(), 0)
+            .thenRequest(3)
+            .expectNextCount(3)
+            .then(() -> assertEquals(4, pulled.get()))
+            .thenRequest(2)
+            .expectNextCount(2)
+            .then(() -> assertEquals(6, pulled.get()))
+            .thenCancel()
+            .verify();
+        assertTrue(streamClosed.get());
+    }
+
+    private void create(String id) {
+        client.post().uri("/api/metadata")
+            .contentType(MediaType.APPLICATION_XML)
+            .bodyValue(XML.formatted(id))
+            .exchange()
+            .expectStatus().isCreated();
+    }
+}
@@ -0,0 +1,110 @@
+package org.example;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+@DisplayName("TimeOrderedIdGenerator Unit Tests")
+class TimeOrderedIdGeneratorTest {
+    private static final long NOW = 1_736_951_400_000L; // 2025-01-15T14:30:00Z
+
+    private final AtomicLong clock = new AtomicLong(NOW);
+    private final TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator(clock::get);
+
+    @Test
+    @DisplayName("Should generate version 7 UUIDs carrying the creation time")
+    void shouldGenerateVersion7Uuids() {
+        // When
+        UUID id = UUID.fromString(generator.nextId());
+
+        // Then
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        assertEquals(NOW, id.getMostSignificantBits() >>> 16);
+    }
+
+    @Test
+    @DisplayName("Should keep IDs increasing as strings within a millisecond, past the counter and when the clock steps back")
+    void shouldKeepIdsIncreasing() {
+        // When
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(generator.nextId());
+        }
+        clock.set(NOW - 1_000);
+        ids.add(generator.nextId());
+        clock.set(NOW + 1_000);
+        ids.add(generator.nextId());
+
+        // Then
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0, ids.get(i - 1) + " >= " + ids.get(i));
+        }
+        assertEquals(NOW + 2, UUID.fromString(ids.get(9_999)).getMostSignificantBits() >>> 16);
+        assertEquals(NOW + 1_000, UUID.fromString(ids.getLast()).getMostSignificantBits() >>> 16);
+    }
+
+    @Test
+    @DisplayName("Should generate unique IDs from concurrent callers")
+    void shouldGenerateUniqueIdsConcurrently() throws Exception {
+        // Given
+        TimeOrderedIdGenerator systemClock = new TimeOrderedIdGenerator();
+        List<Future<List<String>>> results = new ArrayList<>();
+
+        // When
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int thread = 0; thread < 8; thread++) {
+                results.add(executor.submit(() -> {
+                    List<String> ids = new ArrayList<>();
+                    for (int i = 0; i < 20_000; i++) {
+                        ids.add(systemClock.nextId());
+                    }
+                    return ids;
+                }));
+            }
+        }
+
+        // Then
+        Set<String> unique = new HashSet<>();
+        for (Future<List<String>> result : results) {
+            List<String> ids = result.get();
+            for (int i = 1; i < ids.size(); i++) {
+                assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0);
+            }
+            unique.addAll(ids);
+        }
+        assertEquals(8 * 20_000, unique.size());
+    }
+
+    @Test
+    @DisplayName("Should select the generator from every spelling of the strategy")
+    void shouldSelectGeneratorFromStrategy() {
+        ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(IdGeneratorConfig.class, PropertiesConfig.class);
+
+        contextRunner.run(context -> assertInstanceOf(TimeOrderedIdGenerator.class, context.getBean(IdGenerator.class)));
+        contextRunner.withPropertyValues("metadata.ids.strategy=TIME_ORDERED")
+            .run(context -> assertInstanceOf(TimeOrderedIdGenerator.class, context.getBean(IdGenerator.class)));
+        contextRunner.withPropertyValues("metadata.ids.strategy=time-ordered")
+            .run(context -> assertInstanceOf(TimeOrderedIdGenerator.class, context.getBean(IdGenerator.class)));
+        contextRunner.withPropertyValues("metadata.ids.strategy=random")
+            .run(context -> assertInstanceOf(RandomIdGenerator.class, context.getBean(IdGenerator.class)));
+    }
+
+    @EnableConfigurationProperties(MetadataProperties.class)
+    static class PropertiesConfig {
+    }
+}